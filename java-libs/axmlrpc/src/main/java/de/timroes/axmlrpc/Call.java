@@ -3,6 +3,11 @@ package de.timroes.axmlrpc;
 import de.timroes.axmlrpc.serializer.SerializerHandler;
 import de.timroes.axmlrpc.xmlcreator.SimpleXMLCreator;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 
 /**
  * A Call object represents a call of a remote methode.
@@ -14,6 +19,8 @@ import de.timroes.axmlrpc.xmlcreator.XmlElement;
  */
 public class Call {
 
+	private static final int WRITE_BUFFER_SIZE = 8192;
+
 	private String method;
 	private Object[] params;
 
@@ -74,6 +81,43 @@ public class Call {
 		return result;
 	}
 
+	/**
+	 * Write the xml representation of the method call, as returned by
+	 * {@link #getXML(boolean)}, straight to the given stream. The parameters
+	 * are serialized while they are written, so the document is never held
+	 * in memory as a whole. The stream is flushed but not closed.
+	 *
+	 * @param out The stream to write the UTF-8 encoded xml to.
+	 * @throws XMLRPCException Will be thrown whenever the xml representation cannot
+	 * 		be build without errors.
+	 * @throws IOException Will be thrown if writing to the stream fails.
+	 */
+	public void writeXML(OutputStream out) throws XMLRPCException, IOException {
+
+		XmlStreamWriter writer = new XmlStreamWriter(
+				new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), WRITE_BUFFER_SIZE));
+
+		writer.startDocument();
+		writer.startElement(XMLRPCClient.METHOD_CALL);
+		writer.writeElement(XMLRPCClient.METHOD_NAME, method);
+
+		if(params != null && params.length > 0) {
+			writer.startElement(XMLRPCClient.PARAMS);
+			for(Object o : params) {
+				writer.startElement(XMLRPCClient.PARAM);
+				writer.startElement(XMLRPCClient.VALUE);
+				SerializerHandler.getDefault().serialize(o, writer);
+				writer.endElement();
+				writer.endElement();
+			}
+			writer.endElement();
+		}
+
+		writer.endElement();
+		writer.flush();
+
+	}
+
 	/**
 	 * Generates the param xml tag for a specific parameter object.
 	 *
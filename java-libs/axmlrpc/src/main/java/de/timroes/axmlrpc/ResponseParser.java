@@ -30,6 +30,18 @@ class ResponseParser {
 	private static final String FAULT_CODE = "faultCode";
 	private static final String FAULT_STRING = "faultString";
 
+	/**
+	 * Looking up the factory implementation is expensive, so the factory is
+	 * shared by all parsers. Factories aren't thread safe, so it must be
+	 * locked to create a builder.
+	 */
+	private static final DocumentBuilderFactory factory;
+
+	static {
+		factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+	}
+
 	/**
 	 * The given InputStream must contain the xml response from an xmlrpc server.
 	 * This method extract the content of it as an object.
@@ -43,9 +55,10 @@ class ResponseParser {
 
 		try {
 
-			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-			factory.setNamespaceAware(true);
-			DocumentBuilder builder = factory.newDocumentBuilder();
+			DocumentBuilder builder;
+			synchronized(factory) {
+				builder = factory.newDocumentBuilder();
+			}
 			Document dom = builder.parse(response);
 			if (debugMode ){
 				printDocument(dom, System.out);
@@ -0,0 +1,470 @@
+package de.timroes.axmlrpc;
+
+import de.timroes.axmlrpc.serializer.ScalarDeserializer;
+import de.timroes.axmlrpc.serializer.SerializerHandler;
+import de.timroes.axmlrpc.serializer.StreamingDeserializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The StreamingResponseParser parses the response of an XMLRPC server to an
+ * object like the {@link ResponseParser}, but it builds the arrays and maps
+ * straight from the SAX events of the response, without keeping a DOM of
+ * the whole response in memory. The structs of the data array of the response
+ * can be handed to a {@link XMLRPCStructVisitor} as soon as they are parsed.
+ */
+class StreamingResponseParser {
+
+	private static final String FAULT_CODE = "faultCode";
+	private static final String FAULT_STRING = "faultString";
+
+	private static final String STRUCT_NAME = "name";
+	private static final String ARRAY_DATA = "data";
+
+	/**
+	 * The name of the struct member holding the array, whose structs are visited.
+	 */
+	private static final String DATA_MEMBER = "data";
+
+	/**
+	 * Looking up the factory implementation is expensive, so the factory is
+	 * shared by all parsers. Factories aren't thread safe, so it must be
+	 * locked to create a parser.
+	 */
+	private static final SAXParserFactory factory;
+
+	static {
+		factory = SAXParserFactory.newInstance();
+		factory.setNamespaceAware(true);
+	}
+
+	private final boolean ignoreNamespaces;
+
+	/**
+	 * Create a new streaming parser.
+	 *
+	 * @param flags The flags that has been set in the XMLRPCClient.
+	 */
+	public StreamingResponseParser(int flags) {
+		ignoreNamespaces = (flags & XMLRPCClient.FLAGS_IGNORE_NAMESPACES) != 0;
+	}
+
+	/**
+	 * The given InputStream must contain the xml response from an xmlrpc server.
+	 * This method extract the content of it as an object.
+	 *
+	 * @param response The InputStream of the server response.
+	 * @param visitor A visitor for the structs of the data array or null.
+	 * @return The returned object.
+	 * @throws XMLRPCException Will be thrown whenever something fails.
+	 * @throws XMLRPCServerException Will be thrown, if the server returns an error.
+	 */
+	public Object parse(InputStream response, XMLRPCStructVisitor visitor, boolean debugMode) throws XMLRPCException {
+
+		try {
+
+			if(debugMode) {
+				response = printResponse(response);
+			}
+
+			SAXParser parser;
+			synchronized(factory) {
+				parser = factory.newSAXParser();
+			}
+
+			ResponseHandler handler = new ResponseHandler(visitor);
+			parser.parse(response, handler);
+
+			if(handler.fault) {
+				@SuppressWarnings("unchecked")
+				Map<String,Object> o = (Map<String,Object>)handler.result;
+
+				throw new XMLRPCServerException((String)o.get(FAULT_STRING), (Integer)o.get(FAULT_CODE));
+			}
+
+			return handler.result;
+
+		} catch (Exception ex) {
+
+			if(ex instanceof XMLRPCServerException)
+				throw (XMLRPCServerException)ex;
+
+			// Unwrap the errors thrown from within the handler
+			if(ex instanceof SAXException && ((SAXException)ex).getException() != null)
+				ex = ((SAXException)ex).getException();
+
+			throw new XMLRPCException("Error getting result from server.", ex);
+
+		}
+
+	}
+
+	/**
+	 * Reads the whole response and prints it.
+	 *
+	 * @param response The InputStream of the server response.
+	 * @return A stream to read the response again.
+	 * @throws IOException Will be thrown if the response can't be read.
+	 */
+	private static InputStream printResponse(InputStream response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while((read = response.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		System.out.println(out.toString("UTF-8"));
+		return new ByteArrayInputStream(out.toByteArray());
+	}
+
+	/**
+	 * An element of the response, which is currently open.
+	 */
+	private static class Frame {
+
+		static final int METHOD_RESPONSE = 0;
+		static final int PARAMS = 1;
+		static final int PARAM = 2;
+		static final int FAULT = 3;
+		static final int VALUE = 4;
+		static final int SCALAR = 5;
+		static final int STRUCT = 6;
+		static final int MEMBER = 7;
+		static final int NAME = 8;
+		static final int ARRAY = 9;
+		static final int DATA = 10;
+
+		final int kind;
+
+		/**
+		 * Whether the element already contains its (only) child element.
+		 */
+		boolean hasChild;
+		Object value;
+
+		// Member elements
+		boolean hasName;
+		String name;
+
+		// Value elements
+		String type;
+
+		// Value, scalar and name elements
+		StringBuilder text;
+		ScalarDeserializer deserializer;
+		// Scalar elements deserialized while they are parsed
+		Writer content;
+
+		// Struct and data elements
+		Map<String,Object> struct;
+		List<Object> list;
+		boolean visit;
+		int visited;
+
+		Frame(int kind) {
+			this.kind = kind;
+		}
+
+	}
+
+	/**
+	 * The ResponseHandler turns the SAX events into the returned object.
+	 */
+	private class ResponseHandler extends DefaultHandler {
+
+		private final XMLRPCStructVisitor visitor;
+		private final List<Frame> stack = new ArrayList<Frame>();
+
+		Object result;
+		boolean fault;
+
+		ResponseHandler(XMLRPCStructVisitor visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public void startElement(String uri, String localName, String qName,
+				Attributes attributes) throws SAXException {
+
+			try {
+				stack.add(openElement(localName, qName));
+			} catch(XMLRPCException ex) {
+				throw new SAXException(ex);
+			}
+
+		}
+
+		@Override
+		public void endElement(String uri, String localName, String qName) throws SAXException {
+
+			try {
+				closeElement(stack.remove(stack.size() - 1));
+			} catch(XMLRPCException ex) {
+				throw new SAXException(ex);
+			}
+
+		}
+
+		@Override
+		public void characters(char[] ch, int start, int length) throws SAXException {
+
+			Frame top = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+
+			if(top != null && top.content != null) {
+				try {
+					top.content.write(ch, start, length);
+				} catch(IOException ex) {
+					throw new SAXException(new XMLRPCException("Invalid " + stack.get(stack.size() - 2).type
+							+ " value.", ex));
+				}
+				return;
+			}
+
+			if(top != null && (top.kind == Frame.SCALAR || top.kind == Frame.NAME
+					|| (top.kind == Frame.VALUE && top.type == null))) {
+				top.text.append(ch, start, length);
+				return;
+			}
+
+			// Strip only whitespace text
+			for(int i = start; i < start + length; i++) {
+				if(ch[i] > ' ') {
+					throw new SAXException(new XMLRPCException(top != null && top.kind == Frame.STRUCT
+							? "Only struct members allowed within a struct."
+							: "Only element nodes allowed."));
+				}
+			}
+
+		}
+
+		private Frame openElement(String localName, String qName) throws XMLRPCException {
+
+			Frame parent = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+
+			if(parent == null) {
+				if(!XMLRPCClient.METHOD_RESPONSE.equals(qName)) {
+					throw new XMLRPCException("MethodResponse root tag is missing.");
+				}
+				return new Frame(Frame.METHOD_RESPONSE);
+			}
+
+			Frame frame;
+
+			switch(parent.kind) {
+
+				case Frame.METHOD_RESPONSE:
+					checkOnlyChild(parent);
+					if(XMLRPCClient.PARAMS.equals(qName)) {
+						return new Frame(Frame.PARAMS);
+					} else if(XMLRPCClient.FAULT.equals(qName)) {
+						return new Frame(Frame.FAULT);
+					}
+					throw new XMLRPCException("The methodResponse tag must contain a fault or params tag.");
+
+				case Frame.PARAMS:
+					checkOnlyChild(parent);
+					if(!XMLRPCClient.PARAM.equals(qName)) {
+						throw new XMLRPCException("The params tag must contain a param tag.");
+					}
+					return new Frame(Frame.PARAM);
+
+				case Frame.PARAM:
+				case Frame.FAULT:
+					checkOnlyChild(parent);
+					return openValue(qName);
+
+				case Frame.DATA:
+					return openValue(qName);
+
+				case Frame.VALUE:
+					if(parent.type != null) {
+						throw new XMLRPCException("Element has more than one children.");
+					}
+					if(parent.text.toString().trim().length() > 0) {
+						throw new XMLRPCException("Only element nodes allowed.");
+					}
+
+					// If FLAGS_IGNORE_NAMESPACE has been set, only use local name.
+					if(ignoreNamespaces && localName != null && localName.length() > 0) {
+						parent.type = localName;
+					} else {
+						parent.type = qName;
+					}
+
+					if(SerializerHandler.TYPE_STRUCT.equals(parent.type)) {
+						frame = new Frame(Frame.STRUCT);
+						frame.struct = new HashMap<String, Object>();
+					} else if(SerializerHandler.TYPE_ARRAY.equals(parent.type)) {
+						frame = new Frame(Frame.ARRAY);
+					} else {
+						frame = new Frame(Frame.SCALAR);
+						frame.deserializer = SerializerHandler.getDefault().getScalarDeserializer(parent.type);
+						if(frame.deserializer instanceof StreamingDeserializer) {
+							frame.content = ((StreamingDeserializer)frame.deserializer).startContent();
+						} else {
+							frame.text = new StringBuilder();
+						}
+					}
+					return frame;
+
+				case Frame.STRUCT:
+					if(!XMLRPCClient.STRUCT_MEMBER.equals(qName)) {
+						throw new XMLRPCException("Only struct members allowed within a struct.");
+					}
+					return new Frame(Frame.MEMBER);
+
+				case Frame.MEMBER:
+					if(STRUCT_NAME.equals(qName)) {
+						if(parent.hasName) {
+							throw new XMLRPCException("Name of a struct member cannot be set twice.");
+						}
+						parent.hasName = true;
+						frame = new Frame(Frame.NAME);
+						frame.text = new StringBuilder();
+						return frame;
+					} else if(XMLRPCClient.VALUE.equals(qName)) {
+						if(parent.hasChild) {
+							throw new XMLRPCException("Value of a struct member cannot be set twice.");
+						}
+						parent.hasChild = true;
+						return openValue(qName);
+					}
+					throw new XMLRPCException("A struct member must only contain one name and one value.");
+
+				case Frame.ARRAY:
+					if(parent.hasChild || !ARRAY_DATA.equals(qName)) {
+						throw new XMLRPCException("The array must contain one data tag.");
+					}
+					parent.hasChild = true;
+					frame = new Frame(Frame.DATA);
+					frame.list = new ArrayList<Object>();
+					// methodResponse, params, param, value, struct, member, value, array
+					frame.visit = visitor != null && stack.size() == 8
+							&& stack.get(2).kind == Frame.PARAM
+							&& DATA_MEMBER.equals(stack.get(5).name);
+					return frame;
+
+				default:
+					throw new XMLRPCException("Element must contain only text elements.");
+
+			}
+
+		}
+
+		private Frame openValue(String qName) throws XMLRPCException {
+			if(!XMLRPCClient.VALUE.equals(qName)) {
+				throw new XMLRPCException("Value tag is missing around value.");
+			}
+			Frame frame = new Frame(Frame.VALUE);
+			frame.text = new StringBuilder();
+			return frame;
+		}
+
+		private void checkOnlyChild(Frame parent) throws XMLRPCException {
+			if(parent.hasChild) {
+				throw new XMLRPCException("Element has more than one children.");
+			}
+			parent.hasChild = true;
+		}
+
+		private void closeElement(Frame frame) throws XMLRPCException {
+
+			Frame parent = stack.isEmpty() ? null : stack.get(stack.size() - 1);
+
+			switch(frame.kind) {
+
+				case Frame.METHOD_RESPONSE:
+					if(!frame.hasChild) {
+						throw new XMLRPCException("The methodResponse tag must contain a fault or params tag.");
+					}
+					break;
+
+				case Frame.PARAMS:
+					if(!frame.hasChild) {
+						throw new XMLRPCException("The params tag must contain a param tag.");
+					}
+					break;
+
+				case Frame.PARAM:
+				case Frame.FAULT:
+					if(!frame.hasChild) {
+						throw new XMLRPCException("Value tag is missing around value.");
+					}
+					result = frame.value;
+					fault = frame.kind == Frame.FAULT;
+					break;
+
+				case Frame.VALUE:
+					Object value = frame.type == null
+							? SerializerHandler.getDefault().getScalarDeserializer(null)
+									.deserialize(frame.text.toString())
+							: frame.value;
+					if(parent.kind == Frame.DATA) {
+						addToData(parent, value);
+					} else {
+						parent.value = value;
+					}
+					break;
+
+				case Frame.SCALAR:
+					parent.value = frame.content != null
+							? ((StreamingDeserializer)frame.deserializer).endContent(frame.content)
+							: frame.deserializer.deserialize(frame.text.toString());
+					break;
+
+				case Frame.STRUCT:
+					parent.value = frame.struct;
+					break;
+
+				case Frame.MEMBER:
+					parent.struct.put(frame.name, frame.value);
+					break;
+
+				case Frame.NAME:
+					parent.name = frame.text.toString();
+					break;
+
+				case Frame.ARRAY:
+					if(!frame.hasChild) {
+						throw new XMLRPCException("The array must contain one data tag.");
+					}
+					parent.value = frame.value;
+					break;
+
+				case Frame.DATA:
+					parent.value = frame.list.toArray();
+					break;
+
+			}
+
+		}
+
+		private void addToData(Frame data, Object value) {
+			if(data.visit && value instanceof Map) {
+				@SuppressWarnings("unchecked")
+				Map<String,Object> struct = (Map<String,Object>)value;
+				if(!visitor.onStruct(data.visited++, struct)) {
+					return;
+				}
+			}
+			data.list.add(value);
+		}
+
+	}
+
+}
@@ -1,16 +1,30 @@
 package de.timroes.axmlrpc;
 
 import de.timroes.axmlrpc.serializer.SerializerHandler;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.net.*;
 import java.security.SecureRandom;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.net.ssl.*;
 
 /**
@@ -28,6 +42,28 @@ public class XMLRPCClient {
 
 	private static final String DEFAULT_USER_AGENT = "aXMLRPC";
 
+	/**
+	 * The number of asynchronous calls running at the same time on the
+	 * default executor. Other calls wait for a free thread.
+	 */
+	private static final int DEFAULT_ASYNC_THREADS = 4;
+	private static final int ASYNC_THREAD_KEEP_ALIVE = 30;
+
+	private static final int DRAIN_BUFFER_SIZE = 1024;
+
+	/**
+	 * The default transport uses the connections of the URL, which are kept
+	 * alive and reused by the system as long as responses are read to their end.
+	 */
+	private static final XMLRPCTransport DEFAULT_TRANSPORT = new XMLRPCTransport() {
+		public URLConnection openConnection(URL url, Proxy proxy) throws IOException {
+			// If proxy is available, use it
+			if(proxy != null)
+				return url.openConnection(proxy);
+			return url.openConnection();
+		}
+	};
+
 	/**
 	 * Constants from the http protocol.
 	 */
@@ -36,6 +72,9 @@ public class XMLRPCClient {
 	static final String TYPE_XML = "text/xml; charset=utf-8";
 	static final String HOST = "Host";
 	static final String CONTENT_LENGTH = "Content-Length";
+	static final String CONTENT_ENCODING = "Content-Encoding";
+	static final String ENCODING_GZIP = "gzip";
+	static final String ACCEPT_ENCODING = "Accept-Encoding";
 	static final String HTTP_POST = "POST";
 
 	/**
@@ -157,6 +196,37 @@ public class XMLRPCClient {
 	 */
 	public static final int FLAGS_DEBUG = 0x2000;
 
+	/**
+	 * With this flag enabled, responses are parsed while they are read from
+	 * the connection, instead of being parsed to a DOM first. This needs
+	 * much less memory for large responses. Calls made with a
+	 * {@link XMLRPCStructVisitor} always use the streaming parser.
+	 */
+	public static final int FLAGS_STREAMING_PARSER = 0x4000;
+
+	/**
+	 * With this flag enabled, requests are sent with chunked transfer encoding.
+	 * The request is then sent while it is serialized, instead of being
+	 * buffered to compute its Content-Length. The server must support chunked
+	 * requests, which HTTP/1.0 servers don't.
+	 */
+	public static final int FLAGS_CHUNKED_REQUEST = 0x8000;
+
+	/**
+	 * With this flag enabled, request bodies are compressed with gzip and sent
+	 * with a Content-Encoding: gzip header. Only use this with servers that
+	 * are known to accept compressed requests.
+	 */
+	public static final int FLAGS_GZIP_REQUEST = 0x10000;
+
+	/**
+	 * With this flag enabled, base64 values are gzip compressed data, like
+	 * the subtitle files returned by OpenSubtitles, and are deserialized to
+	 * their decompressed bytes. They are decoded while they are parsed and
+	 * decompressed with a gzip stream, the encoding is never held as a string.
+	 */
+	public static final int FLAGS_GUNZIP_BASE64 = 0x20000;
+
 	/**
 	 * This flag disables all SSL warnings. It is an alternative to use
 	 * FLAGS_SSL_IGNORE_INVALID_CERT | FLAGS_SSL_IGNORE_INVALID_HOST. There
@@ -183,6 +253,7 @@ public class XMLRPCClient {
 	private Map<Long,Caller> backgroundCalls = new ConcurrentHashMap<Long, Caller>();
 
 	private ResponseParser responseParser;
+	private StreamingResponseParser streamingResponseParser;
 	private CookieManager cookieManager;
 	private AuthenticationManager authManager;
 
@@ -191,7 +262,16 @@ public class XMLRPCClient {
 
 	private Proxy proxy;
 
-	private int timeout;
+	private XMLRPCTransport transport = DEFAULT_TRANSPORT;
+
+	private int connectTimeout;
+	private int readTimeout;
+
+	private int maxRetries;
+	private int retryBackoff;
+
+	private Executor executor;
+	private final AtomicLong lastCallId = new AtomicLong();
 
 	/**
 	 * Create a new XMLRPC client for the given URL.
@@ -209,12 +289,14 @@ public class XMLRPCClient {
 		this.flags = flags;
 		// Create a parser for the http responses.
 		responseParser = new ResponseParser();
+		streamingResponseParser = new StreamingResponseParser(flags);
 
 		cookieManager = new CookieManager(flags);
 		authManager = new AuthenticationManager();
 
 		httpParameters.put(CONTENT_TYPE, TYPE_XML);
 		httpParameters.put(USER_AGENT, userAgent);
+		httpParameters.put(ACCEPT_ENCODING, ENCODING_GZIP);
 
 		// If invalid ssl certs are ignored, instantiate an all trusting TrustManager
 		if(isFlagSet(FLAGS_SSL_IGNORE_INVALID_CERT)) {
@@ -301,7 +383,65 @@ public class XMLRPCClient {
 	 * @param timeout The timeout for connections in seconds.
 	 */
 	public void setTimeout(int timeout) {
-		this.timeout = timeout;
+		this.connectTimeout = timeout;
+		this.readTimeout = timeout;
+	}
+
+	/**
+	 * Sets the time in seconds after which connecting to the server should
+	 * timeout. See {@link #setTimeout(int)} for the behaviour on timeouts.
+	 *
+	 * @param timeout The connect timeout in seconds, zero or less to never timeout.
+	 */
+	public void setConnectTimeout(int timeout) {
+		this.connectTimeout = timeout;
+	}
+
+	/**
+	 * Sets the time in seconds after which waiting for data from the server
+	 * should timeout. See {@link #setTimeout(int)} for the behaviour on timeouts.
+	 *
+	 * @param timeout The read timeout in seconds, zero or less to never timeout.
+	 */
+	public void setReadTimeout(int timeout) {
+		this.readTimeout = timeout;
+	}
+
+	/**
+	 * Sets how often a call is sent again after a transient failure. Only
+	 * failures where the server can't have processed the call are retried:
+	 * when the server can't be reached or it responds with the HTTP status
+	 * code 503 (Service Unavailable). The client waits {@code backoff}
+	 * milliseconds before the first retry and doubles the delay for every
+	 * further retry. By default calls aren't retried.
+	 *
+	 * @param maxRetries The maximum number of retries, zero to never retry.
+	 * @param backoff The delay before the first retry in milliseconds.
+	 */
+	public void setRetries(int maxRetries, int backoff) {
+		this.maxRetries = maxRetries;
+		this.retryBackoff = backoff;
+	}
+
+	/**
+	 * Sets the transport used to open the connections to the server.
+	 *
+	 * @param transport The transport to use or null to use the default transport.
+	 */
+	public void setTransport(XMLRPCTransport transport) {
+		this.transport = transport != null ? transport : DEFAULT_TRANSPORT;
+	}
+
+	/**
+	 * Sets the executor, which runs the calls made by
+	 * {@link #callAsync(de.timroes.axmlrpc.XMLRPCCallback, java.lang.String, java.lang.Object[])}.
+	 * By default they run on a pool of {@value #DEFAULT_ASYNC_THREADS} threads,
+	 * which is created by the first asynchronous call.
+	 *
+	 * @param executor The executor to use or null to use the default executor.
+	 */
+	public synchronized void setExecutor(Executor executor) {
+		this.executor = executor;
 	}
 
 	/**
@@ -461,6 +601,22 @@ public class XMLRPCClient {
 		return new Caller().call(method, params);
 	}
 
+	/**
+	 * Call a remote procedure on the server like {@link #call(java.lang.String, java.lang.Object[])},
+	 * but hand every struct of the data array of the result to the visitor
+	 * while the response is being parsed. This is useful for large responses,
+	 * since structs dropped by the visitor never stay in memory.
+	 *
+	 * @param visitor A visitor for the structs of the data array.
+	 * @param method A method name to call.
+	 * @param params An array of parameters for the method.
+	 * @return The result of the server, without the structs dropped by the visitor.
+	 * @throws XMLRPCException Will be thrown if an error occurred during the call.
+	 */
+	public Object call(XMLRPCStructVisitor visitor, String method, Object... params) throws XMLRPCException {
+		return new Caller(visitor).call(method, params);
+	}
+
 	/**
 	 * Asynchronously call a remote procedure on the server. The method must be
 	 * described by a method  name. If the method requires parameters, this must
@@ -477,11 +633,155 @@ public class XMLRPCClient {
 	 * @return The id of the current request.
 	 */
 	public long callAsync(XMLRPCCallback listener, String methodName, Object... params) {
-		long id = System.currentTimeMillis();
-		new Caller(listener, id, methodName, params).start();
+		long id = lastCallId.incrementAndGet();
+		Caller caller = new Caller(listener, id, methodName, params);
+		backgroundCalls.put(id, caller);
+		try {
+			getExecutor().execute(caller);
+		} catch(RejectedExecutionException ex) {
+			backgroundCalls.remove(id);
+			listener.onError(id, new XMLRPCException(ex));
+		}
 		return id;
 	}
 
+	/**
+	 * Asynchronously call a remote procedure on the server. The call runs on
+	 * the executor of the client and the returned future gives access to its
+	 * result. Canceling the future aborts the network communication of the call.
+	 * {@link Future#get()} throws an {@link java.util.concurrent.ExecutionException}
+	 * whose cause is the {@link XMLRPCException} of a failed call.
+	 *
+	 * @param method A method name to call.
+	 * @param params An array of parameters for the method.
+	 * @return A future for the result of the server.
+	 * @throws RejectedExecutionException Will be thrown if the executor set with
+	 *		{@link #setExecutor(java.util.concurrent.Executor)} doesn't accept the call.
+	 */
+	public Future<Object> submit(String method, Object... params) {
+		return submit((XMLRPCStructVisitor)null, method, params);
+	}
+
+	/**
+	 * Asynchronously call a remote procedure on the server like
+	 * {@link #submit(java.lang.String, java.lang.Object[])}, but hand every
+	 * struct of the data array of the result to the visitor while the
+	 * response is being parsed. The visitor is called on the thread of the call.
+	 *
+	 * @param visitor A visitor for the structs of the data array or null.
+	 * @param method A method name to call.
+	 * @param params An array of parameters for the method.
+	 * @return A future for the result of the server.
+	 * @throws RejectedExecutionException Will be thrown if the executor set with
+	 *		{@link #setExecutor(java.util.concurrent.Executor)} doesn't accept the call.
+	 */
+	public Future<Object> submit(XMLRPCStructVisitor visitor, final String method, final Object... params) {
+		final Caller caller = new Caller(visitor);
+		return submit(caller, new Callable<Object>() {
+			public Object call() throws XMLRPCException {
+				return caller.call(method, params);
+			}
+		});
+	}
+
+	/**
+	 * Send all calls of a multicall to the server in a single request.
+	 * This method will block until the server returned the results.
+	 *
+	 * @param multicall The calls to send.
+	 * @return The results of the calls in the order they have been added.
+	 *		The result of a call which failed on the server is an
+	 *		{@link XMLRPCServerException}.
+	 * @throws XMLRPCException Will be thrown if the multicall itself failed.
+	 */
+	public Object[] call(XMLRPCMulticall multicall) throws XMLRPCException {
+		return callMulticall(new Caller(), multicall.getCalls());
+	}
+
+	/**
+	 * Asynchronously send all calls of a multicall to the server in a single
+	 * request, on the executor of the client. Calls added to the multicall
+	 * after this method returned aren't sent.
+	 *
+	 * @param multicall The calls to send.
+	 * @return A future for the results, as returned by {@link #call(de.timroes.axmlrpc.XMLRPCMulticall)}.
+	 * @throws RejectedExecutionException Will be thrown if the executor set with
+	 *		{@link #setExecutor(java.util.concurrent.Executor)} doesn't accept the call.
+	 */
+	public Future<Object[]> submit(XMLRPCMulticall multicall) {
+		final Caller caller = new Caller();
+		final Object[] calls = multicall.getCalls();
+		return submit(caller, new Callable<Object[]>() {
+			public Object[] call() throws XMLRPCException {
+				return callMulticall(caller, calls);
+			}
+		});
+	}
+
+	/**
+	 * Send the calls of a multicall and unpack their results.
+	 *
+	 * @param caller The caller to send the multicall with.
+	 * @param calls The calls of the multicall.
+	 * @return The results of the calls.
+	 * @throws XMLRPCException Will be thrown if the multicall itself failed.
+	 */
+	private Object[] callMulticall(Caller caller, Object[] calls) throws XMLRPCException {
+		if(calls.length == 0) {
+			return new Object[0];
+		}
+		return XMLRPCMulticall.getResults(
+				caller.call(XMLRPCMulticall.MULTICALL, new Object[] { calls }), calls.length);
+	}
+
+	/**
+	 * Runs a task on the executor of the client. Canceling the returned
+	 * future aborts the network communication of the given caller.
+	 *
+	 * @param caller The caller used by the task.
+	 * @param task The task to run.
+	 * @return The future for the result of the task.
+	 */
+	private <T> Future<T> submit(final Caller caller, Callable<T> task) {
+		FutureTask<T> future = new FutureTask<T>(task) {
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				boolean canceled = super.cancel(mayInterruptIfRunning);
+				if(canceled) {
+					caller.cancel();
+				}
+				return canceled;
+			}
+		};
+		getExecutor().execute(future);
+		return future;
+	}
+
+	/**
+	 * Returns the executor for asynchronous calls, creating the default
+	 * executor if none has been set.
+	 *
+	 * @return The executor for asynchronous calls.
+	 */
+	private synchronized Executor getExecutor() {
+		if(executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_ASYNC_THREADS, DEFAULT_ASYNC_THREADS,
+					ASYNC_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+					new ThreadFactory() {
+						public Thread newThread(Runnable r) {
+							Thread thread = new Thread(r, "aXMLRPC");
+							// Pending calls must not keep the application alive
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+			// Don't keep idle threads
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
 	/**
 	 * Cancel a specific asynchronous call.
 	 *
@@ -495,11 +795,11 @@ public class XMLRPCClient {
 			return;
 		}
 
-		// Cancel the thread
+		// Cancel the call
 		cancel.cancel();
 
 		try {
-			// Wait for the thread
+			// Wait for the call, if it is already running
 			cancel.join();
 		} catch (InterruptedException ex) {
 			// Ignore this
@@ -535,18 +835,26 @@ public class XMLRPCClient {
 	}
 
 	/**
-	 * The Caller class is used to make asynchronous calls to the server.
-	 * For synchronous calls the Thread function of this class isn't used.
+	 * The Caller class is used to make calls to the server. Asynchronous
+	 * calls run it on the executor of the client.
 	 */
-	private class Caller extends Thread {
+	private class Caller implements Runnable {
 
 		private XMLRPCCallback listener;
+		private XMLRPCStructVisitor visitor;
 		private long threadId;
 		private String methodName;
 		private Object[] params;
 
 		private volatile boolean canceled;
-		private HttpURLConnection http;
+		private volatile HttpURLConnection http;
+
+		/**
+		 * Whether the executor has started running this caller.
+		 * Guarded by the caller itself.
+		 */
+		private boolean started;
+		private final CountDownLatch finished = new CountDownLatch(1);
 
 		/**
 		 * Create a new Caller for asynchronous use.
@@ -565,35 +873,53 @@ public class XMLRPCClient {
 
 		/**
 		 * Create a new Caller for synchronous use.
-		 * If the caller has been created with this constructor you cannot use the
-		 * start method to start it as a thread. But you can call the call method
-		 * on it for synchronous use.
+		 * If the caller has been created with this constructor you cannot run
+		 * it on an executor. But you can call the call method on it for
+		 * synchronous use.
 		 */
 		public Caller() { }
 
 		/**
-		 * The run method is invoked when the thread gets started.
+		 * Create a new Caller for synchronous use, which hands the structs
+		 * of the data array of the result to a visitor.
+		 *
+		 * @param visitor The visitor for the structs of the data array.
+		 */
+		public Caller(XMLRPCStructVisitor visitor) {
+			this.visitor = visitor;
+		}
+
+		/**
+		 * The run method is invoked when the executor runs the caller.
 		 * This will only work, if the Caller has been created with parameters.
 		 * It execute the call method and notify the listener about the result.
 		 */
-		@Override
 		public void run() {
 
 			if(listener == null)
 				return;
 
 			try {
-				backgroundCalls.put(threadId, this);
+				synchronized(this) {
+					// Canceled while it was waiting for a thread
+					if(canceled)
+						return;
+					started = true;
+				}
 				Object o = this.call(methodName, params);
-				listener.onResponse(threadId, o);
+				if(!canceled)
+					listener.onResponse(threadId, o);
 			} catch(CancelException ex) {
 				// Don't notify the listener, if the call has been canceled.
 			} catch(XMLRPCServerException ex) {
-				listener.onServerError(threadId, ex);
+				if(!canceled)
+					listener.onServerError(threadId, ex);
 			} catch (XMLRPCException ex) {
-				listener.onError(threadId, ex);
+				if(!canceled)
+					listener.onError(threadId, ex);
 			} finally {
 				backgroundCalls.remove(threadId);
+				finished.countDown();
 			}
 
 		}
@@ -602,10 +928,29 @@ public class XMLRPCClient {
 		 * Cancel this call. This will abort the network communication.
 		 */
 		public void cancel() {
-			// Set the flag, that this thread has been canceled
-			canceled = true;
+			synchronized(this) {
+				// Set the flag, that this call has been canceled
+				canceled = true;
+			}
 			// Disconnect the connection to the server
-			http.disconnect();
+			HttpURLConnection connection = http;
+			if(connection != null)
+				connection.disconnect();
+		}
+
+		/**
+		 * Wait until this call has finished, if it has already been started
+		 * by the executor. A call that hasn't been started yet won't do
+		 * anything once it has been canceled.
+		 *
+		 * @throws InterruptedException Will be thrown if the waiting thread is interrupted.
+		 */
+		public void join() throws InterruptedException {
+			synchronized(this) {
+				if(!started)
+					return;
+			}
+			finished.await();
 		}
 
 		/**
@@ -614,6 +959,7 @@ public class XMLRPCClient {
 		 * The type of the return object depends on the server. You should consult
 		 * the server documentation and then cast the return value according to that.
 		 * This method will block until the server returned a result (or an error occurred).
+		 * Transient failures are retried as configured by {@link #setRetries(int, int)}.
 		 * Read the README file delivered with the source code of this library for more
 		 * information.
 		 *
@@ -624,27 +970,55 @@ public class XMLRPCClient {
 		 */
 		public Object call(String methodName, Object[] params) throws XMLRPCException {
 
+			for(int attempt = 0; ; attempt++) {
+				try {
+					return send(methodName, params);
+				} catch(TransientException ex) {
+					if(attempt >= maxRetries || canceled) {
+						throw ex.getError();
+					}
+				}
+
+				// Back off exponentially before the next attempt
+				try {
+					Thread.sleep((long)retryBackoff << Math.min(attempt, 16));
+				} catch(InterruptedException ex) {
+					if(canceled && threadId > 0)
+						throw new CancelException();
+					throw new XMLRPCException(ex);
+				}
+			}
+
+		}
+
+		/**
+		 * Send a single request for the call to the server.
+		 *
+		 * @param method A method name to call.
+		 * @param params An array of parameters for the method.
+		 * @return The result of the server.
+		 * @throws XMLRPCException Will be thrown if an error occurred during the call.
+		 * @throws TransientException Will be thrown if the call failed, but might
+		 *		succeed if it is sent again.
+		 */
+		private Object send(String methodName, Object[] params) throws XMLRPCException, TransientException {
+
 			try {
 
 				Call c = createCall(methodName, params);
 
-				// If proxy is available, use it
-				URLConnection conn;
-				if(proxy != null)
-					conn = url.openConnection(proxy);
-				else
-					conn = url.openConnection();
-
-				http = verifyConnection(conn);
+				http = verifyConnection(transport.openConnection(url, proxy));
 				http.setInstanceFollowRedirects(false);
 				http.setRequestMethod(HTTP_POST);
 				http.setDoOutput(true);
 				http.setDoInput(true);
 
-				// Set timeout
-				if(timeout > 0) {
-					http.setConnectTimeout(timeout * 1000);
-					http.setReadTimeout(timeout * 1000);
+				// Set timeouts
+				if(connectTimeout > 0) {
+					http.setConnectTimeout(connectTimeout * 1000);
+				}
+				if(readTimeout > 0) {
+					http.setReadTimeout(readTimeout * 1000);
 				}
 
 				// Set the request parameters
@@ -655,9 +1029,28 @@ public class XMLRPCClient {
 				authManager.setAuthentication(http);
 				cookieManager.setCookies(http);
 
-				OutputStreamWriter stream = new OutputStreamWriter(http.getOutputStream());
-				stream.write(c.getXML(isFlagSet(FLAGS_DEBUG)));
-				stream.flush();
+				if(isFlagSet(FLAGS_CHUNKED_REQUEST)) {
+					http.setChunkedStreamingMode(0);
+				}
+				if(isFlagSet(FLAGS_GZIP_REQUEST)) {
+					http.setRequestProperty(CONTENT_ENCODING, ENCODING_GZIP);
+				}
+
+				// The connection might have been canceled before it has been opened
+				if(canceled && threadId > 0) {
+					throw new CancelException();
+				}
+
+				OutputStream stream = http.getOutputStream();
+				if(isFlagSet(FLAGS_GZIP_REQUEST)) {
+					stream = new GZIPOutputStream(stream);
+				}
+				if(isFlagSet(FLAGS_DEBUG)) {
+					stream.write(c.getXML(true).getBytes("UTF-8"));
+				} else {
+					// Serialize the call straight to the connection
+					c.writeXML(stream);
+				}
 				stream.close();
 
 				// Try to get the status code from the connection
@@ -673,6 +1066,15 @@ public class XMLRPCClient {
 					statusCode = http.getResponseCode();
 				}
 
+				// The server is temporarily unable to handle the call, it
+				// hasn't been processed.
+				if(statusCode == HttpURLConnection.HTTP_UNAVAILABLE
+						&& !isFlagSet(FLAGS_IGNORE_STATUSCODE)) {
+					finishResponse(http.getErrorStream());
+					throw new TransientException(new XMLRPCException("Invalid status code '"
+							+ statusCode + "' returned from server."));
+				}
+
 				InputStream istream;
 
 				// If status code was 401 or 403 throw exception or if appropriate
@@ -685,6 +1087,7 @@ public class XMLRPCClient {
 						// error code, use getErrorStream instead
 						istream = http.getErrorStream();
 					} else {
+						finishResponse(http.getErrorStream());
 						throw new XMLRPCException("Invalid status code '"
 								+ statusCode + "' returned from server.");
 					}
@@ -693,55 +1096,91 @@ public class XMLRPCClient {
 					istream = http.getInputStream();
 				}
 
-				// If status code is 301 Moved Permanently or 302 Found ...
-				if(statusCode == HttpURLConnection.HTTP_MOVED_PERM
-						|| statusCode == HttpURLConnection.HTTP_MOVED_TEMP) {
-					// ... do either a foward
-					if(isFlagSet(FLAGS_FORWARD)) {
-						boolean temporaryForward = (statusCode == HttpURLConnection.HTTP_MOVED_TEMP);
-
-						// Get new location from header field.
-						String newLocation = http.getHeaderField("Location");
-						// Try getting header in lower case, if no header has been found
-						if(newLocation == null || newLocation.length() <= 0)
-							newLocation = http.getHeaderField("location");
-
-						// Set new location, disconnect current connection and request to new location.
-						URL oldURL = url;
-						url = new URL(newLocation);
-						http.disconnect();
-						Object forwardedResult = call(methodName, params);
-
-						// In case of temporary forward, restore original URL again for next call.
-						if(temporaryForward) {
-							url = oldURL;
-						}
+				// The response must be read to its end and closed, so that the
+				// connection can be reused for the next call.
+				GZIPInputStream gzip = null;
+				try {
 
-						return forwardedResult;
+					// If status code is 301 Moved Permanently or 302 Found ...
+					if(statusCode == HttpURLConnection.HTTP_MOVED_PERM
+							|| statusCode == HttpURLConnection.HTTP_MOVED_TEMP) {
+						// ... do either a foward
+						if(isFlagSet(FLAGS_FORWARD)) {
+							boolean temporaryForward = (statusCode == HttpURLConnection.HTTP_MOVED_TEMP);
+
+							// Get new location from header field.
+							String newLocation = http.getHeaderField("Location");
+							// Try getting header in lower case, if no header has been found
+							if(newLocation == null || newLocation.length() <= 0)
+								newLocation = http.getHeaderField("location");
+
+							// Set new location, release current connection and request to new location.
+							URL oldURL = url;
+							url = new URL(newLocation);
+							finishResponse(istream);
+							istream = null;
+							Object forwardedResult = call(methodName, params);
+
+							// In case of temporary forward, restore original URL again for next call.
+							if(temporaryForward) {
+								url = oldURL;
+							}
 
-					} else {
-						// ... or throw an exception
-						throw new XMLRPCException("The server responded with a http 301 or 302 status "
-								+ "code, but forwarding has not been enabled (FLAGS_FORWARD).");
+							return forwardedResult;
 
+						} else {
+							// ... or throw an exception
+							throw new XMLRPCException("The server responded with a http 301 or 302 status "
+									+ "code, but forwarding has not been enabled (FLAGS_FORWARD).");
+
+						}
 					}
-				}
 
-				if(!isFlagSet(FLAGS_IGNORE_STATUSCODE)
-					&& statusCode != HttpURLConnection.HTTP_OK) {
-					throw new XMLRPCException("The status code of the http response must be 200.");
-				}
+					if(!isFlagSet(FLAGS_IGNORE_STATUSCODE)
+						&& statusCode != HttpURLConnection.HTTP_OK) {
+						throw new XMLRPCException("The status code of the http response must be 200.");
+					}
 
-				// Check for strict parameters
-				if(isFlagSet(FLAGS_STRICT)) {
-					if(!http.getContentType().startsWith(TYPE_XML)) {
-						throw new XMLRPCException("The Content-Type of the response must be text/xml.");
+					// Check for strict parameters
+					if(isFlagSet(FLAGS_STRICT)) {
+						if(!http.getContentType().startsWith(TYPE_XML)) {
+							throw new XMLRPCException("The Content-Type of the response must be text/xml.");
+						}
+					}
+
+					cookieManager.readCookies(http);
+
+					// The parsers close the stream they have read, which must
+					// not close the response before it is read to its end.
+					InputStream response = istream == null ? null : new FilterInputStream(istream) {
+						@Override
+						public void close() {
+						}
+					};
+
+					// Decompress the response while it is parsed
+					if(response != null && ENCODING_GZIP.equalsIgnoreCase(http.getContentEncoding())) {
+						gzip = new GZIPInputStream(response);
+						response = gzip;
 					}
-				}
 
-				cookieManager.readCookies(http);
+					if(visitor != null || isFlagSet(FLAGS_STREAMING_PARSER)) {
+						return streamingResponseParser.parse(response, visitor, isFlagSet(FLAGS_DEBUG));
+					}
+					return responseParser.parse(response, isFlagSet(FLAGS_DEBUG));
 
-				return responseParser.parse(istream, isFlagSet(FLAGS_DEBUG));
+				} finally {
+					// The gzip stream ends before the last chunk of the
+					// response, so the response itself is read to its end.
+					finishResponse(istream);
+					if(gzip != null) {
+						try {
+							gzip.close();
+						} catch(IOException ex) {
+							// Ignore this
+						}
+					}
+				}
 
 			} catch(SocketTimeoutException ex) {
 				throw new XMLRPCTimeoutException("The XMLRPC call timed out.");
@@ -750,6 +1189,11 @@ public class XMLRPCClient {
 				// So only throw an exception if the thread hasnt been canceled
 				// or if the thred has not been started in background.
 				if(!canceled || threadId <= 0) {
+					// The request never reached the server, so it can be sent again.
+					if(ex instanceof ConnectException || ex instanceof NoRouteToHostException
+							|| ex instanceof UnknownHostException) {
+						throw new TransientException(new XMLRPCException(ex));
+					}
 					throw new XMLRPCException(ex);
 				} else {
 					throw new CancelException();
@@ -758,6 +1202,30 @@ public class XMLRPCClient {
 
 		}
 
+		/**
+		 * Read the rest of a response and close it, so the connection it has
+		 * been read from can be reused. Errors are ignored, the connection
+		 * just won't be reused then.
+		 *
+		 * @param istream The response stream or null.
+		 */
+		private void finishResponse(InputStream istream) {
+
+			if(istream == null)
+				return;
+
+			try {
+				byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+				while(istream.read(buffer) != -1) {
+					// Skip the rest of the response
+				}
+				istream.close();
+			} catch(IOException ex) {
+				// Ignore this
+			}
+
+		}
+
 		/**
 		 * Verifies the given URLConnection to be a valid HTTP or HTTPS connection.
 		 * If the SSL ignoring flags are set, the method will ignore SSL warnings.
@@ -815,4 +1283,24 @@ public class XMLRPCClient {
 
 	private class CancelException extends RuntimeException { }
 
+	/**
+	 * Thrown when a call failed, but might succeed if it is sent again.
+	 */
+	private class TransientException extends Exception {
+
+		private final XMLRPCException error;
+
+		TransientException(XMLRPCException error) {
+			this.error = error;
+		}
+
+		/**
+		 * @return The error to report if the call isn't sent again.
+		 */
+		XMLRPCException getError() {
+			return error;
+		}
+
+	}
+
 }
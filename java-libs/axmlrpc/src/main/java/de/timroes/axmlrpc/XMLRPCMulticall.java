@@ -0,0 +1,104 @@
+package de.timroes.axmlrpc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An XMLRPCMulticall is a batch of independent calls, which an
+ * {@link XMLRPCClient} sends as a single {@code system.multicall} call, so
+ * that they reach the server in one HTTP request. The server must support
+ * the multicall extension described under:
+ * http://mirrors.talideon.com/articles/multicall.html
+ *
+ * <pre>
+ * XMLRPCMulticall multicall = new XMLRPCMulticall();
+ * multicall.add("add", 1, 2);
+ * multicall.add("subtract", 3, 2);
+ * Object[] results = client.call(multicall);
+ * </pre>
+ *
+ * The result of every call is at the index returned by {@link #add(java.lang.String, java.lang.Object[])}.
+ * A call which failed on the server doesn't fail the other ones, its result
+ * is the {@link XMLRPCServerException} returned by the server.
+ */
+public class XMLRPCMulticall {
+
+	static final String MULTICALL = "system.multicall";
+
+	private static final String METHOD_NAME = "methodName";
+	private static final String PARAMS = "params";
+	private static final String FAULT_CODE = "faultCode";
+	private static final String FAULT_STRING = "faultString";
+
+	private final List<Map<String,Object>> calls = new ArrayList<Map<String,Object>>();
+
+	/**
+	 * Add a call to the batch.
+	 *
+	 * @param method A method name to call.
+	 * @param params An array of parameters for the method.
+	 * @return The index of the result of this call.
+	 */
+	public int add(String method, Object... params) {
+		Map<String,Object> call = new HashMap<String,Object>();
+		call.put(METHOD_NAME, method);
+		call.put(PARAMS, params != null ? params : new Object[0]);
+		calls.add(call);
+		return calls.size() - 1;
+	}
+
+	/**
+	 * Returns the number of calls in the batch.
+	 *
+	 * @return The number of calls.
+	 */
+	public int size() {
+		return calls.size();
+	}
+
+	/**
+	 * Returns the parameter of the multicall, a snapshot of the calls
+	 * added until now.
+	 *
+	 * @return The array of calls to send.
+	 */
+	Object[] getCalls() {
+		return calls.toArray();
+	}
+
+	/**
+	 * Unpacks the response of a multicall.
+	 *
+	 * @param response The response of the server.
+	 * @param count The number of calls that have been sent.
+	 * @return The result of every call.
+	 * @throws XMLRPCException Will be thrown if the response isn't a valid
+	 *		multicall response.
+	 */
+	static Object[] getResults(Object response, int count) throws XMLRPCException {
+
+		if(!(response instanceof Object[]) || ((Object[])response).length != count) {
+			throw new XMLRPCException("The multicall response must contain one result per call.");
+		}
+
+		Object[] results = (Object[])response;
+		for(int i = 0; i < results.length; i++) {
+			if(results[i] instanceof Object[] && ((Object[])results[i]).length == 1) {
+				// A successful call returns its result wrapped in an array
+				results[i] = ((Object[])results[i])[0];
+			} else if(results[i] instanceof Map) {
+				Map<?,?> fault = (Map<?,?>)results[i];
+				Object code = fault.get(FAULT_CODE);
+				results[i] = new XMLRPCServerException((String)fault.get(FAULT_STRING),
+						code instanceof Integer ? (Integer)code : 0);
+			} else {
+				throw new XMLRPCException("Invalid result of call " + i + " in multicall response.");
+			}
+		}
+		return results;
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package de.timroes.axmlrpc;
+
+import java.util.Map;
+
+/**
+ * The XMLRPCStructVisitor interface can be implemented to process the structs
+ * of a large response while it is still being parsed.
+ * It is called for every struct of the array in the {@code data} member of
+ * the struct returned by the server, as soon as the struct has been parsed.
+ * Only responses parsed by the streaming parser are visited, see
+ * {@link XMLRPCClient#FLAGS_STREAMING_PARSER}.
+ */
+public interface XMLRPCStructVisitor {
+
+	/**
+	 * This callback is called for every struct of the data array, in the
+	 * order of the response.
+	 *
+	 * @param index The index of the struct within the data array.
+	 * @param struct The parsed struct.
+	 * @return Whether the struct should be kept in the data array of the
+	 *		returned object. Structs that are not kept can be garbage collected
+	 *		right after this call.
+	 */
+	public boolean onStruct(int index, Map<String,Object> struct);
+
+}
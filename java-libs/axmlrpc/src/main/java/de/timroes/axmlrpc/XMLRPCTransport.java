@@ -0,0 +1,29 @@
+package de.timroes.axmlrpc;
+
+import java.io.IOException;
+import java.net.Proxy;
+import java.net.URL;
+import java.net.URLConnection;
+
+/**
+ * The XMLRPCTransport interface can be implemented to change how an
+ * {@link XMLRPCClient} opens its HTTP connections, e.g. to use another HTTP
+ * stack with its own connection pool.
+ * The default transport uses {@link URL#openConnection()}, whose connections
+ * are kept alive and reused between calls to the same server.
+ */
+public interface XMLRPCTransport {
+
+	/**
+	 * Opens a connection to the given URL for a single call. The returned
+	 * connection must be a {@link java.net.HttpURLConnection} that isn't
+	 * connected yet, the client sets it up and sends the request.
+	 *
+	 * @param url The URL to send the request to.
+	 * @param proxy The proxy to use or null to connect directly.
+	 * @return The connection for the call.
+	 * @throws IOException Will be thrown if the connection can't be opened.
+	 */
+	public URLConnection openConnection(URL url, Proxy proxy) throws IOException;
+
+}
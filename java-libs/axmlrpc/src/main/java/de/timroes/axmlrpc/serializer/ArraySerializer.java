@@ -4,6 +4,8 @@ import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLRPCRuntimeException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -81,4 +83,22 @@ public class ArraySerializer implements Serializer {
 
 	}
 
+	public void serialize(Object object, XmlStreamWriter writer) throws XMLRPCException, IOException {
+		Iterable<?> iter;
+		if ( object instanceof Iterable<?>){
+			iter = (Iterable<?>)object;
+		} else {
+			iter = Arrays.asList((Object[]) object);
+		}
+		writer.startElement(SerializerHandler.TYPE_ARRAY);
+		writer.startElement(ARRAY_DATA);
+		for(Object obj : iter) {
+			writer.startElement(ARRAY_VALUE);
+			SerializerHandler.getDefault().serialize(obj, writer);
+			writer.endElement();
+		}
+		writer.endElement();
+		writer.endElement();
+	}
+
 }
@@ -3,17 +3,102 @@ package de.timroes.axmlrpc.serializer;
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
 import de.timroes.base64.Base64;
+import de.timroes.base64.Base64DecodingWriter;
+import de.timroes.base64.Base64OutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
 import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
 /**
  *
  * @author Tim Roes
  */
-public class Base64Serializer implements Serializer {
+public class Base64Serializer implements Serializer, StreamingDeserializer {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final boolean gunzip;
+
+	/**
+	 * @param gunzip Whether the values are gzip compressed and are
+	 *		deserialized to their decompressed bytes.
+	 */
+	public Base64Serializer(boolean gunzip) {
+		this.gunzip = gunzip;
+	}
 
 	public Object deserialize(Element content) throws XMLRPCException {
-		return Base64.decode(XMLUtil.getOnlyTextContent(content.getChildNodes()));
+		// The text nodes are decoded one after the other, without joining them
+		Writer writer = startContent();
+		NodeList nodes = content.getChildNodes();
+		try {
+			for(int i = 0; i < nodes.getLength(); i++) {
+				Node n = nodes.item(i);
+
+				// Skip comments inside text tag.
+				if(n.getNodeType() == Node.COMMENT_NODE) {
+					continue;
+				}
+
+				if(n.getNodeType() != Node.TEXT_NODE) {
+					throw new XMLRPCException("Element must contain only text elements.");
+				}
+
+				writer.write(n.getNodeValue());
+			}
+		} catch(IOException ex) {
+			throw new XMLRPCException("The base64 encoding is invalid.", ex);
+		}
+		return endContent(writer);
+	}
+
+	public Object deserialize(String content) throws XMLRPCException {
+		Writer writer = startContent();
+		try {
+			writer.write(content);
+		} catch(IOException ex) {
+			throw new XMLRPCException("The base64 encoding is invalid.", ex);
+		}
+		return endContent(writer);
+	}
+
+	public Writer startContent() {
+		return new Content();
+	}
+
+	public Object endContent(Writer content) throws XMLRPCException {
+		Content decoded = (Content)content;
+		try {
+			decoded.close();
+		} catch(IOException ex) {
+			throw new XMLRPCException("The base64 encoding is invalid.", ex);
+		}
+		if(!gunzip) {
+			return decoded.bytes.toByteArray();
+		}
+
+		// Decompress the decoded bytes without copying them first
+		try {
+			InputStream in = new GZIPInputStream(decoded.bytes.getInputStream(), BUFFER_SIZE);
+			ByteArrayOutputStream out = new ByteArrayOutputStream(decoded.bytes.size() * 4);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			in.close();
+			return out.toByteArray();
+		} catch(IOException ex) {
+			throw new XMLRPCException("The base64 value isn't gzip compressed.", ex);
+		}
 	}
 
 	public XmlElement serialize(Object object) {
@@ -21,4 +106,50 @@ public class Base64Serializer implements Serializer {
 				Base64.encode((Byte[])object));
 	}
 
-}
\ No newline at end of file
+	public void serialize(Object object, XmlStreamWriter writer) throws IOException {
+		// The encoding is written straight into the request, without building
+		// a string first. Byte arrays are encoded without boxing every byte.
+		writer.startElement(SerializerHandler.TYPE_BASE64);
+		if(object instanceof byte[]) {
+			Base64.encode((byte[])object, writer.getContentWriter());
+		} else {
+			Base64OutputStream out = new Base64OutputStream(writer.getContentWriter());
+			for(Byte b : (Byte[])object) {
+				out.write(b);
+			}
+			out.close();
+		}
+		writer.endElement();
+	}
+
+	/**
+	 * The writer for the content of a base64 element, which keeps the
+	 * decoded bytes.
+	 */
+	private static class Content extends Base64DecodingWriter {
+
+		final Buffer bytes;
+
+		Content() {
+			this(new Buffer());
+		}
+
+		private Content(Buffer bytes) {
+			super(bytes);
+			this.bytes = bytes;
+		}
+
+	}
+
+	/**
+	 * A byte array output stream, whose bytes can be read without copying them.
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+
+		InputStream getInputStream() {
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+
+	}
+
+}
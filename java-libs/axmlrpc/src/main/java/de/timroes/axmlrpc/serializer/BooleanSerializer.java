@@ -3,17 +3,22 @@ package de.timroes.axmlrpc.serializer;
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import org.w3c.dom.Element;
 
 /**
  *
  * @author Tim Roes
  */
-public class BooleanSerializer implements Serializer {
+public class BooleanSerializer implements Serializer, ScalarDeserializer {
 
 	public Object deserialize(Element content) throws XMLRPCException {
-		return (XMLUtil.getOnlyTextContent(content.getChildNodes()).equals("1"))
-				? Boolean.TRUE : Boolean.FALSE;
+		return deserialize(XMLUtil.getOnlyTextContent(content.getChildNodes()));
+	}
+
+	public Object deserialize(String content) throws XMLRPCException {
+		return content.equals("1") ? Boolean.TRUE : Boolean.FALSE;
 	}
 
 	public XmlElement serialize(Object object) {
@@ -21,4 +26,9 @@ public class BooleanSerializer implements Serializer {
 				((Boolean)object == true) ? "1" : "0");
 	}
 
+	public void serialize(Object object, XmlStreamWriter writer) throws IOException {
+		writer.writeElement(SerializerHandler.TYPE_BOOLEAN,
+				((Boolean)object == true) ? "1" : "0");
+	}
+
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package de.timroes.axmlrpc.serializer;
 
 import org.w3c.dom.Element;
 
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -9,12 +10,13 @@ import java.text.SimpleDateFormat;
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
 
 /**
  *
  * @author timroes
  */
-public class DateTimeSerializer implements Serializer {
+public class DateTimeSerializer implements Serializer, ScalarDeserializer {
 
 	private static final String DATETIME_FORMAT = "yyyyMMdd'T'HHmmss";
 	private static final SimpleDateFormat DATE_FORMATER = new SimpleDateFormat(DATETIME_FORMAT);
@@ -39,4 +41,10 @@ public class DateTimeSerializer implements Serializer {
 				DATE_FORMATER.format(object));
 	}
 
+	@Override
+	public void serialize(Object object, XmlStreamWriter writer) throws IOException {
+		writer.writeElement(SerializerHandler.TYPE_DATETIME,
+				DATE_FORMATER.format(object));
+	}
+
 }
@@ -3,6 +3,8 @@ package de.timroes.axmlrpc.serializer;
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import java.math.BigDecimal;
 import org.w3c.dom.Element;
 
@@ -11,10 +13,14 @@ import org.w3c.dom.Element;
  * 
  * @author Tim Roes
  */
-public class DoubleSerializer implements Serializer {
+public class DoubleSerializer implements Serializer, ScalarDeserializer {
 
 	public Object deserialize(Element content) throws XMLRPCException {
-		return Double.valueOf(XMLUtil.getOnlyTextContent(content.getChildNodes()));
+		return deserialize(XMLUtil.getOnlyTextContent(content.getChildNodes()));
+	}
+
+	public Object deserialize(String content) throws XMLRPCException {
+		return Double.valueOf(content);
 	}
 
 	public XmlElement serialize(Object object) {
@@ -24,4 +30,9 @@ public class DoubleSerializer implements Serializer {
 		return XMLUtil.makeXmlTag(SerializerHandler.TYPE_DOUBLE, bd.toPlainString());
 	}
 
+	public void serialize(Object object, XmlStreamWriter writer) throws IOException {
+		BigDecimal bd = BigDecimal.valueOf(((Number)object).doubleValue());
+		writer.writeElement(SerializerHandler.TYPE_DOUBLE, bd.toPlainString());
+	}
+
 }
@@ -0,0 +1,22 @@
+package de.timroes.axmlrpc.serializer;
+
+import de.timroes.axmlrpc.XMLRPCException;
+
+/**
+ * A ScalarDeserializer deserializes the text content of a type element
+ * that doesn't contain other elements. It is used by the streaming response
+ * parser, which never builds the element itself.
+ */
+public interface ScalarDeserializer {
+
+	/**
+	 * This method takes the text content of a type element and deserializes
+	 * it to an java object.
+	 *
+	 * @param content The text content of the type element.
+	 * @return The deserialized object.
+	 * @throws XMLRPCException Will be thrown whenever the content can't be deserialized.
+	 */
+	public Object deserialize(String content) throws XMLRPCException;
+
+}
@@ -2,6 +2,8 @@ package de.timroes.axmlrpc.serializer;
 
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import org.w3c.dom.Element;
 
 /**
@@ -31,4 +33,17 @@ public interface Serializer {
 	 */
 	public XmlElement serialize(Object object);
 
+	/**
+	 * This method takes an object and writes its representation with the
+	 * right xml type tag straight to the writer, without building an
+	 * XmlElement tree first. The written element must be useable within a
+	 * value tag.
+	 *
+	 * @param object The object that should be serialized.
+	 * @param writer The writer of the xml document.
+	 * @throws XMLRPCException Will be thrown if a nested object cannot be serialized.
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void serialize(Object object, XmlStreamWriter writer) throws XMLRPCException, IOException;
+
 }
\ No newline at end of file
@@ -5,6 +5,8 @@ import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLRPCRuntimeException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Calendar;
 import java.util.Date;
@@ -68,7 +70,7 @@ public class SerializerHandler {
 	private DoubleSerializer floating = new DoubleSerializer();
 	private DateTimeSerializer datetime = new DateTimeSerializer();
 	private ArraySerializer array = new ArraySerializer();
-	private Base64Serializer base64 = new Base64Serializer();
+	private Base64Serializer base64;
 	private NullSerializer nil = new NullSerializer();
 	
 	private int flags;
@@ -85,6 +87,7 @@ public class SerializerHandler {
 			(flags & XMLRPCClient.FLAGS_NO_STRING_ENCODE) == 0,
 			(flags & XMLRPCClient.FLAGS_NO_STRING_DECODE) == 0
 		);
+		base64 = new Base64Serializer((flags & XMLRPCClient.FLAGS_GUNZIP_BASE64) != 0);
 	}
 
 	/**
@@ -114,8 +117,6 @@ public class SerializerHandler {
 		// Grep type element from inside value element
 		element = XMLUtil.getOnlyChildElement(element.getChildNodes());
 
-		Serializer s = null;
-
 		String type;
 
 		// If FLAGS_IGNORE_NAMESPACE has been set, only use local name.
@@ -125,6 +126,50 @@ public class SerializerHandler {
 			type = element.getNodeName();
 		}
 
+		return getDeserializer(type).deserialize(element);
+
+	}
+
+	/**
+	 * Returns the deserializer for the text content of a type element.
+	 * Values without a type element are strings, if FLAGS_DEFAULT_TYPE_STRING
+	 * has been set.
+	 *
+	 * @param type The name of the type element or null if the value element
+	 *		doesn't contain a type element.
+	 * @return The deserializer for the type.
+	 * @throws XMLRPCException Will be thrown if the type is unknown, not allowed
+	 *		by the flags or not a scalar type (array or struct).
+	 */
+	public ScalarDeserializer getScalarDeserializer(String type) throws XMLRPCException {
+
+		if(type == null) {
+			if((flags & XMLRPCClient.FLAGS_DEFAULT_TYPE_STRING) != 0) {
+				return string;
+			} else {
+				throw new XMLRPCException("Missing type element inside of value element.");
+			}
+		}
+
+		Serializer s = getDeserializer(type);
+		if(!(s instanceof ScalarDeserializer)) {
+			throw new XMLRPCException("The type '" + type + "' is not a scalar type.");
+		}
+		return (ScalarDeserializer)s;
+
+	}
+
+	/**
+	 * Returns the serializer, which deserializes the given type element.
+	 *
+	 * @param type The name of the type element.
+	 * @return The serializer for the type.
+	 * @throws XMLRPCException Will be thrown if the type is unknown or not allowed by the flags.
+	 */
+	private Serializer getDeserializer(String type) throws XMLRPCException {
+
+		Serializer s = null;
+
 		if((flags & XMLRPCClient.FLAGS_NIL) != 0 && TYPE_NULL.equals(type)) {
 			s = nil;
 		} else if(TYPE_STRING.equals(type)) {
@@ -154,7 +199,7 @@ public class SerializerHandler {
 			throw new XMLRPCException("No deserializer found for type '" + type + "'.");
 		}
 
-		return s.deserialize(element);
+		return s;
 
 	}
 
@@ -169,6 +214,55 @@ public class SerializerHandler {
 	 */
 	public XmlElement serialize(Object object) throws XMLRPCException {
 
+		Serializer s = getSerializer(object);
+
+		if(object instanceof Calendar) {
+			object = ((Calendar)object).getTime();
+		} else if(object instanceof byte[]) {
+			byte[] old = (byte[])object;
+			Byte[] boxed = new Byte[old.length];
+			for(int i = 0; i < boxed.length; i++) {
+				boxed[i] = new Byte(old[i]);
+			}
+			object = boxed;
+		}
+
+		return s.serialize(object);
+
+	}
+
+	/**
+	 * Serialize an object and write its representation as an xml element
+	 * straight to the writer, without building an XmlElement tree.
+	 * The xml element will be the type element for the use within a value tag.
+	 *
+	 * @param object The object that should be serialized.
+	 * @param writer The writer of the xml document.
+	 * @throws XMLRPCException Will be thrown, if an error occurs (e.g. the object
+	 * 		cannot be serialized to an xml element.
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void serialize(Object object, XmlStreamWriter writer) throws XMLRPCException, IOException {
+
+		Serializer s = getSerializer(object);
+
+		if(object instanceof Calendar) {
+			object = ((Calendar)object).getTime();
+		}
+
+		s.serialize(object, writer);
+
+	}
+
+	/**
+	 * Returns the serializer for the type of the given object.
+	 *
+	 * @param object The object that should be serialized.
+	 * @return The serializer for the object.
+	 * @throws XMLRPCException Will be thrown, if no serializer exists for the object.
+	 */
+	private Serializer getSerializer(Object object) throws XMLRPCException {
+
 		Serializer s = null;
 
 		if((flags & XMLRPCClient.FLAGS_NIL) != 0 && object == null) {
@@ -200,19 +294,10 @@ public class SerializerHandler {
 		} else if(object instanceof Date) {
 			s = datetime;
 		} else if(object instanceof Calendar) {
-			object = ((Calendar)object).getTime();
 			s = datetime;
 		} else if (object instanceof Map) {
 			s = struct;
-		} else if(object instanceof byte[]) {
-			byte[] old = (byte[])object;
-			Byte[] boxed = new Byte[old.length];
-			for(int i = 0; i < boxed.length; i++) {
-				boxed[i] = new Byte(old[i]);
-			}
-			object = boxed;
-			s = base64;
-		} else if(object instanceof Byte[]) {
+		} else if(object instanceof byte[] || object instanceof Byte[]) {
 			s = base64;
 		} else if(object instanceof Iterable<?> || object instanceof Object[]) {
 			s = array;
@@ -221,7 +306,7 @@ public class SerializerHandler {
 					+ object.getClass().getName() + "'.");
 		}
 
-		return s.serialize(object);
+		return s;
 
 	}
 
@@ -0,0 +1,30 @@
+package de.timroes.axmlrpc.serializer;
+
+import de.timroes.axmlrpc.XMLRPCException;
+import java.io.Writer;
+
+/**
+ * A StreamingDeserializer deserializes the text content of a type element
+ * while it is parsed, so large values are never collected to a string. It
+ * is used by the streaming response parser instead of the
+ * {@link ScalarDeserializer} methods.
+ */
+public interface StreamingDeserializer extends ScalarDeserializer {
+
+	/**
+	 * Start the deserialization of the text content of a type element.
+	 *
+	 * @return The writer, which the text content must be written to.
+	 */
+	public Writer startContent();
+
+	/**
+	 * End the deserialization of the text content of a type element.
+	 *
+	 * @param content The writer returned by {@link #startContent()}.
+	 * @return The deserialized object.
+	 * @throws XMLRPCException Will be thrown whenever the content can't be deserialized.
+	 */
+	public Object endContent(Writer content) throws XMLRPCException;
+
+}
@@ -3,13 +3,15 @@ package de.timroes.axmlrpc.serializer;
 import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import org.w3c.dom.Element;
 
 /**
  *
  * @author Tim Roes
  */
-public class StringSerializer implements Serializer {
+public class StringSerializer implements Serializer, ScalarDeserializer {
 
 	private boolean decodeStrings;
 	private boolean encodeStrings;
@@ -20,7 +22,10 @@ public class StringSerializer implements Serializer {
 	}
 
 	public Object deserialize(Element content) throws XMLRPCException {
-		String text = XMLUtil.getOnlyTextContent(content.getChildNodes());
+		return deserialize(XMLUtil.getOnlyTextContent(content.getChildNodes()));
+	}
+
+	public Object deserialize(String text) throws XMLRPCException {
 		if(decodeStrings) {
 			text = text.replaceAll("&lt;", "<").replaceAll("&amp;", "&");
 		}
@@ -35,4 +40,12 @@ public class StringSerializer implements Serializer {
 		return XMLUtil.makeXmlTag(SerializerHandler.TYPE_STRING, content);
 	}
 
+	public void serialize(Object object, XmlStreamWriter writer) throws IOException {
+		String content = object.toString();
+		if(encodeStrings) {
+			content = content.replaceAll("&", "&amp;").replaceAll("<", "&lt;");
+		}
+		writer.writeElement(SerializerHandler.TYPE_STRING, content);
+	}
+
 }
\ No newline at end of file
@@ -4,6 +4,8 @@ import de.timroes.axmlrpc.XMLRPCException;
 import de.timroes.axmlrpc.XMLRPCRuntimeException;
 import de.timroes.axmlrpc.XMLUtil;
 import de.timroes.axmlrpc.xmlcreator.XmlElement;
+import de.timroes.axmlrpc.xmlcreator.XmlStreamWriter;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import org.w3c.dom.Element;
@@ -109,4 +111,21 @@ public class StructSerializer implements Serializer {
 		return struct;
 	}
 
+	public void serialize(Object object, XmlStreamWriter writer) throws XMLRPCException, IOException {
+		// We can safely cast here, this Serializer should only be called when
+		// the parameter is a map.
+		@SuppressWarnings("unchecked")
+		Map<String,Object> map = (Map<String,Object>)object;
+		writer.startElement(SerializerHandler.TYPE_STRUCT);
+		for(Map.Entry<String,Object> member : map.entrySet()) {
+			writer.startElement(STRUCT_MEMBER);
+			writer.writeElement(STRUCT_NAME, member.getKey());
+			writer.startElement(STRUCT_VALUE);
+			SerializerHandler.getDefault().serialize(member.getValue(), writer);
+			writer.endElement();
+			writer.endElement();
+		}
+		writer.endElement();
+	}
+
 }
\ No newline at end of file
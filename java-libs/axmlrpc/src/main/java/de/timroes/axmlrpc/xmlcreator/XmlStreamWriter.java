@@ -0,0 +1,141 @@
+package de.timroes.axmlrpc.xmlcreator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes an xml document straight to a {@link Writer}, without building a
+ * tree of {@link XmlElement XmlElements} first. The output is the same as
+ * the one of {@link SimpleXMLCreator} for the same elements. No attributes
+ * are supported.
+ */
+public class XmlStreamWriter {
+
+	private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n";
+
+	private final Writer out;
+	private final List<String> openElements = new ArrayList<String>();
+
+	/**
+	 * Whether the start tag of the last opened element still has to be
+	 * written. An element without children is written as an empty tag.
+	 */
+	private boolean pendingStart;
+
+	private final Writer contentWriter = new Writer() {
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			if(len > 0) {
+				writePendingStart();
+				out.write(cbuf, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			out.flush();
+		}
+
+		@Override
+		public void close() {
+			// The element is closed by endElement()
+		}
+
+	};
+
+	/**
+	 * Create a new xml writer.
+	 *
+	 * @param out The writer to write the xml document to.
+	 */
+	public XmlStreamWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Write the xml declaration, which must start the document.
+	 *
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void startDocument() throws IOException {
+		out.write(XML_DECLARATION);
+	}
+
+	/**
+	 * Open an element, whose children will be written next.
+	 *
+	 * @param name The name of the xml element.
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void startElement(String name) throws IOException {
+		writePendingStart();
+		openElements.add(name);
+		pendingStart = true;
+	}
+
+	/**
+	 * Close the last opened element.
+	 *
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void endElement() throws IOException {
+		String name = openElements.remove(openElements.size() - 1);
+		if(pendingStart) {
+			pendingStart = false;
+			out.append("\n<").append(name).append("/>\n");
+		} else {
+			out.append("</").append(name).append(">\n");
+		}
+	}
+
+	/**
+	 * Write an element with a text content. The content must already be
+	 * escaped.
+	 *
+	 * @param name The name of the xml element.
+	 * @param content Content of the xml element.
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public void writeElement(String name, String content) throws IOException {
+		writePendingStart();
+		if(content != null && content.length() > 0) {
+			out.append("\n<").append(name).append(">")
+					.append(content)
+					.append("</").append(name).append(">\n");
+		} else {
+			out.append("\n<").append(name).append("/>\n");
+		}
+	}
+
+	/**
+	 * Returns a writer for the text content of the last opened element, to
+	 * write a large content without building a string first. The content
+	 * must already be escaped and the element is closed with
+	 * {@link #endElement()}.
+	 *
+	 * @return The writer for the content.
+	 */
+	public Writer getContentWriter() {
+		return contentWriter;
+	}
+
+	/**
+	 * Flush the underlying writer.
+	 *
+	 * @throws IOException Will be thrown if flushing fails.
+	 */
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	private void writePendingStart() throws IOException {
+		if(pendingStart) {
+			pendingStart = false;
+			out.append("\n<").append(openElements.get(openElements.size() - 1)).append(">");
+		}
+	}
+
+}
@@ -1,62 +1,123 @@
 package de.timroes.base64;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.Writer;
 
 /**
  * A Base64 en/decoder. You can use it to encode and decode strings and byte arrays.
+ * Use {@link Base64InputStream} and {@link Base64OutputStream} to en/decode streams.
  *
  * @author Tim Roes
  */
 public class Base64 {
 
-	private static final char[] code = ("=ABCDEFGHIJKLMNOPQRSTUVWXYZ"
+	static final char[] ALPHABET = ("ABCDEFGHIJKLMNOPQRSTUVWXYZ"
 			+ "abcdefghijklmnopqrstuvwxyz0123456789+/").toCharArray();
 
-	private static final HashMap<Character,Byte> map = new HashMap<Character, Byte>();
+	static final char PAD = '=';
+
+	/**
+	 * Number of characters after which the encoded output is broken into lines.
+	 */
+	static final int LINE_LENGTH = 72;
+
+	/**
+	 * Values of {@link #DECODE} for characters, which aren't in the alphabet.
+	 */
+	static final byte INVALID = -1;
+	static final byte WHITESPACE = -2;
+	static final byte PADDING = -3;
+
+	/**
+	 * The decoded value of every ASCII character.
+	 */
+	static final byte[] DECODE = new byte[128];
 
 	static {
-		for(int i = 0; i < code.length; i++) {
-			map.put(code[i], (byte)i);
+		for(int i = 0; i < DECODE.length; i++) {
+			DECODE[i] = INVALID;
+		}
+		for(int i = 0; i < ALPHABET.length; i++) {
+			DECODE[ALPHABET[i]] = (byte)i;
 		}
+		DECODE[PAD] = PADDING;
+		DECODE['\r'] = WHITESPACE;
+		DECODE['\n'] = WHITESPACE;
+		DECODE['\t'] = WHITESPACE;
+		DECODE[' '] = WHITESPACE;
 	}
 
 	/**
-	 * Decode a base64 encoded string to a byte array.
+	 * Returns the decoded value of a character.
+	 *
+	 * @param c A character of a base64 encoding.
+	 * @return The value of the character, or one of {@link #INVALID},
+	 *		{@link #WHITESPACE} or {@link #PADDING}.
+	 */
+	static int valueOf(int c) {
+		return c >= 0 && c < DECODE.length ? DECODE[c] : INVALID;
+	}
+
+	/**
+	 * Decode a base64 encoded string to a byte array. Line breaks and other
+	 * white spaces within the string are ignored.
 	 *
 	 * @param in A string representing a base64 encoding.
 	 * @return The decoded byte array.
 	 */
 	public static byte[] decode(String in) {
 
-		in = in.replaceAll("\\r|\\n","");
-		if(in.length() % 4 != 0) {
-			throw new IllegalArgumentException("The length of the input string must be a multiple of four.");
+		// Validate the input and compute the exact length of the output
+		int length = 0;
+		int padding = 0;
+		for(int i = 0; i < in.length(); i++) {
+			int value = valueOf(in.charAt(i));
+			if(value == WHITESPACE) {
+				continue;
+			}
+			if(value == INVALID || (value >= 0 && padding > 0)) {
+				throw new IllegalArgumentException("The argument contains illegal characters.");
+			}
+			if(value == PADDING) {
+				padding++;
+			}
+			length++;
 		}
 
-		if(!in.matches("^[A-Za-z0-9+/]*[=]{0,3}$")) {
+		if(length % 4 != 0) {
+			throw new IllegalArgumentException("The length of the input string must be a multiple of four.");
+		}
+		if(padding > 3) {
 			throw new IllegalArgumentException("The argument contains illegal characters.");
 		}
 
-		byte[] out = new byte[(in.length()*3)/4];
-
-		char[] input = in.toCharArray();
+		byte[] out = new byte[length / 4 * 3 - padding];
 
 		int outi = 0;
-		int b1, b2, b3, b4;
-		for(int i = 0; i < input.length; i+=4) {
-			b1 = (map.get(input[i]) - 1);
-			b2 = (map.get(input[i+1]) - 1);
-			b3 = (map.get(input[i+2]) - 1);
-			b4 = (map.get(input[i+3]) - 1);
-			out[outi++] = (byte)(b1 << 2 | b2 >>> 4);
-			out[outi++] = (byte)((b2 & 0x0F) << 4 | b3 >>> 2);
-			out[outi++] = (byte)((b3 & 0x03) << 6 | (b4 & 0x3F));
+		int bits = 0;
+		int count = 0;
+		for(int i = 0; i < in.length(); i++) {
+			int value = valueOf(in.charAt(i));
+			if(value < 0) {
+				continue;
+			}
+			bits = bits << 6 | value;
+			if(++count == 4) {
+				out[outi++] = (byte)(bits >> 16);
+				out[outi++] = (byte)(bits >> 8);
+				out[outi++] = (byte)bits;
+				bits = 0;
+				count = 0;
+			}
 		}
 
-		if(in.endsWith("=")) {
-			byte[] trimmed = new byte[out.length - (in.length() - in.indexOf("="))];
-			System.arraycopy(out, 0, trimmed, 0, trimmed.length);
-			return trimmed;
+		// The last group has been padded
+		if(count == 3 && outi < out.length) {
+			out[outi++] = (byte)(bits >> 10);
+			if(outi < out.length)
+				out[outi++] = (byte)(bits >> 2);
+		} else if(count == 2 && outi < out.length) {
+			out[outi++] = (byte)(bits >> 4);
 		}
 
 		return out;
@@ -99,19 +160,84 @@ public class Base64 {
 
 	/**
 	 * Encode a byte array and return the encoded string.
+	 * The encoded string is broken into lines of {@value #LINE_LENGTH} characters.
 	 *
 	 * @param in A string to encode.
 	 * @return The encoded byte array.
 	 */
 	public static String encode(byte[] in) {
-		StringBuilder builder = new StringBuilder(4 * ((in.length+2)/3));
-		byte[] encoded = encodeAsBytes(in);
-		for(int i = 0; i < encoded.length; i++) {
-			builder.append(code[encoded[i]+1]);
-			if(i % 72 == 71)
-				builder.append("\n");
+		int length = 4 * ((in.length + 2) / 3);
+		char[] out = new char[length + length / LINE_LENGTH];
+		int written = encode(in, 0, in.length, out, 0, 0);
+		return new String(out, 0, written);
+	}
+
+	/**
+	 * Encode a byte array and write the encoded string to the given writer,
+	 * without building the whole string first. The output is the same as
+	 * the one of {@link #encode(byte[])}.
+	 *
+	 * @param in A byte array to encode.
+	 * @param writer The writer to write the encoded string to.
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	public static void encode(byte[] in, Writer writer) throws IOException {
+		// Whole lines, so that the line breaks are at the same positions
+		// as if the array had been encoded at once.
+		final int chunk = LINE_LENGTH / 4 * 3 * 16;
+		char[] out = new char[chunk / 3 * 4 + 16];
+		for(int i = 0; i < in.length; i += chunk) {
+			int length = Math.min(chunk, in.length - i);
+			writer.write(out, 0, encode(in, i, length, out, 0, i / 3 * 4));
 		}
-		return builder.toString();
+	}
+
+	/**
+	 * Encode a part of a byte array to characters.
+	 *
+	 * @param in The array to encode.
+	 * @param offset The offset of the first byte to encode.
+	 * @param length The number of bytes to encode, the last group is padded.
+	 * @param out The array to write the characters to.
+	 * @param outOffset The index of the first character to write.
+	 * @param column The number of characters encoded since the beginning of
+	 *		the encoding, to break lines.
+	 * @return The number of written characters.
+	 */
+	static int encode(byte[] in, int offset, int length, char[] out, int outOffset, int column) {
+
+		int outi = outOffset;
+		int end = offset + length;
+		for(int i = offset; i < end; i += 3) {
+			outi = encodeGroup(in, i, Math.min(3, end - i), out, outi);
+			// A line is always made of whole groups
+			column += 4;
+			if(column % LINE_LENGTH == 0)
+				out[outi++] = '\n';
+		}
+		return outi - outOffset;
+
+	}
+
+	/**
+	 * Encode a group of up to three bytes to four characters.
+	 *
+	 * @param in The array to encode.
+	 * @param i The offset of the group.
+	 * @param n The number of bytes in the group, missing bytes are padded.
+	 * @param out The array to write the characters to.
+	 * @param outi The index of the first character to write.
+	 * @return The index after the written characters.
+	 */
+	static int encodeGroup(byte[] in, int i, int n, char[] out, int outi) {
+		int b1 = in[i] & 0xFF;
+		int b2 = n > 1 ? in[i+1] & 0xFF : 0;
+		int b3 = n > 2 ? in[i+2] & 0xFF : 0;
+		out[outi++] = ALPHABET[b1 >>> 2];
+		out[outi++] = ALPHABET[(b1 & 0x03) << 4 | b2 >>> 4];
+		out[outi++] = n > 1 ? ALPHABET[(b2 & 0x0F) << 2 | b3 >>> 6] : PAD;
+		out[outi++] = n > 2 ? ALPHABET[b3 & 0x3F] : PAD;
+		return outi;
 	}
 
 	/**
@@ -136,26 +262,21 @@ public class Base64 {
 
 		// Output string must be 4 * floor((n+2)/3) large
 		byte[] out = new byte[4 * ((inArray.length+2)/3)];
-		// Create padded input array with the next largest length that is a multiple of 3
-		byte[] in = new byte[(inArray.length+2)/3*3];
-		// Copy content form unpadded to padded array
-		System.arraycopy(inArray, 0, in, 0, inArray.length);
 
 		int outi = 0;
-		for(int i = 0; i < in.length; i+=3) {
+		for(int i = 0; i < inArray.length; i+=3) {
 
-			out[outi++] = (byte)((in[i] & 0xFF) >>> 2);
-			out[outi++] = (byte)(((in[i] & 0x03) << 4) | ((in[i+1] & 0xFF) >>> 4));
-			out[outi++] = (byte)(((in[i+1] & 0x0F) << 2) | ((in[i+2] & 0xFF) >>> 6));
-			out[outi++] = (byte)(in[i+2] & 0x3F);
-
-		}
+			int b1 = inArray[i] & 0xFF;
+			int b2 = i + 1 < inArray.length ? inArray[i+1] & 0xFF : 0;
+			int b3 = i + 2 < inArray.length ? inArray[i+2] & 0xFF : 0;
+			out[outi++] = (byte)(b1 >>> 2);
+			out[outi++] = (byte)(((b1 & 0x03) << 4) | (b2 >>> 4));
+			out[outi++] = i + 1 < inArray.length ? (byte)(((b2 & 0x0F) << 2) | (b3 >>> 6)) : -1;
+			out[outi++] = i + 2 < inArray.length ? (byte)(b3 & 0x3F) : -1;
 
-		for(int i = in.length - inArray.length; i > 0; i--) {
-			out[out.length - i] = -1;
 		}
 
 		return out;
 	}
 
-}
\ No newline at end of file
+}
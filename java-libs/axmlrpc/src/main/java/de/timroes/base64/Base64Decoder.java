@@ -0,0 +1,85 @@
+package de.timroes.base64;
+
+import java.io.IOException;
+
+/**
+ * Decodes a base64 encoding, which is given in parts. The bits of a group,
+ * which is split between two parts, are kept until the group is complete.
+ * Line breaks and other white spaces within the encoding are ignored.
+ */
+final class Base64Decoder {
+
+	// The decoded bits of an incomplete group
+	private int bits;
+	private int bitCount;
+	private boolean padded;
+
+	/**
+	 * Returns the size of a byte array, which is large enough for the bytes
+	 * decoded from a number of characters.
+	 *
+	 * @param chars The number of characters.
+	 * @return The size of the byte array.
+	 */
+	static int maxDecodedLength(int chars) {
+		return chars / 4 * 3 + 3;
+	}
+
+	/**
+	 * Decode the next characters of the encoding.
+	 *
+	 * @param chars The characters of the encoding.
+	 * @param off The offset of the first character.
+	 * @param len The number of characters.
+	 * @param bytes The array for the decoded bytes, see {@link #maxDecodedLength(int)}.
+	 * @return The number of decoded bytes.
+	 * @throws IOException Will be thrown if the encoding is invalid.
+	 */
+	int decode(char[] chars, int off, int len, byte[] bytes) throws IOException {
+
+		int count = 0;
+		for(int i = off; i < off + len; i++) {
+			int value = Base64.valueOf(chars[i]);
+			if(value >= 0 && !padded) {
+				bits = bits << 6 | value;
+				if(++bitCount == 4) {
+					bytes[count++] = (byte)(bits >> 16);
+					bytes[count++] = (byte)(bits >> 8);
+					bytes[count++] = (byte)bits;
+					bits = 0;
+					bitCount = 0;
+				}
+			} else if(value == Base64.PADDING && bitCount >= 2) {
+				// Complete the last group, its missing bytes are skipped
+				if(!padded) {
+					padded = true;
+					if(bitCount == 2) {
+						bytes[count++] = (byte)(bits >> 4);
+					} else {
+						bytes[count++] = (byte)(bits >> 10);
+						bytes[count++] = (byte)(bits >> 2);
+					}
+				}
+				if(++bitCount == 4) {
+					bitCount = 0;
+				}
+			} else if(value != Base64.WHITESPACE) {
+				throw new IOException("The base64 encoding contains illegal characters.");
+			}
+		}
+		return count;
+
+	}
+
+	/**
+	 * Check that the encoding ends with a complete group.
+	 *
+	 * @throws IOException Will be thrown if the last group is incomplete.
+	 */
+	void end() throws IOException {
+		if(bitCount != 0) {
+			throw new IOException("The length of the base64 encoding must be a multiple of four.");
+		}
+	}
+
+}
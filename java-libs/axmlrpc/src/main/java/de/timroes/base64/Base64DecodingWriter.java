@@ -0,0 +1,71 @@
+package de.timroes.base64;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A writer, which decodes the base64 encoding written to it to an output
+ * stream. It is the counterpart of {@link Base64InputStream} for encodings,
+ * which are handed over in parts instead of being read, like the text of an
+ * xml element from a SAX parser. Line breaks and other white spaces within
+ * the encoding are ignored.
+ */
+public class Base64DecodingWriter extends Writer {
+
+	private final OutputStream out;
+
+	private final Base64Decoder decoder = new Base64Decoder();
+
+	private final char[] chars = new char[1024];
+	private final byte[] bytes = new byte[Base64Decoder.maxDecodedLength(chars.length)];
+
+	/**
+	 * Create a writer decoding to a stream.
+	 *
+	 * @param out The stream to write the decoded bytes to.
+	 */
+	public Base64DecodingWriter(OutputStream out) {
+		this.out = out;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while(len > 0) {
+			int n = Math.min(len, chars.length);
+			out.write(bytes, 0, decoder.decode(cbuf, off, n, bytes));
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		// Copy the string in parts, never as a whole
+		while(len > 0) {
+			int n = Math.min(len, chars.length);
+			str.getChars(off, off + n, chars, 0);
+			out.write(bytes, 0, decoder.decode(chars, 0, n, bytes));
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+	/**
+	 * Check that the encoding is complete and close the underlying stream.
+	 *
+	 * @throws IOException Will be thrown if the last group of the encoding
+	 *		is incomplete or closing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		decoder.end();
+		out.close();
+	}
+
+}
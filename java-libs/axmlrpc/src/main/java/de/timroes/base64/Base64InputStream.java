@@ -0,0 +1,118 @@
+package de.timroes.base64;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+
+/**
+ * An input stream, which decodes a base64 encoding while it is read. Line
+ * breaks and other white spaces within the encoding are ignored.
+ *
+ * The encoding is never held in memory as a whole, so it can e.g. be
+ * decompressed while it is decoded:
+ *
+ * <pre>
+ * InputStream in = new GZIPInputStream(new Base64InputStream(encoded));
+ * </pre>
+ */
+public class Base64InputStream extends InputStream {
+
+	private final Reader in;
+
+	private final Base64Decoder decoder = new Base64Decoder();
+
+	private final char[] chars = new char[1024];
+	private final byte[] bytes = new byte[Base64Decoder.maxDecodedLength(chars.length)];
+	private int pos;
+	private int count;
+
+	private boolean eof;
+
+	/**
+	 * Create a stream decoding a string.
+	 *
+	 * @param in The base64 encoding.
+	 */
+	public Base64InputStream(String in) {
+		this(new StringReader(in));
+	}
+
+	/**
+	 * Create a stream decoding a stream of ASCII characters.
+	 *
+	 * @param in The stream of the base64 encoding.
+	 */
+	public Base64InputStream(InputStream in) {
+		this(new InputStreamReader(in, Charset.forName("US-ASCII")));
+	}
+
+	/**
+	 * Create a stream decoding the characters of a reader.
+	 *
+	 * @param in The reader of the base64 encoding.
+	 */
+	public Base64InputStream(Reader in) {
+		this.in = in;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if(pos == count && !fill()) {
+			return -1;
+		}
+		return bytes[pos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if(len == 0) {
+			return 0;
+		}
+		if(pos == count && !fill()) {
+			return -1;
+		}
+		int n = Math.min(len, count - pos);
+		System.arraycopy(bytes, pos, b, off, n);
+		pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return count - pos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Decode the next characters of the encoding.
+	 *
+	 * @return Whether new bytes have been decoded, false at the end of the stream.
+	 * @throws IOException Will be thrown if reading fails or the encoding is invalid.
+	 */
+	private boolean fill() throws IOException {
+
+		pos = 0;
+		count = 0;
+		while(count == 0 && !eof) {
+
+			int read = in.read(chars, 0, chars.length);
+			if(read == -1) {
+				eof = true;
+				decoder.end();
+				break;
+			}
+			count = decoder.decode(chars, 0, read, bytes);
+
+		}
+		return count > 0;
+
+	}
+
+}
@@ -0,0 +1,117 @@
+package de.timroes.base64;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * An output stream, which base64 encodes all written bytes. The encoding is
+ * the same as the one of {@link Base64#encode(byte[])}, the last group is
+ * padded when the stream is closed.
+ */
+public class Base64OutputStream extends OutputStream {
+
+	private final Writer out;
+
+	private final byte[] group = new byte[3];
+	private int groupCount;
+
+	private final char[] chars = new char[Base64.LINE_LENGTH * 16 + 16];
+	private int charCount;
+
+	// The number of characters encoded until now
+	private int column;
+
+	/**
+	 * Create a stream writing the encoding as ASCII characters.
+	 *
+	 * @param out The stream to write the encoding to.
+	 */
+	public Base64OutputStream(OutputStream out) {
+		this(new OutputStreamWriter(out, Charset.forName("US-ASCII")));
+	}
+
+	/**
+	 * Create a stream writing the encoding to a writer.
+	 *
+	 * @param out The writer to write the encoding to.
+	 */
+	public Base64OutputStream(Writer out) {
+		this.out = out;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		group[groupCount++] = (byte)b;
+		if(groupCount == 3) {
+			writeGroup();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		while(off < end && groupCount > 0) {
+			write(b[off++]);
+		}
+		// Encode whole groups directly from the array
+		while(end - off >= 3) {
+			// Leave room for the line breaks
+			int space = chars.length - 16 - charCount;
+			int n = Math.min(end - off, space / 4 * 3) / 3 * 3;
+			if(n <= 0) {
+				flushChars();
+				continue;
+			}
+			charCount += Base64.encode(b, off, n, chars, charCount, column);
+			column += n / 3 * 4;
+			off += n;
+		}
+		while(off < end) {
+			write(b[off++]);
+		}
+	}
+
+	/**
+	 * Flush the encoded characters. Bytes of an incomplete group are kept
+	 * until the group is complete or the stream is closed.
+	 *
+	 * @throws IOException Will be thrown if flushing fails.
+	 */
+	@Override
+	public void flush() throws IOException {
+		flushChars();
+		out.flush();
+	}
+
+	/**
+	 * Write the padded last group and close the underlying writer.
+	 *
+	 * @throws IOException Will be thrown if writing fails.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(groupCount > 0) {
+			writeGroup();
+		}
+		flushChars();
+		out.close();
+	}
+
+	private void writeGroup() throws IOException {
+		if(chars.length - charCount < 5) {
+			flushChars();
+		}
+		charCount += Base64.encode(group, 0, groupCount, chars, charCount, column);
+		column += 4;
+		groupCount = 0;
+	}
+
+	private void flushChars() throws IOException {
+		out.write(chars, 0, charCount);
+		charCount = 0;
+	}
+
+}
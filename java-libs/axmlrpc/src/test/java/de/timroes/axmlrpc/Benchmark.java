@@ -0,0 +1,7 @@
+package de.timroes.axmlrpc;
+
+/**
+ * JUnit category of the benchmarks. They are left out of the tests, run them
+ * alone with {@code gradle test -Pbenchmark}.
+ */
+public interface Benchmark {}
@@ -0,0 +1,66 @@
+package de.timroes.axmlrpc;
+
+import de.timroes.axmlrpc.serializer.SerializerHandler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CallTest {
+
+	// a SearchSubtitles call for a batch of queries
+	private static final int QUERIES = 500;
+
+	private static Call sCall;
+
+	@BeforeClass
+	public static void generateCall() {
+		SerializerHandler.initialize(XMLRPCClient.FLAGS_NIL | XMLRPCClient.FLAGS_8BYTE_INT);
+		List<Map<String,Object>> queries = new ArrayList<Map<String,Object>>();
+		for(int i = 0; i < QUERIES; i++) {
+			Map<String,Object> query = new HashMap<String,Object>();
+			query.put("moviehash", Long.toHexString(0x8e245d9679d31e12L + i));
+			query.put("moviebytesize", String.valueOf(734003200L + i));
+			query.put("sublanguageid", "eng,fre");
+			query.put("query", "Movie & <co> " + i);
+			queries.add(query);
+		}
+		sCall = new Call("SearchSubtitles", new Object[] { "token", queries });
+	}
+
+	@Test
+	public void testSameXmlAsTree() throws Exception {
+		assertEquals(sCall.getXML(false), writeXML(sCall));
+
+		Map<String,Object> struct = new HashMap<String,Object>();
+		struct.put("empty", new HashMap<String,Object>());
+		struct.put("list", new Object[] { 1, 2.5, true, null, "" });
+		struct.put("none", new ArrayList<Object>());
+		struct.put("long", 8589934592L);
+		struct.put("date", new Date(1451703845000L));
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(1451703845000L);
+		Call call = new Call("test", new Object[] { struct, new byte[] { 1, 2, 3 }, calendar });
+		assertEquals(call.getXML(false), writeXML(call));
+
+		call = new Call("noParams");
+		assertEquals(call.getXML(false), writeXML(call));
+	}
+
+	private static String writeXML(Call call) throws XMLRPCException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		call.writeXML(out);
+		return out.toString("UTF-8");
+	}
+
+}
@@ -0,0 +1,63 @@
+package de.timroes.axmlrpc;
+
+import de.timroes.axmlrpc.serializer.SerializerHandler;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Map;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.*;
+
+@Category(Benchmark.class)
+public class ResponseParserBenchmark {
+
+	private static final int RESULTS = 5000;
+	private static final int WARMUP_RUNS = 5;
+	private static final int RUNS = 10;
+
+	private static byte[] sResponse;
+
+	@BeforeClass
+	public static void setUp() throws UnsupportedEncodingException {
+		SerializerHandler.initialize(XMLRPCClient.FLAGS_NONE);
+		sResponse = ResponseParserTest.generateResponse(RESULTS);
+	}
+
+	@Test
+	public void benchmark() throws XMLRPCException {
+		XMLRPCStructVisitor visitor = new XMLRPCStructVisitor() {
+			public boolean onStruct(int index, Map<String,Object> struct) {
+				return false;
+			}
+		};
+		for(int i = 0; i < WARMUP_RUNS; i++) {
+			ResponseParserTest.parseDom(sResponse);
+			ResponseParserTest.parseStream(sResponse, null);
+			ResponseParserTest.parseStream(sResponse, visitor);
+		}
+
+		long start = System.nanoTime();
+		for(int i = 0; i < RUNS; i++)
+			ResponseParserTest.parseDom(sResponse);
+		long domTime = (System.nanoTime() - start) / RUNS / 1000;
+
+		start = System.nanoTime();
+		for(int i = 0; i < RUNS; i++)
+			ResponseParserTest.parseStream(sResponse, null);
+		long streamTime = (System.nanoTime() - start) / RUNS / 1000;
+
+		start = System.nanoTime();
+		for(int i = 0; i < RUNS; i++)
+			ResponseParserTest.parseStream(sResponse, visitor);
+		long visitorTime = (System.nanoTime() - start) / RUNS / 1000;
+
+		String times = RESULTS + " structs (" + sResponse.length / 1024 + " KB): DOM " + domTime
+				+ " us, stream " + streamTime + " us, visitor " + visitorTime + " us";
+		assertTrue(times, streamTime < domTime);
+		assertTrue(times, visitorTime < domTime);
+	}
+
+}
@@ -0,0 +1,209 @@
+package de.timroes.axmlrpc;
+
+import de.timroes.axmlrpc.serializer.SerializerHandler;
+import de.timroes.base64.Base64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ResponseParserTest {
+
+	private static final int RESULTS = 5000;
+
+	private static byte[] sResponse;
+
+	@BeforeClass
+	public static void setUp() throws UnsupportedEncodingException {
+		SerializerHandler.initialize(XMLRPCClient.FLAGS_NONE);
+		sResponse = generateResponse(RESULTS);
+	}
+
+	/**
+	 * Generates a SearchSubtitles response for a batch of queries.
+	 */
+	static byte[] generateResponse(int results) throws UnsupportedEncodingException {
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<methodResponse><params><param><value><struct>\n");
+		xml.append("<member><name>status</name><value><string>200 OK</string></value></member>\n");
+		xml.append("<member><name>seconds</name><value><double>0.25</double></value></member>\n");
+		xml.append("<member><name>data</name><value><array><data>\n");
+		for(int i = 0; i < results; i++) {
+			xml.append("<value><struct>\n");
+			appendMember(xml, "QueryNumber", "<int>" + (i % 50) + "</int>");
+			appendMember(xml, "MovieHash", "<string>" + Long.toHexString(0x8e245d9679d31e12L + i) + "</string>");
+			appendMember(xml, "SubFormat", "<string>srt</string>");
+			appendMember(xml, "SubLanguageID", "<string>eng</string>");
+			appendMember(xml, "SubDownloadLink", "<string>http://dl.opensubtitles.org/en/download/src-api/vrf-19b70c5d/sid-x/" + i + ".gz</string>");
+			appendMember(xml, "MovieReleaseName", "<string>Some &lt;Movie&gt; &amp; co " + i + "</string>");
+			appendMember(xml, "SubBad", "<boolean>" + (i % 2) + "</boolean>");
+			appendMember(xml, "SubRating", "<double>" + (i % 10) + ".5</double>");
+			appendMember(xml, "SubHash", "<base64>c3VidGl0bGU=</base64>");
+			xml.append("</struct></value>\n");
+		}
+		xml.append("</data></array></value></member>\n");
+		xml.append("</struct></value></param></params></methodResponse>\n");
+		return xml.toString().getBytes("UTF-8");
+	}
+
+	private static void appendMember(StringBuilder xml, String name, String value) {
+		xml.append("<member><name>").append(name).append("</name><value>").append(value).append("</value></member>\n");
+	}
+
+	@Test
+	public void testSameResultAsDom() throws XMLRPCException {
+		Object dom = parseDom(sResponse);
+		Object stream = parseStream(sResponse, null);
+		assertTrue(deepEquals(dom, stream));
+
+		Map<?,?> data = (Map<?,?>)((Object[])((Map<?,?>)stream).get("data"))[1];
+		assertEquals(Integer.valueOf(1), data.get("QueryNumber"));
+		assertEquals("Some <Movie> & co 1", data.get("MovieReleaseName"));
+		assertEquals(Boolean.TRUE, data.get("SubBad"));
+	}
+
+	@Test
+	public void testAllTypes() throws Exception {
+		SerializerHandler.initialize(XMLRPCClient.FLAGS_NIL | XMLRPCClient.FLAGS_8BYTE_INT
+				| XMLRPCClient.FLAGS_DEFAULT_TYPE_STRING);
+		try {
+			byte[] response = ("<methodResponse><params><param><value><array><data>"
+					+ "<value><i4>-4</i4></value><value><i8>8589934592</i8></value>"
+					+ "<value>untyped</value><value><nil/></value>"
+					+ "<value><dateTime.iso8601>2016-01-02T03:04:05.000+0000</dateTime.iso8601></value>"
+					+ "<value><array><data><value><string>a</string></value></data></array></value>"
+					+ "<value><struct></struct></value>"
+					+ "</data></array></value></param></params></methodResponse>").getBytes("UTF-8");
+			Object[] values = (Object[])parseStream(response, null);
+			assertTrue(deepEquals(parseDom(response), values));
+			assertEquals(Long.valueOf(8589934592L), values[1]);
+			assertEquals("untyped", values[2]);
+			assertNull(values[3]);
+			assertEquals(new Date(1451703845000L), values[4]);
+		} finally {
+			SerializerHandler.initialize(XMLRPCClient.FLAGS_NONE);
+		}
+	}
+
+	@Test
+	public void testGzipBase64() throws Exception {
+		byte[] subtitle = "1\n00:00:01,000 --> 00:00:02,000\nHello\n\n".getBytes("UTF-8");
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(gzipped);
+		gzip.write(subtitle);
+		gzip.close();
+		String encoded = Base64.encode(gzipped.toByteArray());
+		byte[] response = ("<methodResponse><params><param><value><base64>"
+				+ encoded.substring(0, 10) + "<!-- split -->" + encoded.substring(10)
+				+ "</base64></value></param></params></methodResponse>").getBytes("UTF-8");
+
+		assertArrayEquals(gzipped.toByteArray(), (byte[])parseStream(response, null));
+		assertArrayEquals(gzipped.toByteArray(), (byte[])parseDom(response));
+
+		SerializerHandler.initialize(XMLRPCClient.FLAGS_GUNZIP_BASE64);
+		try {
+			assertArrayEquals(subtitle, (byte[])parseStream(response, null));
+			assertArrayEquals(subtitle, (byte[])parseDom(response));
+		} finally {
+			SerializerHandler.initialize(XMLRPCClient.FLAGS_NONE);
+		}
+	}
+
+	@Test
+	public void testFault() throws Exception {
+		byte[] response = ("<methodResponse><fault><value><struct>"
+				+ "<member><name>faultCode</name><value><int>401</int></value></member>"
+				+ "<member><name>faultString</name><value><string>Unauthorized</string></value></member>"
+				+ "</struct></value></fault></methodResponse>").getBytes("UTF-8");
+		try {
+			parseStream(response, null);
+			fail();
+		} catch(XMLRPCServerException ex) {
+			assertEquals(401, ex.getErrorNr());
+		}
+	}
+
+	@Test
+	public void testInvalidResponse() throws Exception {
+		String[] responses = {
+			"<methodCall></methodCall>",
+			"<methodResponse><params></params></methodResponse>",
+			"<methodResponse><params><param><value><int>1</int><int>2</int></value></param></params></methodResponse>",
+			"<methodResponse><params><param><value><struct>text</struct></value></param></params></methodResponse>",
+			"<methodResponse><params><param><value>untyped</value></param></params></methodResponse>",
+			"<methodResponse><params><param><value><unknown/></value></param></params></methodResponse>",
+			"<methodResponse><params><param><value><base64>Zm9v!</base64></value></param></params></methodResponse>",
+			"<methodResponse><params><param><value><base64>Zm9</base64></value></param></params></methodResponse>"
+		};
+		for(String response : responses) {
+			try {
+				parseStream(response.getBytes("UTF-8"), null);
+				fail(response);
+			} catch(XMLRPCServerException ex) {
+				fail(response);
+			} catch(XMLRPCException ex) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testVisitor() throws XMLRPCException {
+		final int[] visited = { 0 };
+		Map<?,?> result = (Map<?,?>)parseStream(sResponse, new XMLRPCStructVisitor() {
+			public boolean onStruct(int index, Map<String,Object> struct) {
+				assertEquals(visited[0]++, index);
+				assertEquals(Integer.valueOf(index % 50), struct.get("QueryNumber"));
+				// Only keep the first struct
+				return index == 0;
+			}
+		});
+		assertEquals(RESULTS, visited[0]);
+		assertEquals(1, ((Object[])result.get("data")).length);
+		assertEquals("200 OK", result.get("status"));
+	}
+
+	static Object parseDom(byte[] response) throws XMLRPCException {
+		return new ResponseParser().parse(new ByteArrayInputStream(response), false);
+	}
+
+	static Object parseStream(byte[] response, XMLRPCStructVisitor visitor) throws XMLRPCException {
+		return new StreamingResponseParser(XMLRPCClient.FLAGS_NONE)
+				.parse(new ByteArrayInputStream(response), visitor, false);
+	}
+
+	private static boolean deepEquals(Object a, Object b) {
+		if(a instanceof Object[] && b instanceof Object[]) {
+			Object[] x = (Object[])a, y = (Object[])b;
+			if(x.length != y.length)
+				return false;
+			for(int i = 0; i < x.length; i++) {
+				if(!deepEquals(x[i], y[i]))
+					return false;
+			}
+			return true;
+		}
+		if(a instanceof Map && b instanceof Map) {
+			Map<?,?> x = (Map<?,?>)a, y = (Map<?,?>)b;
+			if(!x.keySet().equals(y.keySet()))
+				return false;
+			for(Object key : x.keySet()) {
+				if(!deepEquals(x.get(key), y.get(key)))
+					return false;
+			}
+			return true;
+		}
+		if(a instanceof byte[] && b instanceof byte[])
+			return Arrays.equals((byte[])a, (byte[])b);
+		return a == null ? b == null : a.equals(b);
+	}
+
+}
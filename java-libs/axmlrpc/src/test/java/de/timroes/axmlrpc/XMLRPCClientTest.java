@@ -0,0 +1,237 @@
+package de.timroes.axmlrpc;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class XMLRPCClientTest {
+
+	private static final String RESPONSE = "<?xml version=\"1.0\"?><methodResponse><params><param>"
+			+ "<value><string>pong</string></value></param></params></methodResponse>";
+
+	private HttpServer mServer;
+	private URL mUrl;
+
+	// Responses with status 503 before answering
+	private final AtomicInteger mUnavailable = new AtomicInteger();
+	private volatile int mDelay = 0;
+	private volatile int mLastChunkDelay = 0;
+	private final AtomicInteger mRunning = new AtomicInteger();
+	private final AtomicInteger mMaxRunning = new AtomicInteger();
+	private final Set<Integer> mClientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+	private volatile boolean mGzipped;
+	private volatile String mResponse = RESPONSE;
+	private volatile String mRequest;
+
+	@Before
+	public void startServer() throws IOException {
+		mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		mServer.createContext("/", new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				mClientPorts.add(exchange.getRemoteAddress().getPort());
+				InputStream in = exchange.getRequestBody();
+				ByteArrayOutputStream request = new ByteArrayOutputStream();
+				int read;
+				while((read = in.read()) != -1)
+					request.write(read);
+				in.close();
+				mRequest = request.toString("UTF-8");
+
+				if(mUnavailable.getAndDecrement() > 0) {
+					exchange.sendResponseHeaders(503, -1);
+					exchange.close();
+					return;
+				}
+
+				int running = mRunning.incrementAndGet();
+				synchronized(mMaxRunning) {
+					mMaxRunning.set(Math.max(mMaxRunning.get(), running));
+				}
+				try {
+					Thread.sleep(mDelay);
+				} catch(InterruptedException ex) { }
+				mRunning.decrementAndGet();
+
+				String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				mGzipped = accept != null && accept.contains("gzip");
+				exchange.getResponseHeaders().set("Content-Type", "text/xml");
+				byte[] body = mResponse.getBytes("UTF-8");
+				OutputStream out;
+				if(mGzipped) {
+					exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+					exchange.sendResponseHeaders(200, 0);
+					out = new GZIPOutputStream(exchange.getResponseBody());
+				} else {
+					exchange.sendResponseHeaders(200, body.length);
+					out = exchange.getResponseBody();
+				}
+				out.write(body);
+				if(mGzipped && mLastChunkDelay > 0) {
+					// The end of the chunked body comes after the gzip trailer
+					((GZIPOutputStream)out).finish();
+					out.flush();
+					try {
+						Thread.sleep(mLastChunkDelay);
+					} catch(InterruptedException ex) { }
+				}
+				out.close();
+			}
+		});
+		mServer.setExecutor(Executors.newCachedThreadPool());
+		mServer.start();
+		mUrl = new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/");
+	}
+
+	@After
+	public void stopServer() {
+		mServer.stop(0);
+	}
+
+	@Test
+	public void testGzipResponse() throws XMLRPCException {
+		XMLRPCClient client = new XMLRPCClient(mUrl);
+		assertEquals("pong", client.call("ping"));
+		assertTrue(mGzipped);
+		client = new XMLRPCClient(mUrl, XMLRPCClient.FLAGS_STREAMING_PARSER);
+		assertEquals("pong", client.call("ping"));
+	}
+
+	@Test
+	public void testKeepAlive() throws XMLRPCException {
+		XMLRPCClient client = new XMLRPCClient(mUrl, XMLRPCClient.FLAGS_CHUNKED_REQUEST);
+		mLastChunkDelay = 50;
+		for(int i = 0; i < 5; i++)
+			assertEquals("pong", client.call("ping", i));
+		assertEquals(1, mClientPorts.size());
+	}
+
+	@Test
+	public void testRetries() throws XMLRPCException {
+		XMLRPCClient client = new XMLRPCClient(mUrl);
+		client.setRetries(2, 10);
+		mUnavailable.set(2);
+		assertEquals("pong", client.call("ping"));
+
+		client.setRetries(1, 10);
+		mUnavailable.set(2);
+		try {
+			client.call("ping");
+			fail();
+		} catch(XMLRPCException ex) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testAsyncCallsAreBounded() throws InterruptedException {
+		final int calls = 12;
+		final CountDownLatch done = new CountDownLatch(calls);
+		final AtomicInteger responses = new AtomicInteger();
+		mDelay = 50;
+		XMLRPCClient client = new XMLRPCClient(mUrl);
+		for(int i = 0; i < calls; i++) {
+			client.callAsync(new XMLRPCCallback() {
+				public void onResponse(long id, Object result) {
+					responses.incrementAndGet();
+					done.countDown();
+				}
+
+				public void onError(long id, XMLRPCException error) {
+					done.countDown();
+				}
+
+				public void onServerError(long id, XMLRPCServerException error) {
+					done.countDown();
+				}
+			}, "ping");
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(calls, responses.get());
+		assertTrue(mMaxRunning.get() <= 4);
+	}
+
+	@Test
+	public void testSubmit() throws Exception {
+		XMLRPCClient client = new XMLRPCClient(mUrl);
+		Future<Object> future = client.submit("ping");
+		assertEquals("pong", future.get(10, TimeUnit.SECONDS));
+
+		mResponse = "<methodResponse><fault><value><struct>"
+				+ "<member><name>faultCode</name><value><int>4</int></value></member>"
+				+ "<member><name>faultString</name><value><string>Too many parameters</string></value></member>"
+				+ "</struct></value></fault></methodResponse>";
+		try {
+			client.submit("ping").get(10, TimeUnit.SECONDS);
+			fail();
+		} catch(ExecutionException ex) {
+			assertEquals(4, ((XMLRPCServerException)ex.getCause()).getErrorNr());
+		}
+
+		mDelay = 500;
+		future = client.submit("ping");
+		assertTrue(future.cancel(true));
+		try {
+			future.get();
+			fail();
+		} catch(CancellationException ex) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testMulticall() throws Exception {
+		mResponse = "<methodResponse><params><param><value><array><data>"
+				+ "<value><array><data><value><int>3</int></value></data></array></value>"
+				+ "<value><struct><member><name>faultCode</name><value><int>-32601</int></value></member>"
+				+ "<member><name>faultString</name><value><string>No such method</string></value></member></struct></value>"
+				+ "</data></array></value></param></params></methodResponse>";
+		XMLRPCClient client = new XMLRPCClient(mUrl);
+		XMLRPCMulticall multicall = new XMLRPCMulticall();
+		assertEquals(0, multicall.add("add", 1, 2));
+		assertEquals(1, multicall.add("unknown"));
+
+		Object[] results = client.call(multicall);
+		assertTrue(mRequest.contains("<methodName>system.multicall</methodName>"));
+		assertEquals(1, mClientPorts.size());
+		assertEquals(3, results[0]);
+		assertEquals(-32601, ((XMLRPCServerException)results[1]).getErrorNr());
+
+		results = client.submit(multicall).get(10, TimeUnit.SECONDS);
+		assertEquals(3, results[0]);
+
+		multicall.add("third");
+		try {
+			client.call(multicall);
+			fail();
+		} catch(XMLRPCServerException ex) {
+			fail();
+		} catch(XMLRPCException ex) {
+			// Expected, one result is missing
+		}
+	}
+
+}
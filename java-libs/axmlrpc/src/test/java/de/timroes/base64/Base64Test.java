@@ -0,0 +1,151 @@
+package de.timroes.base64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class Base64Test {
+
+	// a subtitle file returned by DownloadSubtitles
+	private static final int PAYLOAD_SIZE = 512 * 1024;
+	private static final String SUBTITLE = "1\n00:00:01,000 --> 00:00:02,000\nHello\n\n";
+
+	@Test
+	public void testVectors() {
+		String[][] vectors = {
+			{ "", "" }, { "f", "Zg==" }, { "fo", "Zm8=" }, { "foo", "Zm9v" },
+			{ "foob", "Zm9vYg==" }, { "fooba", "Zm9vYmE=" }, { "foobar", "Zm9vYmFy" }
+		};
+		for(String[] vector : vectors) {
+			assertEquals(vector[1], Base64.encode(vector[0]));
+			assertEquals(vector[0], Base64.decodeAsString(vector[1]));
+		}
+		assertArrayEquals(new byte[] { 25, 32, -1, -1 }, Base64.encodeAsBytes("f"));
+		assertArrayEquals(new byte[] { -5, -1 }, Base64.decode("+/8="));
+	}
+
+	@Test
+	public void testLineBreaks() {
+		byte[] data = randomBytes(200);
+		String encoded = Base64.encode(data);
+		String[] lines = encoded.split("\n");
+		assertEquals(72, lines[0].length());
+		assertEquals(72, lines[1].length());
+		assertArrayEquals(data, Base64.decode(encoded));
+		assertArrayEquals(data, Base64.decode(encoded.replace("\n", "\r\n  ")));
+
+		// A trailing line break after a full line
+		assertTrue(Base64.encode(randomBytes(54)).endsWith("\n"));
+	}
+
+	@Test
+	public void testIllegalInput() {
+		for(String illegal : new String[] { "Zm9", "Zm9v!", "Zg=a", "Zg==Zg==" }) {
+			try {
+				Base64.decode(illegal);
+				fail(illegal);
+			} catch(IllegalArgumentException ex) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testStreams() throws IOException {
+		for(int size : new int[] { 0, 1, 2, 3, 53, 54, 55, 1000, 100000 }) {
+			byte[] data = randomBytes(size);
+			String encoded = Base64.encode(data);
+
+			StringWriter writer = new StringWriter();
+			Base64.encode(data, writer);
+			assertEquals(encoded, writer.toString());
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			Base64OutputStream out = new Base64OutputStream(bytes);
+			out.write(data, 0, Math.min(size, 7));
+			for(int i = Math.min(size, 7); i < Math.min(size, 20); i++)
+				out.write(data[i]);
+			if(size > 20)
+				out.write(data, 20, size - 20);
+			out.close();
+			assertEquals(encoded, bytes.toString("US-ASCII"));
+
+			assertArrayEquals(data, readFully(new Base64InputStream(encoded)));
+			assertArrayEquals(data, readFully(new Base64InputStream(
+					new ByteArrayInputStream(bytes.toByteArray()))));
+
+			// Parts splitting the groups
+			ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+			Base64DecodingWriter decoder = new Base64DecodingWriter(decoded);
+			char[] chars = encoded.toCharArray();
+			for(int i = 0; i < chars.length; i += 7)
+				decoder.write(chars, i, Math.min(7, chars.length - i));
+			decoder.close();
+			assertArrayEquals(data, decoded.toByteArray());
+
+			decoded = new ByteArrayOutputStream();
+			decoder = new Base64DecodingWriter(decoded);
+			decoder.write(encoded);
+			decoder.close();
+			assertArrayEquals(data, decoded.toByteArray());
+		}
+
+		try {
+			readFully(new Base64InputStream("Zm9"));
+			fail();
+		} catch(IOException ex) {
+			// Expected
+		}
+		for(String illegal : new String[] { "Zm9", "Zm9v!" }) {
+			try {
+				Base64DecodingWriter decoder = new Base64DecodingWriter(new ByteArrayOutputStream());
+				decoder.write(illegal);
+				decoder.close();
+				fail(illegal);
+			} catch(IOException ex) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testGzipPayload() throws IOException {
+		byte[] data = new byte[PAYLOAD_SIZE];
+		for(int i = 0; i < data.length; i++)
+			data[i] = (byte)SUBTITLE.charAt(i % SUBTITLE.length());
+		ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(new Base64OutputStream(gzipped));
+		gzip.write(data);
+		gzip.close();
+
+		InputStream in = new GZIPInputStream(new Base64InputStream(gzipped.toString("US-ASCII")));
+		assertArrayEquals(data, readFully(in));
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] data = new byte[size];
+		new Random(size).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] readFully(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int read;
+		while((read = in.read(buffer)) != -1)
+			out.write(buffer, 0, read);
+		in.close();
+		return out.toByteArray();
+	}
+
+}
@@ -1077,6 +1077,20 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
         super.setEventListener(listener);
     }
 
+    /**
+     * Set an event listener receiving only some event types, sent via the android main thread.
+     *
+     * {@link Event#TimeChanged} and {@link Event#PositionChanged} are coalesced: if the listener
+     * didn't get the previous one yet, only the most recent one is sent. Events are recycled,
+     * they must not be kept after {@link EventListener#onEvent(VLCEvent)} returns.
+     *
+     * @param listener see {@link EventListener}
+     * @param eventTypes types of the events to send, all of them if null
+     */
+    public synchronized void setEventListener(EventListener listener, int[] eventTypes) {
+        super.setEventListener(listener, null, eventTypes);
+    }
+
     @Override
     protected synchronized Event onEventNative(int eventType, long arg1, long arg2, float argf1) {
         switch (eventType) {
@@ -1088,29 +1102,39 @@ public class MediaPlayer extends VLCObject<MediaPlayer.Event> {
                 notify();
             case Event.Opening:
             case Event.Buffering:
-                return new Event(eventType, argf1);
+                return obtainEvent(eventType, 0, 0, argf1);
             case Event.Playing:
             case Event.Paused:
-                return new Event(eventType);
+                return obtainEvent(eventType, 0, 0, 0f);
             case Event.TimeChanged:
-                return new Event(eventType, arg1);
+                return obtainEvent(eventType, arg1, 0, 0f);
             case Event.PositionChanged:
-                return new Event(eventType, argf1);
+                return obtainEvent(eventType, 0, 0, argf1);
             case Event.Vout:
                 mVoutCount = (int) arg1;
                 notify();
-                return new Event(eventType, arg1);
+                return obtainEvent(eventType, arg1, 0, 0f);
             case Event.ESAdded:
             case Event.ESDeleted:
             case Event.ESSelected:
-                return new Event(eventType, arg1, arg2);
+                return obtainEvent(eventType, arg1, arg2, 0f);
             case Event.SeekableChanged:
             case Event.PausableChanged:
-                return new Event(eventType, arg1);
+                return obtainEvent(eventType, arg1, 0, 0f);
         }
         return null;
     }
 
+    @Override
+    protected Event createEvent(int eventType) {
+        return new Event(eventType);
+    }
+
+    @Override
+    protected boolean isCoalescedEvent(int eventType) {
+        return eventType == Event.TimeChanged || eventType == Event.PositionChanged;
+    }
+
     @Override
     protected void onReleaseNative() {
         registerAudioPlug(false);
@@ -22,9 +22,9 @@ package org.videolan.libvlc;
 
 abstract class VLCEvent {
     public final int type;
-    protected final long arg1;
-    protected final long arg2;
-    protected final float argf1;
+    protected long arg1;
+    protected long arg2;
+    protected float argf1;
 
     protected VLCEvent(int type) {
         this.type = type;
@@ -49,6 +49,13 @@ abstract class VLCEvent {
         this.argf1 = argf;
     }
 
+    /* used to recycle the event, see VLCObject#obtainEvent */
+    void set(long arg1, long arg2, float argf1) {
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.argf1 = argf1;
+    }
+
     /**
      * Listener for libvlc events
      *
@@ -24,11 +24,23 @@ import android.os.Handler;
 import android.os.Looper;
 
 import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 @SuppressWarnings("JniMissingFunction")
 abstract class VLCObject<T extends VLCEvent> {
+    private static final int MAX_RECYCLED = 16;
+
     private VLCEvent.Listener<T> mEventListener = null;
     private Handler mHandler = null;
+    /* sorted event types sent to the listener, all of them if null */
+    private int[] mEventTypes = null;
+    /* whether events are coalesced and recycled, see setEventListener(Listener, Handler, int[]) */
+    private boolean mRecycleEvents = false;
+    private final ArrayList<T> mRecycledEvents = new ArrayList<>(MAX_RECYCLED);
+    private final ArrayList<CoalescedEvent> mCoalescedEvents = new ArrayList<>();
+    private EventRunnable mRecycledRunnables = null;
+    private int mRecycledRunnablesCount = 0;
     final LibVLC mLibVLC;
     private int mNativeRefCount = 1;
 
@@ -107,13 +119,45 @@ abstract class VLCObject<T extends VLCEvent> {
      * @param handler Handler in which events are sent. If null, a handler will be created running on the main thread
      */
     protected synchronized void setEventListener(VLCEvent.Listener<T> listener, Handler handler) {
+        setEventListener(listener, handler, null, false);
+    }
+
+    /**
+     * Set an event listener receiving only some event types, for listeners called many times
+     * per second.
+     *
+     * Successive events of a type coalesced by {@link #isCoalescedEvent(int)} are not queued:
+     * only the most recent one is sent. Events are recycled once the listener returns, so they
+     * must not be kept or used after {@link VLCEvent.Listener#onEvent(VLCEvent)}.
+     *
+     * @param listener see {@link VLCEvent.Listener}
+     * @param handler Handler in which events are sent. If null, a handler will be created running on the main thread
+     * @param eventTypes types of the events to send, all of them if null
+     */
+    protected synchronized void setEventListener(VLCEvent.Listener<T> listener, Handler handler, int[] eventTypes) {
+        setEventListener(listener, handler, eventTypes, true);
+    }
+
+    private void setEventListener(VLCEvent.Listener<T> listener, Handler handler, int[] eventTypes, boolean recycle) {
         if (mHandler != null)
             mHandler.removeCallbacksAndMessages(null);
+        for (CoalescedEvent coalesced : mCoalescedEvents) {
+            recycleEvent(coalesced.event);
+            coalesced.event = null;
+        }
         mEventListener = listener;
         if (mEventListener == null)
             mHandler = null;
         else if (mHandler == null)
             mHandler = handler != null ? handler : new Handler(Looper.getMainLooper());
+        if (eventTypes != null) {
+            mEventTypes = eventTypes.clone();
+            Arrays.sort(mEventTypes);
+        } else
+            mEventTypes = null;
+        mRecycleEvents = recycle && listener != null;
+        if (!mRecycleEvents)
+            mRecycledEvents.clear();
     }
 
     /**
@@ -127,6 +171,51 @@ abstract class VLCObject<T extends VLCEvent> {
      */
     protected abstract T onEventNative(int eventType, long arg1, long arg2, float argf1);
 
+    /**
+     * Called by {@link #obtainEvent(int, long, long, float)} when there is no event to recycle.
+     *
+     * @param eventType event type
+     * @return a new event of this type, or null if events are not recycled
+     */
+    protected T createEvent(int eventType) {
+        return null;
+    }
+
+    /**
+     * Returns true if only the most recent event of this type needs to be sent, like for
+     * progress events. Only used by listeners set with {@link #setEventListener(VLCEvent.Listener, Handler, int[])}.
+     *
+     * @param eventType event type
+     */
+    protected boolean isCoalescedEvent(int eventType) {
+        return false;
+    }
+
+    /**
+     * Get an event from {@link #onEventNative(int, long, long, float)}, recycled when possible.
+     *
+     * @return the event, or null if {@link #createEvent(int)} is not implemented
+     */
+    protected final T obtainEvent(int eventType, long arg1, long arg2, float argf1) {
+        T event = null;
+        for (int i = mRecycledEvents.size() - 1; i >= 0; --i) {
+            if (mRecycledEvents.get(i).type == eventType) {
+                event = mRecycledEvents.remove(i);
+                break;
+            }
+        }
+        if (event == null)
+            event = createEvent(eventType);
+        if (event != null)
+            event.set(arg1, arg2, argf1);
+        return event;
+    }
+
+    private void recycleEvent(T event) {
+        if (event != null && mRecycleEvents && mRecycledEvents.size() < MAX_RECYCLED)
+            mRecycledEvents.add(event);
+    }
+
     /**
      * Called when native object is released (refcount is 0).
      *
@@ -141,23 +230,97 @@ abstract class VLCObject<T extends VLCEvent> {
         if (isReleased())
             return;
         final T event = onEventNative(eventType, arg1, arg2, argf1);
+        if (event == null)
+            return;
+        if (mEventListener == null || mHandler == null
+                || (mEventTypes != null && Arrays.binarySearch(mEventTypes, event.type) < 0)) {
+            recycleEvent(event);
+            return;
+        }
 
-        class EventRunnable implements Runnable {
-            private final VLCEvent.Listener<T> listener;
-            private final T event;
-
-            private EventRunnable(VLCEvent.Listener<T> listener, T event) {
-                this.listener = listener;
-                this.event = event;
+        if (mRecycleEvents && isCoalescedEvent(event.type)) {
+            CoalescedEvent coalesced = null;
+            for (CoalescedEvent c : mCoalescedEvents) {
+                if (c.type == event.type) {
+                    coalesced = c;
+                    break;
+                }
             }
-            @Override
-            public void run() {
-                listener.onEvent(event);
+            if (coalesced == null) {
+                coalesced = new CoalescedEvent(event.type);
+                mCoalescedEvents.add(coalesced);
             }
+            // Replace the pending event, it is posted already
+            if (coalesced.event != null)
+                recycleEvent(coalesced.event);
+            else
+                mHandler.post(coalesced);
+            coalesced.event = event;
+            return;
         }
 
-        if (event != null && mEventListener != null && mHandler != null)
-            mHandler.post(new EventRunnable(mEventListener, event));
+        EventRunnable runnable = mRecycledRunnables;
+        if (runnable != null) {
+            mRecycledRunnables = runnable.next;
+            runnable.next = null;
+            --mRecycledRunnablesCount;
+        } else
+            runnable = new EventRunnable();
+        runnable.listener = mEventListener;
+        runnable.event = event;
+        runnable.recycle = mRecycleEvents;
+        mHandler.post(runnable);
+    }
+
+    private class EventRunnable implements Runnable {
+        private VLCEvent.Listener<T> listener;
+        private T event;
+        private boolean recycle;
+        private EventRunnable next;
+
+        @Override
+        public void run() {
+            listener.onEvent(event);
+            if (!recycle)
+                return;
+            synchronized (VLCObject.this) {
+                recycleEvent(event);
+                listener = null;
+                event = null;
+                if (mRecycledRunnablesCount < MAX_RECYCLED) {
+                    next = mRecycledRunnables;
+                    mRecycledRunnables = this;
+                    ++mRecycledRunnablesCount;
+                }
+            }
+        }
+    }
+
+    /* Latest value of a coalesced event type, posted once until it is sent */
+    private class CoalescedEvent implements Runnable {
+        private final int type;
+        private T event;
+
+        private CoalescedEvent(int type) {
+            this.type = type;
+        }
+
+        @Override
+        public void run() {
+            final VLCEvent.Listener<T> listener;
+            final T event;
+            synchronized (VLCObject.this) {
+                listener = mEventListener;
+                event = this.event;
+                this.event = null;
+            }
+            if (listener == null || event == null)
+                return;
+            listener.onEvent(event);
+            synchronized (VLCObject.this) {
+                recycleEvent(event);
+            }
+        }
     }
     private native void nativeDetachEvents();
 
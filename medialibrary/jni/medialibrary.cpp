@@ -407,6 +407,30 @@ getMediaFromMrl(JNIEnv* env, jobject thiz, jstring mrl) {
     return mw;
 }
 
+jobjectArray
+getMediaFromMrls(JNIEnv* env, jobject thiz, jobjectArray mrls) {
+    AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
+    jsize size = env->GetArrayLength(mrls);
+    jobjectArray mediaRefs = (jobjectArray) env->NewObjectArray(size, ml_fields.MediaWrapper.clazz, NULL);
+    for (jsize i = 0; i < size; ++i) {
+        jstring mrl = (jstring) env->GetObjectArrayElement(mrls, i);
+        if (mrl == nullptr)
+            continue;
+        const char *char_mrl = env->GetStringUTFChars(mrl, JNI_FALSE);
+        // Unknown media are left null, at the index of their mrl
+        if (char_mrl[0] != '\0') {
+            jobject item = mediaToMediaWrapper(env, &ml_fields, aml->media(char_mrl));
+            if (item != nullptr) {
+                env->SetObjectArrayElement(mediaRefs, i, item);
+                env->DeleteLocalRef(item);
+            }
+        }
+        env->ReleaseStringUTFChars(mrl, char_mrl);
+        env->DeleteLocalRef(mrl);
+    }
+    return mediaRefs;
+}
+
 jobject
 addMedia(JNIEnv* env, jobject thiz, jstring mrl) {
     AndroidMediaLibrary *aml = MediaLibrary_getInstance(env, thiz);
@@ -778,6 +802,7 @@ static JNINativeMethod methods[] = {
     {"nativeSearchPlaylist", "(Ljava/lang/String;)[Lorg/videolan/medialibrary/media/Playlist;", (void*)searchPlaylist },
     {"nativeGetMedia", "(J)Lorg/videolan/medialibrary/media/MediaWrapper;", (void*)getMedia },
     {"nativeGetMediaFromMrl", "(Ljava/lang/String;)Lorg/videolan/medialibrary/media/MediaWrapper;", (void*)getMediaFromMrl },
+    {"nativeGetMediaFromMrls", "([Ljava/lang/String;)[Lorg/videolan/medialibrary/media/MediaWrapper;", (void*)getMediaFromMrls },
     {"nativeAddMedia", "(Ljava/lang/String;)Lorg/videolan/medialibrary/media/MediaWrapper;", (void*)addMedia },
     {"nativeGetVideoCount", "()I", (void*)getVideoCount },
     {"nativeGetAudioCount", "()I", (void*)getAudioCount },
@@ -272,6 +272,21 @@ public class Medialibrary {
         return mIsInitiated && !TextUtils.isEmpty(mrl) ? nativeGetMediaFromMrl(Tools.encodeVLCMrl(mrl)) : null;
     }
 
+    /**
+     * Look many media up in one native call.
+     *
+     * @param mrls the locations of the media
+     * @return the media at the indexes of their location, null for the ones not in the library
+     */
+    public MediaWrapper[] getMedia(String[] mrls) {
+        if (!mIsInitiated || mrls.length == 0)
+            return new MediaWrapper[mrls.length];
+        final String[] encodedMrls = new String[mrls.length];
+        for (int i = 0; i < mrls.length; ++i)
+            encodedMrls[i] = TextUtils.isEmpty(mrls[i]) ? "" : Tools.encodeVLCMrl(mrls[i]);
+        return nativeGetMediaFromMrls(encodedMrls);
+    }
+
     public MediaWrapper addMedia(String mrl) {
         return mIsInitiated && !TextUtils.isEmpty(mrl) ? nativeAddMedia(Tools.encodeVLCMrl(mrl)) : null;
     }
@@ -601,6 +616,7 @@ public class Medialibrary {
     private native  boolean nativeClearHistory();
     private native MediaWrapper nativeGetMedia(long id);
     private native MediaWrapper nativeGetMediaFromMrl(String mrl);
+    private native MediaWrapper[] nativeGetMediaFromMrls(String[] mrls);
     private native MediaWrapper nativeAddMedia(String mrl);
     private native MediaWrapper[] nativeGetVideos();
     private native MediaWrapper[] nativeGetRecentVideos();
@@ -20,6 +20,7 @@ import android.util.Log;
 
 import org.videolan.medialibrary.Medialibrary;
 import org.videolan.medialibrary.interfaces.DevicesDiscoveryCb;
+import org.videolan.medialibrary.media.MediaWrapper;
 import org.videolan.vlc.gui.DialogActivity;
 import org.videolan.vlc.gui.helpers.NotificationHelper;
 import org.videolan.vlc.util.AndroidDevices;
@@ -31,6 +32,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class MediaParsingService extends Service implements DevicesDiscoveryCb {
     public final static String TAG = "VLC/MediaParsingService";
@@ -65,6 +67,7 @@ public class MediaParsingService extends Service implements DevicesDiscoveryCb {
     private final ExecutorService mNotificationsExecutor = Executors.newSingleThreadExecutor();
 
     boolean mScanPaused = false;
+    private static final AtomicBoolean sHashing = new AtomicBoolean(false);
     private BroadcastReceiver mReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -84,6 +87,7 @@ public class MediaParsingService extends Service implements DevicesDiscoveryCb {
                 case Medialibrary.ACTION_IDLE:
                     if (intent.getBooleanExtra(Medialibrary.STATE_IDLE, true)) {
                         if (!mScanPaused) {
+                            precomputeMovieHashes();
                             stopSelf();
                             return;
                         }
@@ -334,6 +338,33 @@ public class MediaParsingService extends Service implements DevicesDiscoveryCb {
             --mReload;
     }
 
+    /**
+     * Saves the movie hash of the local videos which don't have one yet, so that subtitles
+     * downloads don't read the files again.
+     */
+    private void precomputeMovieHashes() {
+        if (!sHashing.compareAndSet(false, true))
+            return;
+        final Medialibrary medialibrary = mMedialibrary;
+        VLCApplication.runBackground(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (MediaWrapper media : medialibrary.getVideos()) {
+                        //leave the storage to a new scan
+                        if (medialibrary.isWorking())
+                            break;
+                        Uri uri = media.getUri();
+                        if (FileUtils.canWrite(uri))
+                            FileUtils.getMovieHash(new File(uri.getPath()));
+                    }
+                } finally {
+                    sHashing.set(false);
+                }
+            }
+        });
+    }
+
     private void exitCommand() {
         if (!mMedialibrary.isWorking())
             stopSelf();
@@ -50,6 +50,7 @@ import android.preference.PreferenceManager;
 import android.support.annotation.MainThread;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
 import android.support.v4.app.NotificationManagerCompat;
 import android.support.v4.content.LocalBroadcastManager;
 import android.support.v4.media.MediaBrowserCompat;
@@ -62,6 +63,7 @@ import android.support.v4.media.session.PlaybackStateCompat;
 import android.telephony.TelephonyManager;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.KeyEvent;
 import android.widget.Toast;
 
@@ -89,6 +91,8 @@ import org.videolan.vlc.media.BrowserProvider;
 import org.videolan.vlc.media.MediaDatabase;
 import org.videolan.vlc.media.MediaUtils;
 import org.videolan.vlc.media.MediaWrapperList;
+import org.videolan.vlc.media.PlayQueueStore;
+import org.videolan.vlc.media.ShuffleOrder;
 import org.videolan.vlc.util.AndroidDevices;
 import org.videolan.vlc.util.FileUtils;
 import org.videolan.vlc.util.Permissions;
@@ -103,18 +107,24 @@ import org.videolan.vlc.widget.VLCAppWidgetProviderBlack;
 import org.videolan.vlc.widget.VLCAppWidgetProviderWhite;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Random;
-import java.util.Stack;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static android.R.attr.width;
@@ -142,6 +152,19 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
 
     private static final int DELAY_DOUBLE_CLICK = 800;
     private static final int DELAY_LONG_CLICK = 1000;
+
+    /**
+     * Player events needed by the service and its callbacks, TimeChanged is left out since
+     * PositionChanged comes along with it
+     */
+    private static final int[] PLAYER_EVENTS = {
+            MediaPlayer.Event.MediaChanged, MediaPlayer.Event.Opening, MediaPlayer.Event.Buffering,
+            MediaPlayer.Event.Playing, MediaPlayer.Event.Paused, MediaPlayer.Event.Stopped,
+            MediaPlayer.Event.EndReached, MediaPlayer.Event.EncounteredError,
+            MediaPlayer.Event.PositionChanged, MediaPlayer.Event.SeekableChanged,
+            MediaPlayer.Event.PausableChanged, MediaPlayer.Event.Vout, MediaPlayer.Event.ESAdded,
+            MediaPlayer.Event.ESDeleted, MediaPlayer.Event.ESSelected
+    };
     public static final String AUDIO_REPEAT_MODE_KEY = "audio_repeat_mode";
 
     public interface Callback {
@@ -173,18 +196,45 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     private boolean mSwitchingToVideo = false;
     private boolean mVideoBackground = false;
 
-    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private final CopyOnWriteArrayList<Callback> mCallbacks = new CopyOnWriteArrayList<>();
     private boolean mDetectHeadset = true;
     private PowerManager.WakeLock mWakeLock;
     private final AtomicBoolean mExpanding = new AtomicBoolean(false);
     private final ExecutorService mExecutorService = Executors.newSingleThreadExecutor();
+    /**
+     * Serial worker for the library, widget and stats work of the player events, so that it
+     * doesn't hold the main thread between two events
+     */
+    private final ExecutorService mEventExecutor = Executors.newSingleThreadExecutor();
+    /**
+     * Set in {@link #onDestroy()}, main thread work posted before stops there
+     */
+    private volatile boolean mDestroyed = false;
     private final AtomicBoolean mUpdateMeta = new AtomicBoolean(false);
 
     // Index management
     /**
-     * Stack of previously played indexes, used in shuffle mode
+     * Play order of the list in shuffle mode
+     */
+    private final ShuffleOrder mShuffleOrder = new ShuffleOrder();
+    /**
+     * Saved play queues, their changes are journaled on mExecutorService
+     */
+    private PlayQueueStore mAudioQueueStore = null;
+    private PlayQueueStore mMediaQueueStore = null;
+    /**
+     * Type of the saved queue which follows the changes of mMediaList, -1 if none
+     */
+    private int mSavedQueueType = -1;
+    /**
+     * Type of the restored queue until its media are resolved, -1 otherwise.
+     * Its placeholder media have no type, so the list can't tell whether it is an audio one.
+     */
+    private int mRestoredQueueType = -1;
+    /**
+     * Number of media looked up at once in the library when restoring a list
      */
-    private final Stack<Integer> mPrevious = new Stack<>();
+    private static final int RESOLVE_CHUNK_SIZE = 500;
     private int mCurrentIndex = -1; // Set to -1 if no media is currently loaded
     private int mPrevIndex = -1; // Set to -1 if no previous media
     private int mNextIndex = -1; // Set to -1 if no next media
@@ -206,7 +256,6 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     private boolean mHasWidget;
     private boolean mShuffling = false;
     private int mRepeating = REPEAT_NONE;
-    private Random mRandom = null; // Used in shuffling process
     private long mSavedTime = 0L;
     private boolean mHasAudioFocus = false;
     // RemoteControlClient-related
@@ -339,6 +388,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     @Override
     public void onDestroy() {
         super.onDestroy();
+        mDestroyed = true;
         stop();
         if (mMediaSession != null) {
             mMediaSession.setActive(false);
@@ -357,6 +407,20 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             mRemoteControlClientReceiver = null;
         }
         mMediaPlayer.release();
+        mEventExecutor.shutdown();
+        mExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (mAudioQueueStore != null)
+                        mAudioQueueStore.close();
+                    if (mMediaQueueStore != null)
+                        mMediaQueueStore.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to close the play queues", e);
+                }
+            }
+        });
     }
 
     @Override
@@ -544,10 +608,8 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
 
             }
             if (update) {
-                synchronized (mCallbacks) {
-                    for (Callback callback : mCallbacks)
-                        callback.onMediaEvent(event);
-                }
+                for (Callback callback : mCallbacks)
+                    callback.onMediaEvent(event);
                 if (mParsed && mMediaSession != null)
                     showNotification();
             }
@@ -572,10 +634,21 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         return id != Media.Meta.NowPlaying || getCurrentMedia().getNowPlaying() != null;
     }
 
-    private Media.Stats previousMediaStats = null;
+    private volatile Future<Media.Stats> mPreviousMediaStats = null;
 
+    /**
+     * Wait for the stats of the media which just ended, not to be called from the main thread
+     */
+    @WorkerThread
     public Media.Stats getLastStats() {
-       return previousMediaStats;
+        final Future<Media.Stats> stats = mPreviousMediaStats;
+        if (stats == null)
+            return null;
+        try {
+            return stats.get();
+        } catch (InterruptedException | ExecutionException e) {
+            return null;
+        }
     }
 
     private final MediaPlayer.EventListener mMediaPlayerListener = new MediaPlayer.EventListener() {
@@ -607,8 +680,16 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                         showNotification();
                     }
                     mVideoBackground = false;
-                    if (getCurrentMediaWrapper().getType() == MediaWrapper.TYPE_STREAM)
-                        mMedialibrary.addToHistory(getCurrentMediaLocation(), getCurrentMediaWrapper().getTitle());
+                    if (getCurrentMediaWrapper().getType() == MediaWrapper.TYPE_STREAM) {
+                        final String location = getCurrentMediaLocation();
+                        final String title = getCurrentMediaWrapper().getTitle();
+                        executeEvent(new Runnable() {
+                            @Override
+                            public void run() {
+                                mMedialibrary.addToHistory(location, title);
+                            }
+                        });
+                    }
                     break;
                 case MediaPlayer.Event.Paused:
                     mStopped = false;
@@ -628,7 +709,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                 case MediaPlayer.Event.EndReached:
                     saveMediaMeta();
                     executeUpdateProgress();
-                    previousMediaStats = mMediaPlayer.getMedia().getStats();
+                    saveMediaStats();
                     determinePrevAndNextIndices(true);
                     next();
                     break;
@@ -642,8 +723,6 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                     if (mWakeLock.isHeld())
                         mWakeLock.release();
                     break;
-                case MediaPlayer.Event.TimeChanged:
-                    break;
                 case MediaPlayer.Event.PositionChanged:
                     updateWidgetPosition(event.getPositionChanged());
                     break;
@@ -666,10 +745,8 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                 case MediaPlayer.Event.MediaChanged:
                     Log.d(TAG, "onEvent: MediaChanged");
             }
-            synchronized (mCallbacks) {
-                for (Callback callback : mCallbacks)
-                    callback.onMediaPlayerEvent(event);
-            }
+            for (Callback callback : mCallbacks)
+                callback.onMediaPlayerEvent(event);
         }
     };
 
@@ -691,52 +768,128 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         sendBroadcast(new Intent(AudioPlayerContainerActivity.ACTION_SHOW_PLAYER));
     }
 
+    /**
+     * Save the progress and the settings of the current media. The player state is read right
+     * away, the library is updated on the event thread.
+     */
     public void saveMediaMeta() {
-        final MediaWrapper media = mMedialibrary.findMedia(getCurrentMediaWrapper());
-        if (media == null || media.getId() == 0)
+        final MediaWrapper current = getCurrentMediaWrapper();
+        if (current == null)
             return;
         final boolean canSwitchToVideo = canSwitchToVideo();
-        if (canSwitchToVideo || media.isPodcast()) {
-            //Save progress
-            final long time = getTime();
-            float progress = time / (float)media.getLength();
-            if (progress > 0.95f) {
-                //increase seen counter if more than 95% of the media have been seen
-                //and reset progress to 0
-                final long incSeen = media.getSeen() + 1L;
-                media.setLongMeta(MediaWrapper.META_SEEN, incSeen);
-                media.setSeen(incSeen);
-                progress = 0f;
+        final long time = getTime();
+        final boolean saveAudioDelay = mSettings.getBoolean("save_individual_audio_delay", false);
+        final long audioDelay = saveAudioDelay ? mMediaPlayer.getAudioDelay() : 0L;
+        final long spuDelay = mMediaPlayer.getSpuDelay();
+        final int spuTrack = mMediaPlayer.getSpuTrack();
+        executeEvent(new Runnable() {
+            @Override
+            public void run() {
+                final MediaWrapper media = mMedialibrary.findMedia(current);
+                if (media == null || media.getId() == 0)
+                    return;
+                if (canSwitchToVideo || media.isPodcast()) {
+                    //Save progress
+                    float progress = time / (float)media.getLength();
+                    if (progress > 0.95f) {
+                        //increase seen counter if more than 95% of the media have been seen
+                        //and reset progress to 0
+                        final long incSeen = media.getSeen() + 1L;
+                        media.setLongMeta(MediaWrapper.META_SEEN, incSeen);
+                        media.setSeen(incSeen);
+                        progress = 0f;
+                    }
+                    media.setTime(progress == 0f ? 0L : time);
+                    media.setLongMeta(MediaWrapper.META_PROGRESS, (long) (progress*100));
+                }
+                if (canSwitchToVideo) {
+                    //Save audio delay
+                    if (saveAudioDelay)
+                        media.setLongMeta(MediaWrapper.META_AUDIODELAY, audioDelay);
+                    media.setLongMeta(MediaWrapper.META_SUBTITLE_DELAY, spuDelay);
+                    media.setLongMeta(MediaWrapper.META_SUBTITLE_TRACK, spuTrack);
+                }
             }
-            media.setTime(progress == 0f ? 0L : time);
-            media.setLongMeta(MediaWrapper.META_PROGRESS, (long) (progress*100));
-        }
-        if (canSwitchToVideo) {
-            //Save audio delay
-            if (mSettings.getBoolean("save_individual_audio_delay", false))
-                media.setLongMeta(MediaWrapper.META_AUDIODELAY, mMediaPlayer.getAudioDelay());
-            media.setLongMeta(MediaWrapper.META_SUBTITLE_DELAY, mMediaPlayer.getSpuDelay());
-            media.setLongMeta(MediaWrapper.META_SUBTITLE_TRACK, mMediaPlayer.getSpuTrack());
-        }
+        });
     }
 
     private void loadMediaMeta() {
-        final MediaWrapper media = mMedialibrary.findMedia(getCurrentMediaWrapper());
-        if (media == null || media.getId() == 0)
+        final MediaWrapper current = getCurrentMediaWrapper();
+        if (current == null || !canSwitchToVideo())
+            return;
+        final boolean loadAudioDelay = mSettings.getBoolean("save_individual_audio_delay", false);
+        executeEvent(new Runnable() {
+            @Override
+            public void run() {
+                final MediaWrapper media = mMedialibrary.findMedia(current);
+                if (media == null || media.getId() == 0)
+                    return;
+                final long audioDelay = media.getMetaLong(MediaWrapper.META_AUDIODELAY);
+                final int spuTrack = (int) media.getMetaLong(MediaWrapper.META_SUBTITLE_TRACK);
+                final long spuDelay = media.getMetaLong(MediaWrapper.META_SUBTITLE_DELAY);
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDestroyed || getCurrentMediaWrapper() != current)
+                            return;
+                        if (loadAudioDelay)
+                            mMediaPlayer.setAudioDelay(audioDelay);
+                        mMediaPlayer.setSpuTrack(spuTrack);
+                        mMediaPlayer.setSpuDelay(spuDelay);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Keep the stats of the media which just ended, for {@link #getLastStats()}
+     */
+    private void saveMediaStats() {
+        final Media media = mMediaPlayer.getMedia();
+        if (media == null)
             return;
-        if (canSwitchToVideo()) {
-            if (mSettings.getBoolean("save_individual_audio_delay", false))
-                mMediaPlayer.setAudioDelay(media.getMetaLong(MediaWrapper.META_AUDIODELAY));
-            mMediaPlayer.setSpuTrack((int) media.getMetaLong(MediaWrapper.META_SUBTITLE_TRACK));
-            mMediaPlayer.setSpuDelay(media.getMetaLong(MediaWrapper.META_SUBTITLE_DELAY));
+        try {
+            mPreviousMediaStats = mEventExecutor.submit(new Callable<Media.Stats>() {
+                @Override
+                public Media.Stats call() {
+                    try {
+                        return media.getStats();
+                    } finally {
+                        media.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            media.release();
+        }
+    }
+
+    /**
+     * Run a task on the event thread, unless the service has been destroyed
+     */
+    private void executeEvent(Runnable task) {
+        if (mEventExecutor.isShutdown())
+            return;
+        try {
+            mEventExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Event task dropped, the service is destroyed");
         }
     }
 
     private final MediaWrapperList.EventListener mListEventListener = new MediaWrapperList.EventListener() {
 
         @Override
-        public void onItemAdded(int index, String mrl) {
+        public void onItemAdded(final int index, final String mrl) {
             Log.i(TAG, "CustomMediaListItemAdded");
+            mShuffleOrder.onItemAdded(index);
+            saveMediaListChange(new QueueChange() {
+                @Override
+                void save(PlayQueueStore store) throws IOException {
+                    store.add(index, mrl);
+                }
+            });
             if(mCurrentIndex >= index && !mExpanding.get())
                 mCurrentIndex++;
 
@@ -745,8 +898,15 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         }
 
         @Override
-        public void onItemRemoved(int index, String mrl) {
+        public void onItemRemoved(final int index, String mrl) {
             Log.i(TAG, "CustomMediaListItemDeleted");
+            mShuffleOrder.onItemRemoved(index);
+            saveMediaListChange(new QueueChange() {
+                @Override
+                void save(PlayQueueStore store) throws IOException {
+                    store.remove(index);
+                }
+            });
             if (mCurrentIndex == index && !mExpanding.get()) {
                 // The current item has been deleted
                 mCurrentIndex--;
@@ -766,8 +926,14 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         }
 
         @Override
-        public void onItemMoved(int indexBefore, int indexAfter, String mrl) {
+        public void onItemMoved(final int indexBefore, final int indexAfter, String mrl) {
             Log.i(TAG, "CustomMediaListItemMoved");
+            saveMediaListChange(new QueueChange() {
+                @Override
+                void save(PlayQueueStore store) throws IOException {
+                    store.move(indexBefore, indexAfter);
+                }
+            });
             if (mCurrentIndex == indexBefore) {
                 mCurrentIndex = indexAfter;
                 if (indexAfter > indexBefore)
@@ -779,9 +945,8 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                     && indexAfter > mCurrentIndex)
                 mCurrentIndex--;
 
-            // If we are in random mode, we completely reset the stored previous track
-            // as their indices changed.
-            mPrevious.clear();
+            // The shuffled order follows the media, not their indices
+            mShuffleOrder.onItemMoved(indexBefore, indexAfter);
 
             determinePrevAndNextIndices();
             executeUpdate();
@@ -812,22 +977,16 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     }
 
     private void executeUpdate() {
-        synchronized (mCallbacks) {
-            for (Callback callback : mCallbacks) {
-                callback.update();
-            }
-        }
+        for (Callback callback : mCallbacks)
+            callback.update();
         updateWidget();
         updateMetadata();
         broadcastMetadata();
     }
 
     private void executeUpdateProgress() {
-        synchronized (mCallbacks) {
-            for (Callback callback : mCallbacks) {
-                callback.updateProgress();
-            }
-        }
+        for (Callback callback : mCallbacks)
+            callback.updateProgress();
     }
 
     /**
@@ -864,12 +1023,10 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
 
             switch (msg.what) {
                 case SHOW_PROGRESS:
-                    synchronized (service.mCallbacks) {
-                        if (service.mCallbacks.size() > 0) {
-                            removeMessages(SHOW_PROGRESS);
-                            service.executeUpdateProgress();
-                            sendEmptyMessageDelayed(SHOW_PROGRESS, 1000);
-                        }
+                    if (service.mCallbacks.size() > 0) {
+                        removeMessages(SHOW_PROGRESS);
+                        service.executeUpdateProgress();
+                        sendEmptyMessageDelayed(SHOW_PROGRESS, 1000);
                     }
                     break;
                 case SHOW_TOAST:
@@ -1000,7 +1157,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             media.release();
         }
         mMediaList.removeEventListener(mListEventListener);
-        mPrevious.clear();
+        mShuffleOrder.clear();
         mHandler.removeMessages(SHOW_PROGRESS);
         onPlaybackStopped();
     }
@@ -1030,36 +1187,15 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             } else {
 
                 if(mShuffling) {
-                    if(!mPrevious.isEmpty()){
-                        mPrevIndex = mPrevious.peek();
-                        while (!isValidIndex(mPrevIndex)) {
-                            mPrevious.remove(mPrevious.size() - 1);
-                            if (mPrevious.isEmpty()) {
-                                mPrevIndex = -1;
-                                break;
-                            }
-                            mPrevIndex = mPrevious.peek();
-                        }
-                    }
+                    if (mShuffleOrder.size() == 0 || mShuffleOrder.size() > size)
+                        mShuffleOrder.reset(size, mCurrentIndex);
+                    else
+                        mShuffleOrder.append(size);
+                    mShuffleOrder.setCurrent(mCurrentIndex);
+                    mPrevIndex = mShuffleOrder.getPrevious();
                     // If we've played all songs already in shuffle, then either
                     // reshuffle or stop (depending on RepeatType).
-                    if(mPrevious.size() + 1 == size) {
-                        if(mRepeating == REPEAT_NONE) {
-                            mNextIndex = -1;
-                            return;
-                        } else {
-                            mPrevious.clear();
-                            mRandom = new Random(System.currentTimeMillis());
-                        }
-                    }
-                    if(mRandom == null) mRandom = new Random(System.currentTimeMillis());
-                    // Find a new index not in mPrevious.
-                    do
-                    {
-                        mNextIndex = mRandom.nextInt(size);
-                    }
-                    while(mNextIndex == mCurrentIndex || mPrevious.contains(mNextIndex));
-
+                    mNextIndex = mShuffleOrder.getNext(mRepeating == REPEAT_ALL);
                 } else {
                     // normal playback
                     if(mCurrentIndex > 0)
@@ -1396,7 +1532,6 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     }
 
     private void onMediaListChanged() {
-        saveMediaList();
         determinePrevAndNextIndices();
         executeUpdate();
     }
@@ -1405,7 +1540,6 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     public void next() {
         int size = mMediaList.size();
 
-        mPrevious.push(mCurrentIndex);
         mCurrentIndex = mNextIndex;
         if (size == 0 || mCurrentIndex < 0 || mCurrentIndex >= size) {
             if (mCurrentIndex < 0)
@@ -1428,8 +1562,6 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                 (force || !mMediaPlayer.isSeekable() || mMediaPlayer.getTime() < 2000l)) {
             int size = mMediaList.size();
             mCurrentIndex = mPrevIndex;
-            if (mPrevious.size() > 0)
-                mPrevious.pop();
             if (size == 0 || mPrevIndex < 0 || mCurrentIndex >= size) {
                 Log.w(TAG, "Warning: invalid previous index, aborted !");
                 stop();
@@ -1445,7 +1577,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     @MainThread
     public void shuffle() {
         if (mShuffling)
-            mPrevious.clear();
+            mShuffleOrder.clear();
         mShuffling = !mShuffling;
         savePosition();
         determinePrevAndNextIndices();
@@ -1455,7 +1587,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     @MainThread
     public void setRepeatType(int repeatType) {
         mRepeating = repeatType;
-        if (mMediaList.isAudioList() && mSettings.getBoolean("audio_save_repeat", false))
+        if (isAudioQueue() && mSettings.getBoolean("audio_save_repeat", false))
             mSettings.edit().putInt(AUDIO_REPEAT_MODE_KEY, mRepeating).apply();
         savePosition();
         determinePrevAndNextIndices();
@@ -1482,7 +1614,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             widgetIntent.putExtra("artist", "");
         }
         widgetIntent.putExtra("isplaying", isPlaying());
-        sendBroadcast(widgetIntent);
+        sendBroadcastInBackground(widgetIntent);
     }
 
     private String mCurrentWidgetCover = null;
@@ -1490,7 +1622,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     String newWidgetCover = hasCurrentMedia() ? getCurrentMedia().getArtworkMrl() : null;
         if (!TextUtils.equals(mCurrentWidgetCover, newWidgetCover)) {
             mCurrentWidgetCover = newWidgetCover;
-            sendBroadcast(new Intent(VLCAppWidgetProvider.ACTION_WIDGET_UPDATE_COVER)
+            sendBroadcastInBackground(new Intent(VLCAppWidgetProvider.ACTION_WIDGET_UPDATE_COVER)
                             .putExtra("artworkMrl", newWidgetCover));
         }
     }
@@ -1503,15 +1635,27 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         if (!hasCurrentMedia() || timestamp - mWidgetPositionTimestamp < getCurrentMedia().getLength() / 50)
             return;
         mWidgetPositionTimestamp = timestamp;
-        sendBroadcast(new Intent(VLCAppWidgetProvider.ACTION_WIDGET_UPDATE_POSITION)
+        sendBroadcastInBackground(new Intent(VLCAppWidgetProvider.ACTION_WIDGET_UPDATE_POSITION)
                 .putExtra("position", pos));
     }
 
+    /**
+     * Widget and metadata broadcasts are sent from the event thread, in order
+     */
+    private void sendBroadcastInBackground(final Intent intent) {
+        executeEvent(new Runnable() {
+            @Override
+            public void run() {
+                sendBroadcast(intent);
+            }
+        });
+    }
+
     private void broadcastMetadata() {
         final MediaWrapper media = getCurrentMedia();
         if (media == null || isVideoPlaying())
             return;
-        sendBroadcast(new Intent("com.android.music.metachanged")
+        sendBroadcastInBackground(new Intent("com.android.music.metachanged")
                 .putExtra("track", media.getTitle())
                 .putExtra("artist", media.getArtist())
                 .putExtra("album", media.getAlbum())
@@ -1546,20 +1690,23 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             @Override
             public void run() {
                 final boolean audio = type == TYPE_AUDIO;
-                String[] locations;
+                final int position;
                 synchronized (PlaybackService.this) {
                     String currentMedia = mSettings.getString(audio ? "current_song" : "current_media", "");
                     if (currentMedia.equals(""))
                         return;
-                    locations = mSettings.getString(audio ? "audio_list" : "media_list", "").split(" ");
+                    position = mSettings.getInt(audio ? "position_in_audio_list" : "position_in_media_list", 0);
                 }
-                if (locations.length == 0)
+                final List<String> mrls = readMediaList(audio);
+                if (mrls.isEmpty())
                     return;
 
-                final List<MediaWrapper> playList = new ArrayList<>(locations.length);
-                for (String location : locations) {
-                    String mrl = Uri.decode(location);
-                    MediaWrapper mw = mMedialibrary.getMedia(mrl);
+                // Only the saved media is looked up before playing, the others are
+                // replaced by their library media once the playback has started.
+                final List<MediaWrapper> playList = new ArrayList<>(mrls.size());
+                for (int i = 0; i < mrls.size(); ++i) {
+                    final String mrl = mrls.get(i);
+                    MediaWrapper mw = i == position ? mMedialibrary.getMedia(mrl) : null;
                     if (mw == null)
                         mw = new MediaWrapper(Uri.parse(mrl));
                     playList.add(mw);
@@ -1568,11 +1715,11 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                 VLCApplication.runOnMainThread(new Runnable() {
                     @Override
                     public void run() {
-                        final int position;
+                        if (mDestroyed)
+                            return;
                         synchronized (PlaybackService.this) {
                             mShuffling = mSettings.getBoolean(audio ? "audio_shuffling" : "media_shuffling", false);
                             mRepeating = mSettings.getInt(audio ? "audio_repeating" : "media_repeating", REPEAT_NONE);
-                            position = mSettings.getInt(audio ? "position_in_audio_list" : "position_in_media_list", 0);
                             mSavedTime = mSettings.getLong(audio ? "position_in_song" : "position_in_media", -1);
                         }
                         if (!audio) {
@@ -1585,36 +1732,182 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
                             if (rate != 1.0f)
                                 setRate(rate, false);
                         }
-                        load(playList, position);
+                        load(playList, position, type);
+                    }
+                });
+                resolveMediaList(playList, mrls, position);
+                VLCApplication.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mDestroyed)
+                            return;
+                        synchronized (PlaybackService.this) {
+                            // Unless another list has been loaded in the meantime
+                            if (mRestoredQueueType != type)
+                                return;
+                            mRestoredQueueType = -1;
+                            //the resolved list may now be saved as the other queue
+                            if (getQueueType() != mSavedQueueType)
+                                saveMediaList();
+                        }
                     }
                 });
             }
         });
     }
 
+    /**
+     * Replace the media of a restored list by the media of the library, chunk by chunk.
+     * Called from a background thread.
+     */
+    private void resolveMediaList(List<MediaWrapper> playList, List<String> mrls, int skip) {
+        for (int start = 0; start < mrls.size() && !mDestroyed; start += RESOLVE_CHUNK_SIZE) {
+            final int end = Math.min(start + RESOLVE_CHUNK_SIZE, mrls.size());
+            final MediaWrapper[] media = mMedialibrary.getMedia(mrls.subList(start, end).toArray(new String[end - start]));
+            final Map<MediaWrapper, MediaWrapper> resolved = new IdentityHashMap<>();
+            for (int i = start; i < end; ++i) {
+                if (i != skip && media[i - start] != null)
+                    resolved.put(playList.get(i), media[i - start]);
+            }
+            if (resolved.isEmpty())
+                continue;
+            VLCApplication.runOnMainThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (mDestroyed)
+                        return;
+                    // The list may have changed in the meantime
+                    for (int i = 0; i < mMediaList.size(); ++i) {
+                        final MediaWrapper mw = resolved.get(mMediaList.getMedia(i));
+                        if (mw != null)
+                            mMediaList.replace(i, mw);
+                    }
+                    executeUpdate();
+                    updateMediaQueue();
+                }
+            });
+        }
+    }
+
     private synchronized void saveCurrentMedia() {
         SharedPreferences.Editor editor = mSettings.edit();
-        editor.putString(mMediaList.isAudioList() ? "current_song" : "current_media", mMediaList.getMRL(Math.max(mCurrentIndex, 0)));
+        editor.putString(isAudioQueue() ? "current_song" : "current_media", mMediaList.getMRL(Math.max(mCurrentIndex, 0)));
         editor.apply();
     }
 
+    private abstract class QueueChange {
+        abstract void save(PlayQueueStore store) throws IOException;
+    }
+
+    private synchronized PlayQueueStore getQueueStore(boolean audio) {
+        if (audio) {
+            if (mAudioQueueStore == null)
+                mAudioQueueStore = new PlayQueueStore(new File(getDir("queues", MODE_PRIVATE), "audio"));
+            return mAudioQueueStore;
+        }
+        if (mMediaQueueStore == null)
+            mMediaQueueStore = new PlayQueueStore(new File(getDir("queues", MODE_PRIVATE), "media"));
+        return mMediaQueueStore;
+    }
+
+    private int getQueueType() {
+        if (mRestoredQueueType != -1)
+            return mRestoredQueueType;
+        return canSwitchToVideo() || !mMediaList.isAudioList() ? TYPE_VIDEO : TYPE_AUDIO;
+    }
+
+    private boolean isAudioQueue() {
+        return mRestoredQueueType != -1 ? mRestoredQueueType == TYPE_AUDIO : mMediaList.isAudioList();
+    }
+
+    /**
+     * Read a saved queue, from the preferences if it has been saved by an older version.
+     * Called from a background thread.
+     */
+    private List<String> readMediaList(final boolean audio) {
+        final Future<List<String>> saved = mExecutorService.submit(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception {
+                final PlayQueueStore store = getQueueStore(audio);
+                return store.exists() ? store.read() : null;
+            }
+        });
+        try {
+            final List<String> mrls = saved.get();
+            if (mrls != null)
+                return mrls;
+        } catch (InterruptedException | ExecutionException e) {
+            Log.e(TAG, "Failed to read the play queue", e);
+        }
+        final String locations = mSettings.getString(audio ? "audio_list" : "media_list", "");
+        final List<String> mrls = new ArrayList<>();
+        for (String location : locations.split(" "))
+            if (!location.isEmpty())
+                mrls.add(Uri.decode(location));
+        return mrls;
+    }
+
+    /**
+     * Save the whole list, only needed when it is replaced.
+     * Its changes are then journaled by {@link #saveMediaListChange(QueueChange)}.
+     */
     private synchronized void saveMediaList() {
         if (getCurrentMedia() == null)
             return;
-        StringBuilder locations = new StringBuilder();
+        final int type = getQueueType();
+        final PlayQueueStore store = getQueueStore(type == TYPE_AUDIO);
+        final List<String> mrls = new ArrayList<>(mMediaList.size());
         for (int i = 0; i < mMediaList.size(); i++)
-            locations.append(" ").append(Uri.encode(mMediaList.getMRL(i)));
-        //We save a concatenated String because putStringSet is APIv11.
-        SharedPreferences.Editor editor = mSettings.edit();
-        editor.putString(canSwitchToVideo() || !mMediaList.isAudioList() ? "media_list" : "audio_list", locations.toString().trim());
-        editor.apply();
+            mrls.add(mMediaList.getMRL(i));
+        mSavedQueueType = type;
+        mExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    store.rewrite(mrls);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save the play queue", e);
+                }
+            }
+        });
+        //older versions saved the queue in the preferences
+        final String key = type == TYPE_AUDIO ? "audio_list" : "media_list";
+        if (mSettings.contains(key))
+            mSettings.edit().remove(key).apply();
+    }
+
+    /**
+     * Journal a change of the list, rather than saving it all again.
+     */
+    private synchronized void saveMediaListChange(final QueueChange change) {
+        final int type = getQueueType();
+        if (type != mSavedQueueType) {
+            //the list is now saved as the other queue
+            saveMediaList();
+            return;
+        }
+        final PlayQueueStore store = getQueueStore(type == TYPE_AUDIO);
+        if (store.needsCompaction()) {
+            saveMediaList();
+            return;
+        }
+        mExecutorService.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    change.save(store);
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to save the play queue", e);
+                }
+            }
+        });
     }
 
     private synchronized void savePosition(){
         if (!hasMedia())
             return;
         SharedPreferences.Editor editor = mSettings.edit();
-        boolean audio = mMediaList.isAudioList();
+        boolean audio = isAudioQueue();
         editor.putBoolean(audio ? "audio_shuffling" : "media_shuffling", mShuffling);
         editor.putInt(audio ? "audio_repeating" : "media_repeating", mRepeating);
         editor.putInt(audio ? "position_in_audio_list" : "position_in_media_list", mCurrentIndex);
@@ -1784,20 +2077,13 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
 
     @MainThread
     public void addCallback(Callback cb) {
-        synchronized (mCallbacks) {
-            if (!mCallbacks.contains(cb)) {
-                mCallbacks.add(cb);
-                if (hasCurrentMedia())
-                    mHandler.sendEmptyMessage(SHOW_PROGRESS);
-            }
-        }
+        if (mCallbacks.addIfAbsent(cb) && hasCurrentMedia())
+            mHandler.sendEmptyMessage(SHOW_PROGRESS);
     }
 
     @MainThread
     public void removeCallback(Callback cb) {
-        synchronized (mCallbacks) {
-            mCallbacks.remove(cb);
-        }
+        mCallbacks.remove(cb);
     }
 
     @MainThread
@@ -1859,15 +2145,26 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
 
     @MainThread
     public void load(List<MediaWrapper> mediaList, int position) {
+        load(mediaList, position, -1);
+    }
+
+    /**
+     * @param restoredType type of the queue restored with placeholder media, -1 if not restored
+     */
+    @MainThread
+    private void load(List<MediaWrapper> mediaList, int position, int restoredType) {
         Log.v(TAG, "Loading position " + ((Integer) position).toString() + " in " + mediaList.toString());
 
         if (hasCurrentMedia())
             savePosition();
+        synchronized (this) {
+            mRestoredQueueType = restoredType;
+        }
 
         mMediaList.removeEventListener(mListEventListener);
         mMediaList.clear();
 
-        mPrevious.clear();
+        mShuffleOrder.clear();
 
         for (MediaWrapper media : mediaList)
             mMediaList.add(media);
@@ -1886,7 +2183,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         // Add handler after loading the list
         mMediaList.addEventListener(mListEventListener);
 
-        if (mMediaList.isAudioList() && mSettings.getBoolean("audio_save_repeat", false))
+        if (isAudioQueue() && mSettings.getBoolean("audio_save_repeat", false))
             mRepeating = mSettings.getInt(AUDIO_REPEAT_MODE_KEY, REPEAT_NONE);
         playIndex(mCurrentIndex, 0);
         saveMediaList();
@@ -1995,7 +2292,7 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             mMediaPlayer.setEqualizer(VLCOptions.getEqualizerSetFromSettings(this));
             mMediaPlayer.setVideoTitleDisplay(MediaPlayer.Position.Disable, 0);
             changeAudioFocus(true);
-            mMediaPlayer.setEventListener(mMediaPlayerListener);
+            mMediaPlayer.setEventListener(mMediaPlayerListener, PLAYER_EVENTS);
             if (!isVideoPlaying && mMediaPlayer.getRate() == 1.0F && mSettings.getBoolean(PreferencesActivity.KEY_AUDIO_PLAYBACK_SPEED_PERSIST, true))
                 setRate(mSettings.getFloat(PreferencesActivity.KEY_AUDIO_PLAYBACK_RATE, 1.0F), true);
             if (mSavedTime <= 0L && mw.getTime() >= 0L && mw.isPodcast())
@@ -2125,10 +2422,19 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
             return;
         }
 
+        final int position = mMediaList.size();
+        final List<String> mrls = new ArrayList<>(mediaList.size());
         for (int i = 0; i < mediaList.size(); i++) {
             MediaWrapper mediaWrapper = mediaList.get(i);
             mMediaList.add(mediaWrapper);
+            mrls.add(mediaWrapper.getLocation());
         }
+        saveMediaListChange(new QueueChange() {
+            @Override
+            void save(PlayQueueStore store) throws IOException {
+                store.add(position, mrls);
+            }
+        });
         onMediaListChanged();
         updateMediaQueue();
     }
@@ -2179,13 +2485,11 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     @MainThread
     public void moveItem(int positionStart, int positionEnd) {
         mMediaList.move(positionStart, positionEnd);
-        PlaybackService.this.saveMediaList();
     }
 
     @MainThread
     public void insertItem(int position, MediaWrapper mw) {
         mMediaList.insert(position, mw);
-        saveMediaList();
         determinePrevAndNextIndices();
     }
 
@@ -2193,14 +2497,12 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
     @MainThread
     public void remove(int position) {
         mMediaList.remove(position);
-        saveMediaList();
         determinePrevAndNextIndices();
     }
 
     @MainThread
     public void removeLocation(String location) {
         mMediaList.remove(location);
-        saveMediaList();
         determinePrevAndNextIndices();
     }
 
@@ -2413,6 +2715,25 @@ public class PlaybackService extends MediaBrowserServiceCompat implements IVLCVo
         return mMediaPlayer.getSpuTracks();
     }
 
+    /**
+     * @return the codec description of the subtitle tracks of the current media, by track id
+     */
+    @MainThread
+    public SparseArray<String> getSpuTrackCodecs() {
+        final SparseArray<String> codecs = new SparseArray<>();
+        final Media media = mMediaPlayer.getMedia();
+        if (media == null)
+            return codecs;
+        final int count = media.getTrackCount();
+        for (int i = 0; i < count; ++i) {
+            final Media.Track track = media.getTrack(i);
+            if (track.type == Media.Track.Type.Text)
+                codecs.put(track.id, track.codec);
+        }
+        media.release();
+        return codecs;
+    }
+
     @MainThread
     public int getSpuTrack() {
         return mMediaPlayer.getSpuTrack();
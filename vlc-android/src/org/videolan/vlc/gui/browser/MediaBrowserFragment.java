@@ -50,6 +50,7 @@ import org.videolan.vlc.gui.InfoActivity;
 import org.videolan.vlc.gui.PlaybackServiceFragment;
 import org.videolan.vlc.gui.view.ContextMenuRecyclerView;
 import org.videolan.vlc.gui.view.SwipeRefreshLayout;
+import org.videolan.vlc.util.EmbeddedSubtitleScheduler;
 import org.videolan.vlc.util.FileUtils;
 
 import java.util.LinkedList;
@@ -179,15 +180,28 @@ public abstract class MediaBrowserFragment extends PlaybackServiceFragment imple
             public void run() {
                 final LinkedList<String> foldersToReload = new LinkedList<>();
                 final LinkedList<String> mediaPaths = new LinkedList<>();
+                final LinkedList<String> deletedFiles = new LinkedList<>();
                 for (MediaWrapper media : mw.getTracks()) {
                     String path = media.getUri().getPath();
                     mediaPaths.add(media.getLocation());
                     String parentPath = FileUtils.getParent(path);
-                    if (FileUtils.deleteFile(path) && media.getId() > 0L && !foldersToReload.contains(parentPath))
+                    if (!FileUtils.deleteFile(path))
+                        continue;
+                    deletedFiles.add(path);
+                    if (media.getId() > 0L && !foldersToReload.contains(parentPath))
                         foldersToReload.add(parentPath);
                 }
                 for (String folder : foldersToReload)
                         mMediaLibrary.reload(folder);
+                //their embedded subtitles are not extracted anymore
+                VLCApplication.runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        final EmbeddedSubtitleScheduler scheduler = EmbeddedSubtitleScheduler.getInstance(VLCApplication.getAppContext());
+                        for (String path : deletedFiles)
+                            scheduler.cancel(path);
+                    }
+                });
                 if (mService != null && getActivity() != null) {
                     getActivity().runOnUiThread(new Runnable() {
                         @Override
@@ -135,7 +135,6 @@ public class DictionaryDialog extends DialogFragment implements AdapterView.OnIt
 
         mTranslateTask = new Translate();
         mTranslateTask.execute(new String[]{word});
-        onlineTranslate(word);
     }
 
     @Override
@@ -428,12 +427,15 @@ public class DictionaryDialog extends DialogFragment implements AdapterView.OnIt
 
     private class Translate extends AsyncTask<String, Void, String> {
 
+        private String word;
         @Override
         protected String doInBackground(String... params) {
+            word = params[0];
             String translation = "";
             if(mDictionary != null) {
-                translation = mDictionary.getTranslation(params[0]).getTranslation();
-                mOfflineTranslated = mDictionary.getTranslation(params[0]).getTranslated();
+                Dictionary.TranslateResult result = mDictionary.getTranslation(params[0]);
+                translation = result.getTranslation();
+                mOfflineTranslated = result.getTranslated();
             }
             return translation;
         }
@@ -447,13 +449,20 @@ public class DictionaryDialog extends DialogFragment implements AdapterView.OnIt
             mOfflineDictionaryLoading.setVisibility(View.GONE);
             mOfflineTranslationTextView.setVisibility(View.VISIBLE);
 
+            //the online dictionary is only asked for the words missing offline
+            if(!mOfflineTranslated && isAdded())
+                onlineTranslate(word);
             focusOnView(mainScrollView, mOfflineDictionaryLayout);
         }
 
         @Override
         protected void onPreExecute() {
+            mOfflineTranslated = false;
+            mOnlineTranslated = false;
             mOfflineTranslationTextView.setVisibility(View.GONE);
             mOfflineDictionaryLoading.setVisibility(View.VISIBLE);
+            mOnlineTranslationTextView.setVisibility(View.GONE);
+            mOnlineDictionaryLoading.setVisibility(View.GONE);
         }
 
     }
@@ -21,12 +21,14 @@ import java.util.ArrayList;
 
 public class SubtitleSelectorDialog extends DialogFragment {
     private RecyclerView mRecyclerView;
-    private RecyclerView.Adapter mAdapter;
+    private TrackSelectorAdapter mAdapter;
     private RecyclerView.LayoutManager mLayoutManager;
     private OnTrackClickListener trackClickListener;
     private static final String TRACKS = "tracks";
     private static final String ENCODEDTRACKLIST = "encodedSubList";
     private static final String DEFAULT = "default";
+    private static final String PENDINGTRACKLIST = "pendingSubList";
+    private static final String PROGRESS = "progress";
 
     public SubtitleSelectorDialog(){
 
@@ -56,6 +58,7 @@ public class SubtitleSelectorDialog extends DialogFragment {
         final int defaultSelected = getArguments().getInt(DEFAULT);
 
         mAdapter = new TrackSelectorAdapter(trackList,encodedTrackList,defaultSelected);
+        mAdapter.setProgress(getArguments().getStringArrayList(PENDINGTRACKLIST), getArguments().getIntArray(PROGRESS));
         mRecyclerView.setAdapter(mAdapter);
         return v;
     }
@@ -74,11 +77,26 @@ public class SubtitleSelectorDialog extends DialogFragment {
         trackClickListener = listener;
     }
 
+    /**
+     * Shows the extraction progress next to the embedded tracks which are not extracted yet.
+     *
+     * @param pendingTracks tracks which are not extracted yet
+     * @param progress      extracted and total tracks of the media, null to hide the progress
+     */
+    public void setExtractionProgress(ArrayList<String> pendingTracks, int[] progress){
+        getArguments().putStringArrayList(PENDINGTRACKLIST, pendingTracks);
+        getArguments().putIntArray(PROGRESS, progress);
+        if(mAdapter != null)
+            mAdapter.setProgress(pendingTracks, progress);
+    }
+
     private class TrackSelectorAdapter extends RecyclerView.Adapter<TrackSelectorAdapter.ViewHolder>{
 
         public ArrayList<String> mTracks;
         public ArrayList<String> mEncodedTrackList;
         public int mSelectedTrack = -1;
+        private ArrayList<String> mPendingTracks = new ArrayList<>();
+        private int[] mProgress = null;
 
         public TrackSelectorAdapter (ArrayList<String> tracks, ArrayList<String> encodedTrackList, final int defaultSelected){
             this.mTracks = tracks;
@@ -86,6 +104,12 @@ public class SubtitleSelectorDialog extends DialogFragment {
             this.mEncodedTrackList = encodedTrackList;
         }
 
+        public void setProgress(ArrayList<String> pendingTracks, int[] progress){
+            mPendingTracks = pendingTracks != null ? pendingTracks : new ArrayList<String>();
+            mProgress = progress;
+            notifyDataSetChanged();
+        }
+
         @Override
         public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
             View v = LayoutInflater.from(parent.getContext()).inflate(R.layout.track_item,parent,false);
@@ -101,7 +125,11 @@ public class SubtitleSelectorDialog extends DialogFragment {
             holder.clearButton.setVisibility(isEncodeSubtitle ? View.INVISIBLE: View.VISIBLE);
             holder.selected.setChecked(position == mSelectedTrack);
             final String trackName = mTracks.get(position);
-            holder.selected.setText(Uri.parse(trackName).getLastPathSegment());
+            final String name = Uri.parse(trackName).getLastPathSegment();
+            if(mProgress != null && mPendingTracks.contains(trackName))
+                holder.selected.setText(getString(R.string.embedded_subs_progress, name, mProgress[0], mProgress[1]));
+            else
+                holder.selected.setText(name);
         }
 
         @Override
@@ -50,6 +50,7 @@ import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Message;
 import android.os.PowerManager;
+import android.os.Process;
 import android.preference.PreferenceManager;
 import android.provider.Settings;
 import android.provider.Settings.SettingNotFoundException;
@@ -78,6 +79,7 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.util.TypedValue;
 import android.util.Rational;
+import android.util.SparseArray;
 import android.view.Display;
 import android.view.GestureDetector;
 import android.view.InputDevice;
@@ -110,9 +112,6 @@ import android.widget.SeekBar.OnSeekBarChangeListener;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import com.github.hiteshsondhi88.libffmpeg.ExecuteBinaryResponseHandler;
-import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
-import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
 
 import org.videolan.libvlc.IVLCVout;
 import org.videolan.libvlc.LibVLC;
@@ -143,9 +142,14 @@ import org.videolan.vlc.interfaces.IPlaybackSettingsController;
 import org.videolan.vlc.media.MediaDatabase;
 import org.videolan.vlc.media.MediaUtils;
 import org.videolan.vlc.subs.Caption;
+import org.videolan.vlc.subs.CaptionRenderCache;
+import org.videolan.vlc.subs.CaptionTimeline;
 import org.videolan.vlc.subs.SubtitleParser;
 import org.videolan.vlc.subs.TimedTextObject;
+import org.videolan.vlc.subs.WordTokenizer;
 import org.videolan.vlc.util.AndroidDevices;
+import org.videolan.vlc.util.EmbeddedSubtitleExtractor;
+import org.videolan.vlc.util.EmbeddedSubtitleScheduler;
 import org.videolan.vlc.util.FileUtils;
 import org.videolan.vlc.util.Permissions;
 import org.videolan.vlc.util.Strings;
@@ -156,14 +160,14 @@ import org.videolan.vlc.widget.StrokedRobotoTextView;
 import java.io.File;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Queue;
-import java.util.regex.Pattern;
+import java.util.MissingResourceException;
+import java.util.Set;
 
 
 
@@ -369,6 +373,13 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
     private volatile ArrayList<String> mSubtitleFiles = new ArrayList<>();
     private volatile Map<String,Long> mSubtitleFileMapDelay = new HashMap<String,Long>();
     private TimedTextObject mSubs;
+    private CaptionTimeline mSubsTimeline;
+    private volatile CaptionRenderCache mCaptionRenderCache;
+    //caption currently in mSubtitleView, -1 if none
+    private volatile int mShownCaptionIndex = -1;
+    private volatile boolean mShownCaptionClickable = false;
+    //true while mSubs only holds the captions parsed so far
+    private boolean mSubsPartial = false;
     private String mCurrentSubtitlePath = null;
     private Caption mLastCaption = null;
     private Caption mSyncCaption = null;
@@ -765,6 +776,7 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         filter.addAction(EXIT_PLAYER);
         LocalBroadcastManager.getInstance(this).registerReceiver(
                 mServiceReceiver, filter);
+        EmbeddedSubtitleScheduler.getInstance(this).addCallback(mSubtitleExtractionCallback);
         if (mBtReceiver != null) {
             IntentFilter btFilter = new IntentFilter(BluetoothA2dp.ACTION_CONNECTION_STATE_CHANGED);
             btFilter.addAction(BluetoothHeadset.ACTION_CONNECTION_STATE_CHANGED);
@@ -778,6 +790,7 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         super.onStop();
         mMedialibrary.resumeBackgroundOperations();
         LocalBroadcastManager.getInstance(this).unregisterReceiver(mServiceReceiver);
+        EmbeddedSubtitleScheduler.getInstance(this).removeCallback(mSubtitleExtractionCallback);
 
         if (mBtReceiver != null)
             unregisterReceiver(mBtReceiver);
@@ -1054,6 +1067,8 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         mService.stop();
 
         //clear handlerThread
+        if (mProgressSubtitleCaptionThread != null)
+            mProgressSubtitleCaptionThread.quit();
         mProgressSubtitleCaptionThread = null;
     }
 
@@ -2963,15 +2978,46 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
     }
 
 
+    @Override
+    public synchronized void onSubtitleParsePartial(TimedTextObject subtitleCaptions, String subtitleFilePath) {
+        if (mSubs != null && mSubsPartial && subtitleFilePath.equals(mCurrentSubtitlePath)) {
+            updateParsedSubtitle(subtitleCaptions);
+            return;
+        }
+        removeCurrentSubtitle();
+        setParsedSubtitle(subtitleCaptions, subtitleFilePath);
+        mSubsPartial = true;
+    }
+
     @Override
     public synchronized void onSubtitleParseCompleted(boolean isSuccessful, TimedTextObject subtitleCaptions, String subtitleFilePath) {
+        if (mSubs != null && mSubsPartial && subtitleFilePath.equals(mCurrentSubtitlePath)
+                && subtitleCaptions != null && subtitleCaptions.getCaptionCount() > 0) {
+            //captions were already shown while parsing, just switch to the complete list
+            updateParsedSubtitle(subtitleCaptions);
+            mSubsPartial = false;
+            return;
+        }
         removeCurrentSubtitle();
         if((subtitleCaptions == null) || (subtitleCaptions.captions == null ) || (subtitleCaptions.captions.size() == 0)){
             Toast.makeText(this, R.string.subtitle_parse_fail, Toast.LENGTH_LONG).show();
             return;
         }
+        setParsedSubtitle(subtitleCaptions, subtitleFilePath);
+    }
 
+    private void updateParsedSubtitle(TimedTextObject subtitleCaptions) {
+        mSubsTimeline = subtitleCaptions.getTimeline();
+        mCaptionRenderCache = new CaptionRenderCache(mSubsTimeline, mCaptionRenderer);
+        mShownCaptionIndex = -1;
+        mSubs = subtitleCaptions;
+        if(mProgressSubtitleCaptionThread != null && mProgressSubtitleCaptionThread.mProgressSubtitleHanlder != null)
+            mProgressSubtitleCaptionThread.progessCaption();
+    }
 
+    private void setParsedSubtitle(TimedTextObject subtitleCaptions, String subtitleFilePath) {
+        mSubsTimeline = subtitleCaptions.getTimeline();
+        mCaptionRenderCache = new CaptionRenderCache(mSubsTimeline, mCaptionRenderer);
         mSubs = subtitleCaptions;
         mCurrentSubtitlePath = subtitleFilePath;
 
@@ -3003,7 +3049,18 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
     }
 
     private void selectSubtitles() {
-        if(mSubtitleFiles == null || mSubtitleFiles.size()==0)
+        //embedded tracks which are not extracted yet can be picked too
+        final EmbeddedSubtitleScheduler extractionScheduler = EmbeddedSubtitleScheduler.getInstance(this);
+        ArrayList<String> tracks = new ArrayList<>(mSubtitleFiles);
+        //the extraction of a pending track can be cancelled, extracted ones can't be deleted
+        ArrayList<String> extractedTracks = new ArrayList<>(mEncodedSubtitles);
+        ArrayList<String> pendingTracks = getPendingSubtitles();
+        for (String path : pendingTracks) {
+            extractedTracks.remove(path);
+            if(!tracks.contains(path))
+                tracks.add(path);
+        }
+        if(tracks.size()==0)
             return;
         FragmentManager fm = getSupportFragmentManager();
         int trackPosition = -1;
@@ -3016,12 +3073,20 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
             tempPosition++;
         }
 
-        final SubtitleSelectorDialog subtitleSelectorDialog = SubtitleSelectorDialog.newInstance(mSubtitleFiles, mEncodedSubtitles, trackPosition);
+        final SubtitleSelectorDialog subtitleSelectorDialog = SubtitleSelectorDialog.newInstance(tracks, extractedTracks, trackPosition);
+        if(!pendingTracks.isEmpty() && mService != null)
+            subtitleSelectorDialog.setExtractionProgress(pendingTracks,
+                    extractionScheduler.getProgress(Uri.parse(mService.getCurrentMediaLocation()).getPath()));
         subtitleSelectorDialog.setOnTrackClickListener(new SubtitleSelectorDialog.OnTrackClickListener() {
             @Override
             public void onTrackClick(boolean isChecked, String path) {
                 //not unselected the subtitle track
-                if(isChecked){
+                if(isChecked && extractionScheduler.prioritize(path)){
+                    //parsed as soon as it is extracted
+                    mRequestedSubtitlePath = path;
+                    Toast.makeText(getApplicationContext(), R.string.preparing_embeded_subs, Toast.LENGTH_SHORT).show();
+                }
+                else if(isChecked){
                     parseSubtitle(path);
                 }
                 else{
@@ -3034,6 +3099,9 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
 
             @Override
             public void onTrackDelete(final String deletedPath, ArrayList<String> newTracksList) {
+                extractionScheduler.cancelTrack(deletedPath);
+                if(deletedPath.equals(mRequestedSubtitlePath))
+                    mRequestedSubtitlePath = null;
                 VLCApplication.runBackground(new Runnable() {
                     @Override
                     public void run() {
@@ -3044,7 +3112,7 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
                     //close the dialogFragment when user deletes all subTracks
                     getSupportFragmentManager().beginTransaction().remove(subtitleSelectorDialog).commit();
 
-                mSubtitleFiles = newTracksList;
+                mSubtitleFiles.remove(deletedPath);
                 if(mCurrentSubtitlePath!=null && mCurrentSubtitlePath.equals(deletedPath)){
                     removeCurrentSubtitle();
                     mSubtitleDelay = 0;
@@ -3065,6 +3133,9 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
 
         mCurrentSubtitlePath = null;
         mSubs = null;
+        mSubsTimeline = null;
+        mCaptionRenderCache = null;
+        mSubsPartial = false;
         mLastCaption = null;
         hideSubtitleCaption();
         hideCaptionControls();
@@ -3073,6 +3144,7 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
     }
     private void hideSubtitleCaption(){
         mSubtitleView.setVisibility(View.INVISIBLE);
+        mShownCaptionIndex = -1;
 
         //I should set it to "". consider this situation
         // 1:1->1:10 "Hello" and 1:11->1:15 no caption and 1:16->1:20 "Hello"
@@ -3083,52 +3155,40 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
 
 
     private void progressSubtitleCaption() {
-        if ( mService != null && mSubs != null) {
-            Collection<Caption> subtitles = mSubs.captions.values();
+        final CaptionTimeline timeline = mSubsTimeline;
+        if ( mService != null && timeline != null) {
             long currentTime = getTime() - mSubtitleDelay;
             if (mLastCaption != null && currentTime >= mLastCaption.start.getMilliseconds() && currentTime <= mLastCaption.end.getMilliseconds()) {
-                showTimedCaptionText(mLastCaption);
+                showTimedCaptionText(mLastSubIndex);
             } else {
-                int index = 0;
-                for (Caption caption : subtitles) {
-                    if (currentTime >= caption.start.getMilliseconds() && currentTime <= caption.end.getMilliseconds()) {
-                        mLastCaption = caption;
-                        mLastSubIndex = index;
-                        showTimedCaptionText(caption);
-                        return;
-                    } else if (currentTime > caption.end.getMilliseconds()) {
-                        mLastCaption = null;
-                        showTimedCaptionText(null);
-                    }
-                    else if(caption.start.getMilliseconds() > currentTime ) {
-                        //this should be here to set mLastSubIndex to correct one
-                        //when there is no caption for a while and user uses nex and prev buttons
-                        mLastSubIndex = index-1;
-
-                        //for begin of the video when there is no caption yet and user use next button
-                        //then plays again so I should hide the caption
-                        mLastCaption = null;
-                        showTimedCaptionText(null);
-                        //  we don't need to check other captions
-                        return;
-                    }
-                    index++;
+                int index = timeline.firstActiveIndex(currentTime);
+                if (index != -1) {
+                    mLastCaption = timeline.get(index);
+                    mLastSubIndex = index;
+                    showTimedCaptionText(index);
+                } else {
+                    //this should be here to set mLastSubIndex to correct one
+                    //when there is no caption for a while and user uses nex and prev buttons
+                    mLastSubIndex = timeline.floorIndex(currentTime);
+
+                    //for begin of the video when there is no caption yet and user use next button
+                    //then plays again so I should hide the caption
+                    mLastCaption = null;
+                    showTimedCaptionText(-1);
                 }
-                //reached to end of captions and didn't find the caption
-                mLastSubIndex = index-1;
             }
         }
     }
 
     private Caption showNextSubtitleCaption(){
-        if(mSubs == null)
+        final CaptionTimeline timeline = mSubsTimeline;
+        if(timeline == null)
             return null;
-        Collection<Caption> subtitles = mSubs.captions.values();
         Caption caption = null;
-        if(mLastSubIndex < subtitles.size()-1) {
-            caption = (subtitles.toArray(new Caption[subtitles.size()]))[++mLastSubIndex];
+        if(mLastSubIndex < timeline.size()-1) {
+            caption = timeline.get(++mLastSubIndex);
             mLastCaption = caption;
-            showTimedCaptionText(caption);
+            showTimedCaptionText(mLastSubIndex);
         }
         if(mPlaybackSetting == DelayState.SUBS)
             mSyncCaption = caption;
@@ -3138,23 +3198,23 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
     }
 
     private Caption showPrevSubtitleCaption(){
-        if(mSubs == null)
+        final CaptionTimeline timeline = mSubsTimeline;
+        if(timeline == null)
             return null;
 
-        Collection<Caption> subtitles = mSubs.captions.values();
         Caption caption = null;
         if(mLastSubIndex > 0) {
             if(mLastCaption == null){
                 //there is no dialog at current position so I should show latest
-                caption = (subtitles.toArray(new Caption[subtitles.size()]))[mLastSubIndex];
+                caption = timeline.get(mLastSubIndex);
             }
             else
-                caption = (subtitles.toArray(new Caption[subtitles.size()]))[--mLastSubIndex];
+                caption = timeline.get(--mLastSubIndex);
 
             mLastCaption = caption;
 
 
-            showTimedCaptionText(caption);
+            showTimedCaptionText(mLastSubIndex);
         }
 
         if(mPlaybackSetting == DelayState.SUBS)
@@ -3175,27 +3235,19 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
             seekWithOutCaption(caption.start.getMilliseconds());
     }
 
+    //shared by the subtitle thread and the UI thread, see makeClickable
+    private final WordTokenizer mWordTokenizer = new WordTokenizer();
+
     private SpannableStringBuilder makeClickable(String text){
-        SpannableStringBuilder ss = new SpannableStringBuilder("");
-        String pattern = "[-!$%^&*()_+|~=`{}\\[\\]:\\\";'<>?,.\\/\\s+]";
-        Pattern r = Pattern.compile(pattern);
-        String[] words = text.split("(?=[-!$%^&*()_+|~=`{}\\[\\]:\\\";'<>?,.\\/\\s+])|(?<=[-!$%^&*()_+|~=`{}\\[\\]:\\\";'<>?,.\\/\\s+])");
-        int start,end;
-        start = end =  0;
-        int index = 0;
-        for(final String word : words){
-            index++;
-            ss.append(word);
-            end = start + word.length();
-
-            if(!r.matcher(word).find()) {
-                ClickableSpan clickableSpan = new SubTouchSpan(word, text);
-                ss.setSpan(clickableSpan, start, end, 0);
+        SpannableStringBuilder ss = new SpannableStringBuilder(text);
+        synchronized (mWordTokenizer) {
+            final int count = mWordTokenizer.tokenize(text);
+            for (int i = 0; i < count; i++) {
+                final int start = mWordTokenizer.getStart(i);
+                final int end = mWordTokenizer.getEnd(i);
+                ss.setSpan(new SubTouchSpan(text.substring(start, end), text), start, end, 0);
             }
-
-            start = end;
         }
-
         return ss;
     }
 
@@ -3246,8 +3298,25 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         }
     }
 
-    protected void showTimedCaptionText(final Caption text) {
-        if (text == null) {
+    private final CaptionRenderCache.Renderer mCaptionRenderer = new CaptionRenderCache.Renderer() {
+        @Override
+        public CharSequence renderStyled(Caption caption) {
+            return Html.fromHtml(caption.content);
+        }
+
+        @Override
+        public CharSequence renderClickable(CharSequence styled) {
+            //the tags of the styled caption are not kept in clickable subtitles
+            return makeClickable(styled.toString());
+        }
+    };
+
+    /**
+     * @param index index of the caption in mSubsTimeline, -1 to hide the current caption
+     */
+    protected void showTimedCaptionText(final int index) {
+        final CaptionRenderCache renderCache = mCaptionRenderCache;
+        if (index < 0 || renderCache == null) {
             if (mSubtitleView.getText().length() > 0) {
                 mHandler.post(new Runnable() {
                     @Override
@@ -3258,37 +3327,23 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
             }
             return;
         }
-        SpannableStringBuilder styledString = (SpannableStringBuilder) Html.fromHtml(text.content);
-
-
-        if (!mSubtitleView.getText().toString().equals(styledString.toString())) {
-            if(enableTouchSub) {
-//               /*currently I use styledString.toString for clickable sub and I don't use the tags in it */
-//                ForegroundColorSpan[] toRemoveSpans = styledString.getSpans(0, styledString.length(), ForegroundColorSpan.class);
-//                for (ForegroundColorSpan remove : toRemoveSpans) {
-//                    styledString.removeSpan(remove);
-//                }
+        final boolean clickable = enableTouchSub;
+        //still displayed, nothing to render
+        if (index == mShownCaptionIndex && clickable == mShownCaptionClickable)
+            return;
 
-                final SpannableStringBuilder clickableString = makeClickable(styledString.toString());
-                mHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        mSubtitleView.setVisibility(View.VISIBLE);
-                        mSubtitleView.setText(clickableString);
-                    }
-                });
-            }
-            else {
-                final SpannableStringBuilder regularStyledString = styledString;
-                mHandler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        mSubtitleView.setVisibility(View.VISIBLE);
-                        mSubtitleView.setText(regularStyledString);
-                    }
-                });
+        final CharSequence text = renderCache.get(index, clickable);
+        mShownCaptionIndex = index;
+        mShownCaptionClickable = clickable;
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mSubtitleView.setVisibility(View.VISIBLE);
+                mSubtitleView.setText(text);
             }
-        }
+        });
+        if (mProgressSubtitleCaptionThread != null && mProgressSubtitleCaptionThread.mProgressSubtitleHanlder != null)
+            mProgressSubtitleCaptionThread.prefetchCaptions(index + 1);
     }
 
     public ProgressSubtitleCaptionThread mProgressSubtitleCaptionThread;
@@ -3302,8 +3357,11 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
 
     public class ProgressSubtitleCaptionThread extends HandlerThread implements Handler.Callback {
         private Handler mProgressSubtitleHanlder;
+        //captions are prefetched on their own low priority thread, never in line with PROGRESSCAPTION
+        private Handler mPrefetchHandler;
         private SpannableStringBuilder styledString;
         public static final int PROGRESSCAPTION = 0;
+        public static final int PREFETCHCAPTIONS = 1;
 
         public ProgressSubtitleCaptionThread(String name) {
             super(name);
@@ -3313,8 +3371,24 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
             mProgressSubtitleHanlder.sendMessage(mProgressSubtitleHanlder.obtainMessage(PROGRESSCAPTION));
         }
 
+        //renders the upcoming captions once the current one is displayed
+        public void prefetchCaptions(int index){
+            mPrefetchHandler.removeMessages(PREFETCHCAPTIONS);
+            mPrefetchHandler.sendMessage(mPrefetchHandler.obtainMessage(PREFETCHCAPTIONS, index, 0));
+        }
+
         public void prepareHanlder() {
             mProgressSubtitleHanlder = new Handler(getLooper(), this);
+            HandlerThread prefetchThread = new HandlerThread("CaptionPrefetchThread", Process.THREAD_PRIORITY_BACKGROUND);
+            prefetchThread.start();
+            mPrefetchHandler = new Handler(prefetchThread.getLooper(), this);
+        }
+
+        @Override
+        public boolean quit() {
+            if (mPrefetchHandler != null)
+                mPrefetchHandler.getLooper().quit();
+            return super.quit();
         }
 
         @Override
@@ -3323,6 +3397,11 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
                 case PROGRESSCAPTION:
                     progressSubtitleCaption();
                     break;
+                case PREFETCHCAPTIONS:
+                    final CaptionRenderCache renderCache = mCaptionRenderCache;
+                    if (renderCache != null)
+                        renderCache.prefetch(message.arg1, enableTouchSub);
+                    break;
 
             }
             return false;
@@ -3761,15 +3840,40 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
 
     private MediaPlayer.TrackDescription [] mSubtitleTracksList;
     private ArrayList<String> mEncodedSubtitles = new ArrayList<>();
-    private Queue<EncodingSub> mEncodingSubQueue = new LinkedList<>();
-    private class EncodingSub{
-        String path;
-        int id;
-        public EncodingSub(String path,int id){
-            this.path = path;
-            this.id = id;
+    //embedded track picked by the user before it was extracted
+    private String mRequestedSubtitlePath = null;
+    private final EmbeddedSubtitleScheduler.Callback mSubtitleExtractionCallback = new EmbeddedSubtitleScheduler.Callback() {
+        @Override
+        public void onTrackExtracted(String mediaPath, int trackId, String path) {
+            //tracks of another media
+            if(!mEncodedSubtitles.contains(path))
+                return;
+            //already saved by the scheduler
+            addSubtitle(path, true);
+            if(mCurrentSubtitlePath == null || path.equals(mRequestedSubtitlePath)) {
+                mRequestedSubtitlePath = null;
+                parseSubtitle(path);
+            }
+        }
+
+        @Override
+        public void onProgress(String mediaPath, int done, int total) {
+            SubtitleSelectorDialog dialog = (SubtitleSelectorDialog) getSupportFragmentManager().findFragmentByTag("select_subtitles");
+            if(dialog != null && mService != null && mediaPath.equals(Uri.parse(mService.getCurrentMediaLocation()).getPath()))
+                dialog.setExtractionProgress(getPendingSubtitles(), EmbeddedSubtitleScheduler.getInstance(VideoPlayerActivity.this).getProgress(mediaPath));
         }
+    };
+
+    //embedded tracks which are not extracted yet
+    private ArrayList<String> getPendingSubtitles() {
+        final EmbeddedSubtitleScheduler extractionScheduler = EmbeddedSubtitleScheduler.getInstance(this);
+        ArrayList<String> pendingTracks = new ArrayList<>();
+        for (String path : mEncodedSubtitles)
+            if(extractionScheduler.isPending(path))
+                pendingTracks.add(path);
+        return pendingTracks;
     }
+
     private void setESTrackLists() {
         if (mAudioTracksList == null && mService.getAudioTracksCount() > 0)
             mAudioTracksList = mService.getAudioTracks();
@@ -3782,23 +3886,62 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
             if (movieDirectory == null) {
                 return;
             }
+            ArrayList<EmbeddedSubtitleExtractor.Track> tracks = new ArrayList<>();
+            List<String> languages = getPreferredSubtitleLanguages();
+            String preferredPath = null;
+            SparseArray<String> codecs = mService.getSpuTrackCodecs();
             for (MediaPlayer.TrackDescription trackDescription : mSubtitleTracksList) {
                 if(trackDescription.id == -1)
                     continue;
+                //bitmap subtitles can't be converted to srt
+                if(!EmbeddedSubtitleExtractor.isTextCodec(codecs.get(trackDescription.id)))
+                    continue;
                 String srtFileName = (trackDescription.id + trackDescription.name).replaceAll("[^a-zA-Z0-9.-]", "_")+".srt";
                 File srtFile = new File(movieDirectory, srtFileName); //srtFile
                 mEncodedSubtitles.add(srtFile.getAbsolutePath());
 
                 if(!srtFile.exists()) {
-                    EncodingSub encodingSub = new EncodingSub(srtFile.getAbsolutePath(), trackDescription.id);
-                    mEncodingSubQueue.add(encodingSub);
+                    tracks.add(new EmbeddedSubtitleExtractor.Track(trackDescription.id, srtFile.getAbsolutePath()));
+                    if(preferredPath == null && isInLanguages(trackDescription.name, languages))
+                        preferredPath = srtFile.getAbsolutePath();
                 }
             }
-            if(!mEncodingSubQueue.isEmpty())
-                Toast.makeText(getApplicationContext(),R.string.preparing_embeded_subs, Toast.LENGTH_SHORT).show();
+            if(!tracks.isEmpty()) {
+                Toast.makeText(getApplicationContext(), R.string.preparing_embeded_subs, Toast.LENGTH_SHORT).show();
+                //already queued tracks are not extracted again when the player is reopened
+                EmbeddedSubtitleScheduler.getInstance(this).schedule(Uri.parse(mService.getCurrentMediaLocation()).getPath(), tracks, preferredPath);
+            }
+        }
+    }
 
-            generateSubtitles();
+    //names of the subtitle download languages, in English and in the device language
+    private List<String> getPreferredSubtitleLanguages() {
+        Set<String> codes = null;
+        try {
+            codes = Collections.singleton(Locale.getDefault().getISO3Language().toLowerCase());
+        } catch (MissingResourceException ignored) {}
+        if (AndroidUtil.isHoneycombOrLater)
+            codes = mSettings.getStringSet("languages_download_list", codes);
+        ArrayList<String> languages = new ArrayList<>();
+        if (codes == null)
+            return languages;
+        for (String code : codes) {
+            Locale locale = new Locale(code);
+            languages.add(locale.getDisplayLanguage(Locale.ENGLISH).toLowerCase());
+            languages.add(locale.getDisplayLanguage().toLowerCase());
+        }
+        return languages;
+    }
+
+    private static boolean isInLanguages(String trackName, List<String> languages) {
+        if (trackName == null)
+            return false;
+        trackName = trackName.toLowerCase();
+        for (String language : languages) {
+            if (!language.isEmpty() && trackName.contains(language))
+                return true;
         }
+        return false;
     }
 
     /**
@@ -4031,15 +4174,18 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         saveSubtitleDelay(subLocation, delay, getmediaUniqueName());
     }
     private void addAndSaveSubtitle(final Uri subLocation, boolean addTobegin){
-        if(mSubtitleFiles.contains(subLocation.getPath()))
-            return;
+        if(addSubtitle(subLocation.getPath(), addTobegin))
+            saveSubtitleDelay(subLocation,0L);
+    }
+    private boolean addSubtitle(String path, boolean addTobegin){
+        if(mSubtitleFiles.contains(path))
+            return false;
         if(addTobegin)
-            mSubtitleFiles.add(0,subLocation.getPath());
+            mSubtitleFiles.add(0,path);
         else
-            mSubtitleFiles.add(subLocation.getPath());
-        mSubtitleFileMapDelay.put(subLocation.getPath(),0L);
-        saveSubtitleDelay(subLocation,0L);
-
+            mSubtitleFiles.add(path);
+        mSubtitleFileMapDelay.put(path,0L);
+        return true;
     }
     private void saveLastUsedSubtitle(final String subLocation){
         VLCApplication.runBackground(new Runnable() {
@@ -4116,49 +4262,6 @@ public class VideoPlayerActivity extends AppCompatActivity implements IVLCVout.C
         }
     }
 
-    private void generateSubtitles(){
-        if(mEncodingSubQueue.isEmpty())
-            return;
-        EncodingSub encodedSubData = mEncodingSubQueue.poll();
-        final String srtFilePath = encodedSubData.path;
-        final int  i = encodedSubData.id;
-
-        FFmpeg ffmpeg = FFmpeg.getInstance(getApplicationContext());
-        try {
-            ffmpeg.execute(new String[]{"-i",Uri.parse(mService.getCurrentMediaLocation()).getPath(),"-map","0:"+i,srtFilePath,"-y",}, new ExecuteBinaryResponseHandler() {
-                @Override
-                public void onStart() {
-                }
-
-                @Override
-                public void onProgress(String message) {
-                    Log.d(TAG,"ffmpeg execute: "+ "onProgress"+message);
-                }
-
-                @Override
-                public void onFailure(String message) {
-                    Log.d(TAG,"ffmpeg execute: "+ "onFailure"+message);
-                }
-
-                @Override
-                public void onSuccess(String message) {
-                    addAndSaveSubtitle(Uri.parse(srtFilePath), true);
-                    if(mCurrentSubtitlePath == null)
-                        parseSubtitle(srtFilePath);
-                }
-
-                @Override
-                public void onFinish() {
-                    Log.d(TAG,"ffmpeg execute: "+ "onFinish");
-                    generateSubtitles();
-                }
-            });
-        } catch (FFmpegCommandAlreadyRunningException e) {
-            // Handle if FFmpeg is already running
-            Log.d(TAG,"ffmpeg execute: " + "alreadyRunning");
-        }
-    }
-
     public void getSubtitles() {
         if (mSubtitlesGetTask != null || mService == null)
             return;
@@ -40,6 +40,8 @@ import android.view.View;
 
 import org.videolan.libvlc.Media;
 import org.videolan.libvlc.MediaPlayer;
+import org.videolan.vlc.PlaybackService;
+import org.videolan.vlc.VLCApplication;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -104,6 +106,8 @@ public class BenchActivity extends ShallowVideoPlayer {
     private boolean mHasVout = false;
     /* screenshot directory location */
     private String screenshotDir;
+    /* set to true while the result is computed in background */
+    private boolean mSendingResult = false;
 
     @Override
     protected void loadMedia() {
@@ -362,16 +366,31 @@ public class BenchActivity extends ShallowVideoPlayer {
             setResult(RESULT_NO_HW, null);
             super.finish();
         }
-        Intent sendIntent = new Intent();
-        checkLogs();
         if (mService != null) {
-            Media.Stats stats = mService.getLastStats();
-            sendIntent.putExtra("percent_of_bad_seek", 0.0);
-            sendIntent.putExtra("number_of_dropped_frames", (stats == null ? 100 : stats.lostPictures));
-            sendIntent.putExtra("screenshot_folder", Environment.getExternalStorageDirectory() + File.separator + "screenshotFolder");
-            sendIntent.putExtra("late_frames", mLateFrameCounter);
-            setResult(RESULT_OK, sendIntent);
-            super.finish();
+            if (mSendingResult)
+                return;
+            mSendingResult = true;
+            final PlaybackService service = mService;
+            // The stats are computed on the service event thread, wait for them in background
+            VLCApplication.runBackground(new Runnable() {
+                @Override
+                public void run() {
+                    checkLogs();
+                    final Media.Stats stats = service.getLastStats();
+                    VLCApplication.runOnMainThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Intent sendIntent = new Intent();
+                            sendIntent.putExtra("percent_of_bad_seek", 0.0);
+                            sendIntent.putExtra("number_of_dropped_frames", (stats == null ? 100 : stats.lostPictures));
+                            sendIntent.putExtra("screenshot_folder", Environment.getExternalStorageDirectory() + File.separator + "screenshotFolder");
+                            sendIntent.putExtra("late_frames", mLateFrameCounter);
+                            setResult(RESULT_OK, sendIntent);
+                            BenchActivity.super.finish();
+                        }
+                    });
+                }
+            });
         } else {
             errorFinish("PlaybackService is null");
         }
@@ -57,7 +57,7 @@ public class MediaDatabase {
 
     private SQLiteDatabase mDb;
     private static final String DB_NAME = "vlc_database";
-    private static final int DB_VERSION = 1;
+    private static final int DB_VERSION = 2;
     private static final int CHUNK_SIZE = 50;
 
     private static final String DIR_TABLE_NAME = "directories_table";
@@ -128,6 +128,12 @@ public class MediaDatabase {
     private static final String NETWORK_FAV_TITLE = "title";
     private static final String NETWORK_FAV_ICON_URL = "icon_url";
 
+    private static final String MOVIE_HASH_TABLE_NAME = "movie_hash_table";
+    private static final String MOVIE_HASH_PATH = "path";
+    private static final String MOVIE_HASH_SIZE = "size";
+    private static final String MOVIE_HASH_LAST_MODIFIED = "last_modified";
+    private static final String MOVIE_HASH = "hash";
+
     private static final String ANKI_WORDS_TABLE_NAME = "anki_words_table";
     private static final String ANKI_WORD = "anki_word";
     private static final String ANKI_NOTE_ID = "anki_note_id";
@@ -387,6 +393,17 @@ public class MediaDatabase {
             db.execSQL(createMrlTableQuery);
         }
 
+        private void createMovieHashTableQuery(SQLiteDatabase db) {
+            String createMovieHashTableQuery = "CREATE TABLE IF NOT EXISTS " +
+                    MOVIE_HASH_TABLE_NAME + " (" +
+                    MOVIE_HASH_PATH + " TEXT PRIMARY KEY NOT NULL, " +
+                    MOVIE_HASH_SIZE + " INTEGER NOT NULL, " +
+                    MOVIE_HASH_LAST_MODIFIED + " INTEGER NOT NULL, " +
+                    MOVIE_HASH + " TEXT NOT NULL" +
+                    ");";
+            db.execSQL(createMovieHashTableQuery);
+        }
+
         private void createSlavesTableQuery(SQLiteDatabase db) {
             String createMrlTableQuery = "CREATE TABLE IF NOT EXISTS " +
                     SLAVES_TABLE_NAME + " (" +
@@ -438,6 +455,8 @@ public class MediaDatabase {
                 createSlavesTableQuery(db);
 
                 createAnkiWordsTableQuery(db);
+
+                createMovieHashTableQuery(db);
             }
         }
 
@@ -452,6 +471,8 @@ public class MediaDatabase {
                     switch(i) {
                         case 2:
                             createAnkiWordsTableQuery(db);
+                            createMovieHashTableQuery(db);
+                            break;
 //                        case 9:
 //                             Remodelled playlist tables: re-create them
 //                            db.execSQL("DROP TABLE " + PLAYLIST_MEDIA_TABLE_NAME + ";");
@@ -1374,6 +1395,38 @@ public class MediaDatabase {
         return lastUsedSubtitle;
     }
 
+    /**
+     * @return the OpenSubtitles hash of the file at path, null if it was not saved or if the
+     * file changed since
+     */
+    public synchronized String getMovieHash(String path, long size, long lastModified) {
+        if (TextUtils.isEmpty(path))
+            return null;
+        Cursor cursor = mDb.query(MOVIE_HASH_TABLE_NAME,
+                new String[] {MOVIE_HASH},
+                MOVIE_HASH_PATH + "=? and " + MOVIE_HASH_SIZE + "=? and " + MOVIE_HASH_LAST_MODIFIED + "=?",
+                new String[] {path, String.valueOf(size), String.valueOf(lastModified)},
+                null, null, null);
+        String hash = null;
+        if (cursor != null) {
+            if (cursor.moveToFirst())
+                hash = cursor.getString(0);
+            cursor.close();
+        }
+        return hash;
+    }
+
+    public synchronized void saveMovieHash(String path, long size, long lastModified, String hash) {
+        if (TextUtils.isEmpty(path) || TextUtils.isEmpty(hash))
+            return;
+        ContentValues values = new ContentValues();
+        values.put(MOVIE_HASH_PATH, path);
+        values.put(MOVIE_HASH_SIZE, size);
+        values.put(MOVIE_HASH_LAST_MODIFIED, lastModified);
+        values.put(MOVIE_HASH, hash);
+        mDb.replace(MOVIE_HASH_TABLE_NAME, null, values);
+    }
+
     public synchronized  void saveAnkiWord(String word, long noteId){
         if(TextUtils.isEmpty(word))
             return;
@@ -128,6 +128,20 @@ public class MediaWrapperList {
         signalEventListeners(EVENT_MOVED, startPosition, endPosition, toMove.getLocation());
     }
 
+    /**
+     * Replace a media by another one of the same location, e.g. the media library
+     * version of a media. No event is sent, the list doesn't change.
+     */
+    public void replace(int position, MediaWrapper media) {
+        if (!isValid(position))
+            return;
+        final MediaWrapper previous = mInternalList.set(position, media);
+        if (previous.getType() == MediaWrapper.TYPE_VIDEO)
+            --mVideoCount;
+        if (media.getType() == MediaWrapper.TYPE_VIDEO)
+            ++mVideoCount;
+    }
+
     public void remove(int position) {
         if (!isValid(position))
             return;
@@ -0,0 +1,234 @@
+/*****************************************************************************
+ * PlayQueueStore.java
+ *****************************************************************************
+ * Copyright © 2017 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+package org.videolan.vlc.media;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Saves the MRLs of a play queue as a journal of its changes, so that a change of the queue
+ * only appends a few bytes to the file. The journal is compacted into the plain list of MRLs
+ * once it has grown too long compared to the queue, see {@link #needsCompaction()}.
+ *
+ * Not thread safe, all the calls are expected from the same worker thread.
+ */
+public class PlayQueueStore {
+
+    private static final int OP_ADD = 1;
+    private static final int OP_REMOVE = 2;
+    private static final int OP_MOVE = 3;
+
+    /* the journal may hold that many records more than the queue has media */
+    private static final int MIN_COMPACTION_RECORDS = 64;
+
+    private final File mFile;
+    private DataOutputStream mOut = null;
+
+    /* size of the saved queue, and number of records in the journal */
+    private volatile int mSize = 0;
+    private volatile int mRecords = 0;
+
+    public PlayQueueStore(File file) {
+        mFile = file;
+    }
+
+    public boolean exists() {
+        return mFile.exists();
+    }
+
+    /**
+     * Replays the journal. A record cut short by a crash is dropped from the file.
+     *
+     * @return the saved MRLs, empty if nothing has been saved
+     */
+    public List<String> read() throws IOException {
+        close();
+        final List<String> mrls = new ArrayList<>();
+        mSize = 0;
+        mRecords = 0;
+        if (!mFile.exists())
+            return mrls;
+        long valid = 0;
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+        try {
+            while (true) {
+                final int op = in.read();
+                if (op == -1)
+                    break;
+                int length = 1;
+                if (op == OP_ADD) {
+                    final int position = in.readInt();
+                    final String mrl = in.readUTF();
+                    mrls.add(Math.min(Math.max(position, 0), mrls.size()), mrl);
+                    length += 4 + 2 + utfLength(mrl);
+                } else if (op == OP_REMOVE) {
+                    final int position = in.readInt();
+                    if (position >= 0 && position < mrls.size())
+                        mrls.remove(position);
+                    length += 4;
+                } else if (op == OP_MOVE) {
+                    final int from = in.readInt();
+                    final int to = in.readInt();
+                    if (from >= 0 && from < mrls.size() && to >= 0 && to <= mrls.size())
+                        mrls.add(to > from ? to - 1 : to, mrls.remove(from));
+                    length += 8;
+                } else {
+                    break;
+                }
+                valid += length;
+                ++mRecords;
+            }
+        } catch (EOFException e) {
+            //the last record was not written entirely
+        } finally {
+            in.close();
+        }
+        if (valid < mFile.length()) {
+            final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                file.setLength(valid);
+            } finally {
+                file.close();
+            }
+        }
+        mSize = mrls.size();
+        return mrls;
+    }
+
+    /**
+     * Inserts media into the saved queue.
+     *
+     * @param position the position of the first media in the queue
+     */
+    public void add(int position, List<String> mrls) throws IOException {
+        final DataOutputStream out = getOutput();
+        for (String mrl : mrls) {
+            out.writeByte(OP_ADD);
+            out.writeInt(position++);
+            out.writeUTF(mrl);
+        }
+        out.flush();
+        mSize += mrls.size();
+        mRecords += mrls.size();
+    }
+
+    public void add(int position, String mrl) throws IOException {
+        final DataOutputStream out = getOutput();
+        out.writeByte(OP_ADD);
+        out.writeInt(position);
+        out.writeUTF(mrl);
+        out.flush();
+        ++mSize;
+        ++mRecords;
+    }
+
+    public void remove(int position) throws IOException {
+        final DataOutputStream out = getOutput();
+        out.writeByte(OP_REMOVE);
+        out.writeInt(position);
+        out.flush();
+        --mSize;
+        ++mRecords;
+    }
+
+    /**
+     * Moves a media of the saved queue, like {@link MediaWrapperList#move(int, int)}.
+     */
+    public void move(int from, int to) throws IOException {
+        final DataOutputStream out = getOutput();
+        out.writeByte(OP_MOVE);
+        out.writeInt(from);
+        out.writeInt(to);
+        out.flush();
+        ++mRecords;
+    }
+
+    /**
+     * Saves the whole queue again, as a journal of one addition per media. The new journal is
+     * written next to the current one which it replaces when complete.
+     */
+    public void rewrite(List<String> mrls) throws IOException {
+        close();
+        final File tmp = new File(mFile.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            for (int i = 0; i < mrls.size(); ++i) {
+                out.writeByte(OP_ADD);
+                out.writeInt(i);
+                out.writeUTF(mrls.get(i));
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(mFile))
+            throw new IOException("Cannot replace " + mFile);
+        mSize = mrls.size();
+        mRecords = mrls.size();
+    }
+
+    /**
+     * @return whether the journal has grown long enough to be worth a {@link #rewrite(List)}
+     */
+    public boolean needsCompaction() {
+        return mRecords > 2 * mSize + MIN_COMPACTION_RECORDS;
+    }
+
+    public void close() throws IOException {
+        if (mOut != null) {
+            mOut.close();
+            mOut = null;
+        }
+    }
+
+    private DataOutputStream getOutput() throws IOException {
+        if (mOut == null) {
+            final File parent = mFile.getParentFile();
+            if (parent != null && !parent.exists())
+                parent.mkdirs();
+            mOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(mFile, true)));
+        }
+        return mOut;
+    }
+
+    /* number of bytes of the modified UTF-8 written by writeUTF */
+    private static int utfLength(String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            if (c >= 0x0001 && c <= 0x007F)
+                length += 1;
+            else if (c > 0x07FF)
+                length += 3;
+            else
+                length += 2;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,267 @@
+/*****************************************************************************
+ * ShuffleOrder.java
+ *****************************************************************************
+ * Copyright © 2017 VLC authors and VideoLAN
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation; either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston MA 02110-1301, USA.
+ *****************************************************************************/
+package org.videolan.vlc.media;
+
+import java.util.Random;
+
+/**
+ * Play order of a shuffled {@link MediaWrapperList}.
+ *
+ * The order is a Fisher-Yates permutation of the list indexes, drawn one step at a time when
+ * the next media is asked for. The drawn part of the permutation is the history, the rest is
+ * the pool of the media not played yet, so next and previous are O(1) whatever the list size.
+ * The indexes are kept in sync with the list by forwarding its events, see
+ * {@link #onItemAdded(int)}, {@link #onItemRemoved(int)} and {@link #onItemMoved(int, int)}.
+ */
+public class ShuffleOrder {
+
+    private final Random mRandom;
+
+    /* list indexes, [0, mDrawn) in play order, [mDrawn, mSize) not drawn yet */
+    private int[] mOrder = new int[0];
+    private int mSize = 0;
+    private int mDrawn = 0;
+    /* position of the current media in mOrder, -1 if none */
+    private int mCursor = -1;
+
+    public ShuffleOrder() {
+        this(new Random());
+    }
+
+    public ShuffleOrder(Random random) {
+        mRandom = random;
+    }
+
+    /**
+     * @return the number of indexes in the order, 0 if it has been cleared
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+        mDrawn = 0;
+        mCursor = -1;
+    }
+
+    /**
+     * Start a new shuffle of a list, beginning with the current media.
+     *
+     * @param size the size of the list
+     * @param current the index of the current media, -1 if none
+     */
+    public void reset(int size, int current) {
+        if (mOrder.length < size)
+            mOrder = new int[size];
+        for (int i = 0; i < size; ++i)
+            mOrder[i] = i;
+        mSize = size;
+        mDrawn = 0;
+        mCursor = -1;
+        if (current >= 0 && current < size) {
+            swap(0, current);
+            mDrawn = 1;
+            mCursor = 0;
+        }
+    }
+
+    /**
+     * Make an index the current media. Going to the next or previous media only moves the
+     * cursor, any other media is taken out of the order and played right after the current one.
+     *
+     * @param index the index of the media now playing
+     */
+    public void setCurrent(int index) {
+        if (index < 0 || index >= mSize)
+            return;
+        if (mCursor >= 0 && mOrder[mCursor] == index)
+            return;
+        if (mCursor + 1 < mDrawn && mOrder[mCursor + 1] == index) {
+            ++mCursor;
+            return;
+        }
+        if (mCursor > 0 && mOrder[mCursor - 1] == index) {
+            --mCursor;
+            return;
+        }
+        int position = indexOf(index);
+        if (position >= mDrawn) {
+            // Draw it now
+            swap(position, mDrawn);
+            position = mDrawn++;
+        }
+        // Move it right after the cursor
+        final int target = position > mCursor ? mCursor + 1 : mCursor;
+        move(position, target);
+        mCursor = target;
+    }
+
+    /**
+     * @return the index of the previous media, -1 if the current one is the first of the order
+     */
+    public int getPrevious() {
+        return mCursor > 0 ? mOrder[mCursor - 1] : -1;
+    }
+
+    /**
+     * Draw the next media, if needed.
+     *
+     * @param repeat whether to start a new shuffle when all the media have been played
+     * @return the index of the next media, -1 if all the media have been played
+     */
+    public int getNext(boolean repeat) {
+        if (mCursor + 1 >= mSize) {
+            if (!repeat || mSize < 2)
+                return -1;
+            reshuffle();
+        }
+        if (mCursor + 1 == mDrawn) {
+            swap(mDrawn, mDrawn + mRandom.nextInt(mSize - mDrawn));
+            ++mDrawn;
+        }
+        return mOrder[mCursor + 1];
+    }
+
+    /**
+     * Forget the history and put all the other media back into the pool, the current media
+     * starts the new shuffle.
+     */
+    public void reshuffle() {
+        if (mCursor < 0) {
+            mDrawn = 0;
+            return;
+        }
+        swap(0, mCursor);
+        mCursor = 0;
+        mDrawn = 1;
+    }
+
+    /**
+     * Media have been appended to the list without events, they join the pool of media not
+     * played yet.
+     *
+     * @param size the new size of the list
+     */
+    public void append(int size) {
+        if (size <= mSize)
+            return;
+        ensureCapacity(size);
+        while (mSize < size) {
+            mOrder[mSize] = mSize;
+            ++mSize;
+        }
+    }
+
+    /**
+     * A media has been inserted into the list, it joins the pool of media not played yet.
+     */
+    public void onItemAdded(int index) {
+        if (mSize == 0)
+            return;
+        for (int i = 0; i < mSize; ++i) {
+            if (mOrder[i] >= index)
+                ++mOrder[i];
+        }
+        ensureCapacity(mSize + 1);
+        mOrder[mSize++] = index;
+    }
+
+    /**
+     * A media has been removed from the list.
+     */
+    public void onItemRemoved(int index) {
+        if (mSize == 0)
+            return;
+        int position = -1;
+        for (int i = 0; i < mSize; ++i) {
+            if (mOrder[i] == index)
+                position = i;
+            else if (mOrder[i] > index)
+                --mOrder[i];
+        }
+        if (position == -1)
+            return;
+        if (position >= mDrawn) {
+            // The pool has no order
+            mOrder[position] = mOrder[--mSize];
+            return;
+        }
+        System.arraycopy(mOrder, position + 1, mOrder, position, mSize - position - 1);
+        --mSize;
+        --mDrawn;
+        // The previous media becomes the current one if the current one is removed
+        if (position <= mCursor)
+            --mCursor;
+    }
+
+    /**
+     * A media has been moved in the list, the play order doesn't change.
+     *
+     * @param indexBefore the index of the media before the move
+     * @param indexAfter the index to insert the media at, before it was removed
+     */
+    public void onItemMoved(int indexBefore, int indexAfter) {
+        final int destination = indexAfter > indexBefore ? indexAfter - 1 : indexAfter;
+        if (mSize == 0 || destination == indexBefore)
+            return;
+        for (int i = 0; i < mSize; ++i) {
+            final int index = mOrder[i];
+            if (index == indexBefore)
+                mOrder[i] = destination;
+            else if (indexBefore < index && index <= destination)
+                --mOrder[i];
+            else if (destination <= index && index < indexBefore)
+                ++mOrder[i];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mOrder.length) {
+            final int[] order = new int[Math.max(capacity, mOrder.length + (mOrder.length >> 1))];
+            System.arraycopy(mOrder, 0, order, 0, mSize);
+            mOrder = order;
+        }
+    }
+
+    private int indexOf(int index) {
+        for (int i = 0; i < mSize; ++i) {
+            if (mOrder[i] == index)
+                return i;
+        }
+        return -1;
+    }
+
+    private void swap(int i, int j) {
+        final int tmp = mOrder[i];
+        mOrder[i] = mOrder[j];
+        mOrder[j] = tmp;
+    }
+
+    /* Move an entry of the drawn part of the order, shifting the ones in between */
+    private void move(int from, int to) {
+        final int index = mOrder[from];
+        if (from < to)
+            System.arraycopy(mOrder, from + 1, mOrder, from, to - from);
+        else if (from > to)
+            System.arraycopy(mOrder, to, mOrder, to + 1, from - to);
+        mOrder[to] = index;
+    }
+}
@@ -0,0 +1,67 @@
+package org.videolan.vlc.subs;
+
+import android.support.v4.util.LruCache;
+
+/**
+ * Ready to display versions of the captions of a {@link CaptionTimeline}, keyed by caption index.
+ * Styled and clickable variants are kept for the captions around the playback position and the
+ * next ones are rendered ahead with {@link #prefetch(int, boolean)}, so that displaying a caption
+ * is usually a lookup instead of an HTML parse.
+ */
+public class CaptionRenderCache {
+
+    public interface Renderer {
+        /**
+         * @return the caption content ready to be displayed
+         */
+        CharSequence renderStyled(Caption caption);
+
+        /**
+         * @param styled result of {@link #renderStyled(Caption)} for the same caption
+         * @return the caption with its words made clickable
+         */
+        CharSequence renderClickable(CharSequence styled);
+    }
+
+    //number of captions rendered ahead by prefetch()
+    public static final int PREFETCH_WINDOW = 8;
+    private static final int CACHE_SIZE = 4 * PREFETCH_WINDOW;
+
+    private final CaptionTimeline mTimeline;
+    private final Renderer mRenderer;
+    private final LruCache<Integer, CharSequence> mStyled = new LruCache<>(CACHE_SIZE);
+    private final LruCache<Integer, CharSequence> mClickable = new LruCache<>(CACHE_SIZE);
+
+    public CaptionRenderCache(CaptionTimeline timeline, Renderer renderer) {
+        mTimeline = timeline;
+        mRenderer = renderer;
+    }
+
+    public CaptionTimeline getTimeline() {
+        return mTimeline;
+    }
+
+    /**
+     * @param index     index of the caption in the timeline
+     * @param clickable true for the clickable variant
+     * @return the rendered caption, rendered now if it was not in the cache
+     */
+    public CharSequence get(int index, boolean clickable) {
+        LruCache<Integer, CharSequence> cache = clickable ? mClickable : mStyled;
+        CharSequence text = cache.get(index);
+        if (text == null) {
+            text = clickable ? mRenderer.renderClickable(get(index, false)) : mRenderer.renderStyled(mTimeline.get(index));
+            cache.put(index, text);
+        }
+        return text;
+    }
+
+    /**
+     * Renders the captions from index up to {@link #PREFETCH_WINDOW} captions later.
+     */
+    public void prefetch(int index, boolean clickable) {
+        final int end = Math.min(index + PREFETCH_WINDOW, mTimeline.size());
+        for (int i = Math.max(index, 0); i < end; i++)
+            get(i, clickable);
+    }
+}
@@ -0,0 +1,135 @@
+package org.videolan.vlc.subs;
+
+/**
+ * Read-only index over the captions of a {@link TimedTextObject}, built once after parsing.
+ * Get it through {@link TimedTextObject#getTimeline()}.
+ * <p>
+ * Start and end times are kept in primitive arrays sorted by start time, along with a prefix
+ * array of the maximum end time seen so far. As the prefix array is non decreasing, the first
+ * caption still active at a given time can be found with a binary search even when captions
+ * overlap. A cursor remembers the last answer so that regular playback, where the time only
+ * moves forward by small steps, is answered without searching at all.
+ */
+public class CaptionTimeline {
+
+    private final Caption[] mCaptions;
+    private final int[] mStarts;
+    private final int[] mEnds;
+    private final int[] mMaxEnds;
+
+    // index of the last caption returned by firstActiveIndex(), only used as a hint
+    private int mCursor = 0;
+
+    /**
+     * @param captions captions sorted by start time, the array is shared and must not be modified
+     */
+    public CaptionTimeline(Caption[] captions) {
+        final int size = captions.length;
+        mCaptions = captions;
+        mStarts = new int[size];
+        mEnds = new int[size];
+        mMaxEnds = new int[size];
+        int maxEnd = Integer.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            mStarts[i] = captions[i].start.getMilliseconds();
+            mEnds[i] = captions[i].end.getMilliseconds();
+            maxEnd = Math.max(maxEnd, mEnds[i]);
+            mMaxEnds[i] = maxEnd;
+        }
+    }
+
+    public int size() {
+        return mCaptions.length;
+    }
+
+    public Caption get(int index) {
+        return mCaptions[index];
+    }
+
+    public int getStart(int index) {
+        return mStarts[index];
+    }
+
+    public int getEnd(int index) {
+        return mEnds[index];
+    }
+
+    public boolean isActive(int index, long time) {
+        return index >= 0 && index < mCaptions.length && time >= mStarts[index] && time <= mEnds[index];
+    }
+
+    /**
+     * @return index of the last caption starting at or before {@code time}, -1 if none started yet
+     */
+    public int floorIndex(long time) {
+        final int t = clamp(time);
+        int low = 0, high = mStarts.length - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (mStarts[mid] <= t)
+                low = mid + 1;
+            else
+                high = mid - 1;
+        }
+        return high;
+    }
+
+    /**
+     * @return index of the first caption (in start order) displayed at {@code time}, -1 if none
+     */
+    public int firstActiveIndex(long time) {
+        final int t = clamp(time);
+        final int size = mCaptions.length;
+        if (size == 0)
+            return -1;
+
+        // fast path: same caption as last time, or the one right after it
+        final int cursor = mCursor;
+        if (cursor < size) {
+            if (isFirstActive(cursor, t))
+                return cursor;
+            if (cursor + 1 < size && isFirstActive(cursor + 1, t)) {
+                mCursor = cursor + 1;
+                return cursor + 1;
+            }
+        }
+
+        // lower bound of t in the max end prefix: every caption before it is over
+        int low = 0, high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mMaxEnds[mid] < t)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        if (low == size || mStarts[low] > t)
+            return -1;
+        mCursor = low;
+        return low;
+    }
+
+    /**
+     * @return index of the next caption after {@code from} displayed at {@code time}, -1 if none
+     */
+    public int nextActiveIndex(int from, long time) {
+        final int t = clamp(time);
+        for (int i = from + 1; i < mStarts.length && mStarts[i] <= t; i++) {
+            if (mEnds[i] >= t)
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean isFirstActive(int index, int t) {
+        return mStarts[index] <= t && mEnds[index] >= t && (index == 0 || mMaxEnds[index - 1] < t);
+    }
+
+    private static int clamp(long time) {
+        if (time > Integer.MAX_VALUE)
+            return Integer.MAX_VALUE;
+        if (time < Integer.MIN_VALUE)
+            return Integer.MIN_VALUE;
+        return (int) time;
+    }
+}
@@ -17,7 +17,10 @@
 
 package org.videolan.vlc.subs;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 
 /**
@@ -48,7 +51,16 @@ import java.util.ArrayList;
 public class FormatASS extends TimedTextFileFormat {
 
     public TimedTextObject parseFile(String fileName, String[] inputString) throws IOException {
+        return parseFile(fileName, new StringReader(inputString.length == 0 ? "" : join(inputString, "\n")));
+    }
+
+    /**
+     * Streaming parser, the file is read line by line and dialogues are added as they are read.
+     */
+    @Override
+    public TimedTextObject parseFile(String fileName, Reader reader) throws IOException {
 
+        BufferedReader in = toBufferedReader(reader);
         TimedTextObject tto = new TimedTextObject();
         tto.fileName = fileName;
 
@@ -67,12 +79,12 @@ public class FormatASS extends TimedTextFileFormat {
 
         String line;
         int lineCounter = 0;
-        int stringIndex = 0;
+        int nextPartialResult = FIRST_PARTIAL_RESULT;
         try {
             //we scour the file
-            line = getLine(inputString, stringIndex++);
+            line = in.readLine();
             lineCounter++;
-            while (line != null && stringIndex < inputString.length) {
+            while (line != null) {
                 line = line.trim();
                 //we skip any line until we find a section [section name]
                 if (line.startsWith("[")) {
@@ -80,7 +92,7 @@ public class FormatASS extends TimedTextFileFormat {
                     if (line.equalsIgnoreCase("[Script info]")) {
                         //its the script info section section
                         lineCounter++;
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                         //Each line is scanned for useful info until a new section is detected
                         while (!line.startsWith("[")) {
                             if (line.startsWith("Title:"))
@@ -101,7 +113,7 @@ public class FormatASS extends TimedTextFileFormat {
                                 timer = Float.parseFloat(line.split(":")[1].trim().replace(',', '.'));
                             //we go to the next line
                             lineCounter++;
-                            line = getLine(inputString, stringIndex++).trim();
+                            line = in.readLine().trim();
                         }
 
                     } else if (line.equalsIgnoreCase("[v4 Styles]")
@@ -114,20 +126,20 @@ public class FormatASS extends TimedTextFileFormat {
                             tto.warnings += "ScriptType should be set to v4:00+ in the [Script Info] section.\n\n";
                         }
                         lineCounter++;
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                         //the first line should define the format
                         if (!line.startsWith("Format:")) {
                             //if not, we scan for the format.
                             tto.warnings += "Format: (format definition) expected at line " + line + " for the styles section\n\n";
                             while (!line.startsWith("Format:")) {
                                 lineCounter++;
-                                line = getLine(inputString, stringIndex++).trim();
+                                line = in.readLine().trim();
                             }
                         }
                         // we recover the format's fields
                         styleFormat = line.split(":")[1].trim().split(",");
                         lineCounter++;
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                         // we parse each style until we reach a new section
                         while (!line.startsWith("[")) {
                             //we check it is a style
@@ -139,13 +151,13 @@ public class FormatASS extends TimedTextFileFormat {
                             }
                             //next line
                             lineCounter++;
-                            line = getLine(inputString, stringIndex++).trim();
+                            line = in.readLine().trim();
                         }
 
                     } else if (line.trim().equalsIgnoreCase("[Events]")) {
                         //its the events specification section
                         lineCounter++;
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                         tto.warnings += "Only dialogue events are considered, all other events are ignored.\n\n";
                         //the first line should define the format of the dialogues
                         if (!line.startsWith("Format:")) {
@@ -153,14 +165,14 @@ public class FormatASS extends TimedTextFileFormat {
                             tto.warnings += "Format: (format definition) expected at line " + line + " for the events section\n\n";
                             while (!line.startsWith("Format:")) {
                                 lineCounter++;
-                                line = getLine(inputString, stringIndex++).trim();
+                                line = in.readLine().trim();
                             }
                         }
                         // we recover the format's fields
                         dialogueFormat = line.split(":")[1].trim().split(",");
                         //next line
                         lineCounter++;
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                         // we parse each style until we reach a new section
                         while (!line.startsWith("[")) {
                             //we check it is a dialogue
@@ -173,23 +185,31 @@ public class FormatASS extends TimedTextFileFormat {
                                 //in case the key is already there, we increase it by a millisecond, since no duplicates are allowed
                                 while (tto.captions.containsKey(key)) key++;
                                 tto.captions.put(key, caption);
+                                if (captionsParsedListener != null && tto.captions.size() >= nextPartialResult) {
+                                    if (!captionsParsedListener.onCaptionsParsed(tto.snapshot())) {
+                                        //parsing is stopped
+                                        line = null;
+                                        break;
+                                    }
+                                    nextPartialResult *= 2;
+                                }
                             }
                             //next line
                             lineCounter++;
-                            line = getLine(inputString, stringIndex++).trim();
+                            line = in.readLine().trim();
                         }
 
                     } else if (line.trim().equalsIgnoreCase("[Fonts]") || line.trim().equalsIgnoreCase("[Graphics]")) {
                         //its the custom fonts or embedded graphics section
                         //these are not supported
                         tto.warnings += "The section " + line.trim() + " is not supported for conversion, all information there will be lost.\n\n";
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                     } else {
                         tto.warnings += "Unrecognized section: " + line.trim() + " all information there is ignored.";
-                        line = getLine(inputString, stringIndex++).trim();
+                        line = in.readLine().trim();
                     }
                 } else {
-                    line = getLine(inputString, stringIndex++);
+                    line = in.readLine();
                     lineCounter++;
                 }
             }
@@ -200,7 +220,7 @@ public class FormatASS extends TimedTextFileFormat {
             tto.warnings += "unexpected end of file, maybe last caption is not complete.\n\n";
         }
 
-        tto.built = true;
+        tto.build();
         return tto;
     }
 
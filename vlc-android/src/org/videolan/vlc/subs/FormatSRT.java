@@ -17,7 +17,9 @@
 
 package org.videolan.vlc.subs;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -151,11 +153,110 @@ public class FormatSRT extends TimedTextFileFormat {
             tto.warnings += "unexpected end of file, maybe last caption is not complete.\n\n";
         }
 
-        tto.built = true;
+        tto.build();
         return tto;
     }
 
 
+    /**
+     * Streaming parser: reads the file line by line, builds each caption text in a single
+     * StringBuilder and parses time codes in place, so the file content is never split into
+     * an array of lines.
+     */
+    @Override
+    public TimedTextObject parseFile(String fileName, Reader reader) throws IOException {
+
+        TimedTextObject tto = new TimedTextObject();
+        BufferedReader in = toBufferedReader(reader);
+        StringBuilder text = new StringBuilder();
+        StringBuilder warnings = new StringBuilder();
+
+        //the file name is saved
+        tto.fileName = fileName;
+
+        int lineCounter = 0;
+        int nextPartialResult = FIRST_PARTIAL_RESULT;
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            lineCounter++;
+            //if its a blank line, ignore it, otherwise...
+            if (line.isEmpty())
+                continue;
+
+            //captions without increasing number start directly with the time line
+            if (isCaptionNumber(line)) {
+                line = in.readLine();
+                lineCounter++;
+                if (line == null) {
+                    warnings.append("unexpected end of file, maybe last caption is not complete.\n\n");
+                    break;
+                }
+                line = line.trim();
+            }
+
+            int start = Time.parseSRTTime(line, 0);
+            int arrow = line.indexOf("-->");
+            int end = -1;
+            if (arrow != -1) {
+                int from = arrow + 3;
+                while (from < line.length() && line.charAt(from) == ' ')
+                    from++;
+                end = Time.parseSRTTime(line, from);
+            }
+
+            if (start < 0 || end < 0) {
+                warnings.append("incorrect time format at line ").append(lineCounter);
+                //we go to next blank
+                while ((line = in.readLine()) != null) {
+                    lineCounter++;
+                    if (line.trim().isEmpty())
+                        break;
+                }
+                if (line == null)
+                    break;
+                continue;
+            }
+
+            //caption text lasts until the next blank line
+            text.setLength(0);
+            while ((line = in.readLine()) != null) {
+                lineCounter++;
+                line = line.trim();
+                if (line.isEmpty())
+                    break;
+                if (text.length() > 0)
+                    text.append("<br />");
+                text.append(line);
+            }
+
+            Caption caption = new Caption();
+            caption.start = new Time(start);
+            caption.end = new Time(end);
+            caption.content = text.toString();
+            int key = start;
+            //in case the key is already there, we increase it by a millisecond, since no duplicates are allowed
+            while (tto.captions.containsKey(key)) key++;
+            if (key != start)
+                warnings.append("caption with same start time found...\n\n");
+            //we add the caption.
+            tto.captions.put(key, caption);
+
+            if (captionsParsedListener != null && tto.captions.size() >= nextPartialResult) {
+                if (!captionsParsedListener.onCaptionsParsed(tto.snapshot()))
+                    break;
+                nextPartialResult *= 2;
+            }
+
+            if (line == null)
+                break;
+        }
+
+        tto.warnings += warnings;
+        tto.build();
+        return tto;
+    }
+
     public String[] toFile(TimedTextObject tto) {
 
         //first we check if the TimedTextObject had been built, otherwise...
@@ -203,6 +304,18 @@ public class FormatSRT extends TimedTextFileFormat {
 
 	/* PRIVATE METHODS */
 
+    private static boolean isCaptionNumber(String line) {
+        final int length = line.length();
+        if (length == 0 || length > 9)
+            return false;
+        for (int i = 0; i < length; i++) {
+            final char c = line.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
     /**
      * This method cleans caption.content of XML and parses line breaks.
      */
@@ -5,8 +5,12 @@ import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -41,6 +45,13 @@ import javax.xml.parsers.DocumentBuilderFactory;
  */
 public class FormatTTML extends TimedTextFileFormat {
 
+    private static XmlPullParserFactory sPullParserFactory;
+
+    private static synchronized XmlPullParserFactory getPullParserFactory() throws XmlPullParserException {
+        if (sPullParserFactory == null)
+            sPullParserFactory = XmlPullParserFactory.newInstance();
+        return sPullParserFactory;
+    }
 
     public TimedTextObject parseFile(String fileName, String[] inputString) throws IOException, FatalParsingException {
 
@@ -71,141 +82,20 @@ public class FormatTTML extends TimedTextFileFormat {
             tto.warnings += "Styling attributes are only recognized inside a style definition, to be referenced later in the captions.\n\n";
             //we parse the styles
             for (int i = 0; i < styleN.getLength(); i++) {
-                Style style = new Style(Style.defaultID());
-                node = styleN.item(i);
-                NamedNodeMap attr = node.getAttributes();
-                //we get the id
-                Node currentAtr = attr.getNamedItem("id");
-                if (currentAtr != null)
-                    style.iD = currentAtr.getNodeValue();
-                currentAtr = attr.getNamedItem("xml:id");
-                if (currentAtr != null)
-                    style.iD = currentAtr.getNodeValue();
-
-                //we get the style it may be based upon
-                currentAtr = attr.getNamedItem("style");
-                if (currentAtr != null)
-                    if (tto.styling.containsKey(currentAtr.getNodeValue()))
-                        style = new Style(style.iD, tto.styling.get(currentAtr.getNodeValue()));
-
-                //we check for background color
-                currentAtr = attr.getNamedItem("tts:backgroundColor");
-                if (currentAtr != null)
-                    style.backgroundColor = parseColor(currentAtr.getNodeValue(), tto);
-
-                //we check for color
-                currentAtr = attr.getNamedItem("tts:color");
-                if (currentAtr != null)
-                    style.color = parseColor(currentAtr.getNodeValue(), tto);
-
-                //we check for font family
-                currentAtr = attr.getNamedItem("tts:fontFamily");
-                if (currentAtr != null)
-                    style.font = currentAtr.getNodeValue();
-
-                //we check for font size
-                currentAtr = attr.getNamedItem("tts:fontSize");
-                if (currentAtr != null)
-                    style.fontSize = currentAtr.getNodeValue();
-
-                //we check for italics
-                currentAtr = attr.getNamedItem("tts:fontStyle");
-                if (currentAtr != null)
-                    if (currentAtr.getNodeValue().equalsIgnoreCase("italic") || currentAtr.getNodeValue().equalsIgnoreCase("oblique"))
-                        style.italic = true;
-                    else if (currentAtr.getNodeValue().equalsIgnoreCase("normal"))
-                        style.italic = false;
-
-                //we check for bold
-                currentAtr = attr.getNamedItem("tts:fontWeight");
-                if (currentAtr != null)
-                    if (currentAtr.getNodeValue().equalsIgnoreCase("bold"))
-                        style.bold = true;
-                    else if (currentAtr.getNodeValue().equalsIgnoreCase("normal"))
-                        style.bold = false;
-
-                //we check opacity (to set the alpha)
-                currentAtr = attr.getNamedItem("tts:opacity");
-                if (currentAtr != null) {
-                    try {
-                        //a number between 1.0 and 0
-                        float alpha = Float.parseFloat(currentAtr.getNodeValue());
-                        if (alpha > 1)
-                            alpha = 1;
-                        else if (alpha < 0)
-                            alpha = 0;
-
-                        String aa = Integer.toHexString((int) (alpha * 255));
-                        if (aa.length() < 2)
-                            aa = "0" + aa;
-
-                        style.color = style.color.substring(0, 6) + aa;
-                        style.backgroundColor = style.backgroundColor.substring(0, 6) + aa;
-
-                    } catch (NumberFormatException e) {
-                        //ignore the alpha
-                    }
-                }
-
-                //we check for text align
-                currentAtr = attr.getNamedItem("tts:textAlign");
-                if (currentAtr != null)
-                    if (currentAtr.getNodeValue().equalsIgnoreCase("left") || currentAtr.getNodeValue().equalsIgnoreCase("start"))
-                        style.textAlign = "bottom-left";
-                    else if (currentAtr.getNodeValue().equalsIgnoreCase("right") || currentAtr.getNodeValue().equalsIgnoreCase("end"))
-                        style.textAlign = "bottom-right";
-
-                //we check for underline
-                currentAtr = attr.getNamedItem("tts:textDecoration");
-                if (currentAtr != null)
-                    if (currentAtr.getNodeValue().equalsIgnoreCase("underline"))
-                        style.underline = true;
-                    else if (currentAtr.getNodeValue().equalsIgnoreCase("noUnderline"))
-                        style.underline = false;
-
+                Style style = parseStyle(new NodeAttributes(styleN.item(i)), tto);
                 //we add the style
                 tto.styling.put(style.iD, style);
             }
 
+            final int frameRate = getRate(doc, "ttp:frameRate");
+            final int tickRate = getRate(doc, "ttp:tickRate");
+
             //we parse the captions
             for (int i = 0; i < captionsN.getLength(); i++) {
                 Caption caption = new Caption();
                 caption.content = "";
-                boolean validCaption = true;
                 node = captionsN.item(i);
-
-                NamedNodeMap attr = node.getAttributes();
-                //we get the begin time
-                Node currentAtr = attr.getNamedItem("begin");
-                //if no begin is present, 0 is assumed
-                caption.start = new Time("", "");
-                caption.end = new Time("", "");
-                if (currentAtr != null)
-                    caption.start.mseconds = parseTimeExpression(currentAtr.getNodeValue(), tto, doc);
-
-                //we get the end time, if present, duration is ignored, otherwise end is calculated from duration
-                currentAtr = attr.getNamedItem("end");
-                if (currentAtr != null)
-                    caption.end.mseconds = parseTimeExpression(currentAtr.getNodeValue(), tto, doc);
-                else {
-                    currentAtr = attr.getNamedItem("dur");
-                    if (currentAtr != null)
-                        caption.end.mseconds = caption.start.mseconds + parseTimeExpression(currentAtr.getNodeValue(), tto, doc);
-                    else
-                        //no end or duration, invalid format, caption is discarded
-                        validCaption = false;
-                }
-
-                //we get the style
-                currentAtr = attr.getNamedItem("style");
-                if (currentAtr != null) {
-                    Style style = tto.styling.get(currentAtr.getNodeValue());
-                    if (style != null)
-                        caption.style = style;
-                    else
-                        //unrecognized style
-                        tto.warnings += "unrecoginzed style referenced: " + currentAtr.getNodeValue() + "\n\n";
-                }
+                boolean validCaption = parseCaptionAttributes(caption, new NodeAttributes(node), tto, frameRate, tickRate);
 
                 //we save the text
                 NodeList textN = node.getChildNodes();
@@ -238,11 +128,105 @@ public class FormatTTML extends TimedTextFileFormat {
         }
 
 
-        tto.built = true;
+        tto.build();
         return tto;
     }
 
 
+    /**
+     * Streaming parser based on {@link XmlPullParser}: styles and captions are read as their
+     * elements go by, so no DOM of the whole file is built.
+     */
+    @Override
+    public TimedTextObject parseFile(String fileName, Reader reader) throws IOException, FatalParsingException {
+
+        TimedTextObject tto = new TimedTextObject();
+        tto.fileName = fileName;
+        tto.warnings += "Styling attributes are only recognized inside a style definition, to be referenced later in the captions.\n\n";
+
+        int frameRate = 0;
+        int tickRate = 0;
+        int nextPartialResult = FIRST_PARTIAL_RESULT;
+        StringBuilder text = new StringBuilder();
+        //caption or metadata element being read
+        Caption caption = null;
+        boolean validCaption = false;
+        String metadata = null;
+        try {
+            XmlPullParser parser = getPullParserFactory().newPullParser();
+            parser.setInput(reader);
+            PullParserAttributes attributes = new PullParserAttributes(parser);
+            int eventType = parser.getEventType();
+            while (eventType != XmlPullParser.END_DOCUMENT) {
+                if (eventType == XmlPullParser.START_TAG) {
+                    String name = parser.getName();
+                    //elements of the ttml namespace may be prefixed
+                    String localName = name.substring(name.indexOf(':') + 1);
+                    if (localName.equals("tt")) {
+                        frameRate = parseRate(attributes.get("ttp:frameRate"));
+                        tickRate = parseRate(attributes.get("ttp:tickRate"));
+                    } else if (name.equals("ttm:title") || name.equals("ttm:copyright") || name.equals("ttm:desc")) {
+                        metadata = name;
+                        text.setLength(0);
+                    } else if (localName.equals("style") && caption == null) {
+                        Style style = parseStyle(attributes, tto);
+                        tto.styling.put(style.iD, style);
+                    } else if (localName.equals("p")) {
+                        caption = new Caption();
+                        validCaption = parseCaptionAttributes(caption, attributes, tto, frameRate, tickRate);
+                        text.setLength(0);
+                    } else if (localName.equals("br") && caption != null) {
+                        text.append("<br />");
+                    }
+                } else if (eventType == XmlPullParser.TEXT) {
+                    if (caption != null)
+                        appendCollapsed(text, parser.getText());
+                    else if (metadata != null)
+                        text.append(parser.getText());
+                } else if (eventType == XmlPullParser.END_TAG) {
+                    String name = parser.getName();
+                    if (name.equals(metadata)) {
+                        if (name.equals("ttm:title"))
+                            tto.title = text.toString();
+                        else if (name.equals("ttm:copyright"))
+                            tto.copyright = text.toString();
+                        else
+                            tto.description = text.toString();
+                        metadata = null;
+                    } else if (caption != null && name.substring(name.indexOf(':') + 1).equals("p")) {
+                        caption.content = text.toString().trim();
+                        //is this check worth it?
+                        if (caption.content.replace("<br />", "").trim().isEmpty())
+                            validCaption = false;
+
+                        //and save the caption
+                        if (validCaption) {
+                            int key = caption.start.mseconds;
+                            //in case the key is already there, we increase it by a millisecond, since no duplicates are allowed
+                            while (tto.captions.containsKey(key)) key++;
+                            tto.captions.put(key, caption);
+
+                            if (captionsParsedListener != null && tto.captions.size() >= nextPartialResult) {
+                                if (!captionsParsedListener.onCaptionsParsed(tto.snapshot()))
+                                    break;
+                                nextPartialResult *= 2;
+                            }
+                        }
+                        caption = null;
+                    }
+                }
+                eventType = parser.next();
+            }
+        } catch (XmlPullParserException e) {
+            e.printStackTrace();
+            //this could be a fatal error...
+            throw new FatalParsingException("Error during parsing: " + e.getMessage());
+        }
+
+        tto.build();
+        return tto;
+    }
+
     public String[] toFile(TimedTextObject tto) {
 
         //first we check if the TimedTextObject had been built, otherwise...
@@ -362,6 +346,224 @@ public class FormatTTML extends TimedTextFileFormat {
 
 	/* PRIVATE METHODS */
 
+    /**
+     * Parses a style definition.
+     *
+     * @param attr attributes of the style element
+     * @return the new style
+     */
+    private Style parseStyle(AttributeSource attr, TimedTextObject tto) {
+        Style style = new Style(Style.defaultID());
+        //we get the id
+        String currentAtr = attr.get("id");
+        if (currentAtr != null)
+            style.iD = currentAtr;
+        currentAtr = attr.get("xml:id");
+        if (currentAtr != null)
+            style.iD = currentAtr;
+
+        //we get the style it may be based upon
+        currentAtr = attr.get("style");
+        if (currentAtr != null)
+            if (tto.styling.containsKey(currentAtr))
+                style = new Style(style.iD, tto.styling.get(currentAtr));
+
+        //we check for background color
+        currentAtr = attr.get("tts:backgroundColor");
+        if (currentAtr != null)
+            style.backgroundColor = parseColor(currentAtr, tto);
+
+        //we check for color
+        currentAtr = attr.get("tts:color");
+        if (currentAtr != null)
+            style.color = parseColor(currentAtr, tto);
+
+        //we check for font family
+        currentAtr = attr.get("tts:fontFamily");
+        if (currentAtr != null)
+            style.font = currentAtr;
+
+        //we check for font size
+        currentAtr = attr.get("tts:fontSize");
+        if (currentAtr != null)
+            style.fontSize = currentAtr;
+
+        //we check for italics
+        currentAtr = attr.get("tts:fontStyle");
+        if (currentAtr != null)
+            if (currentAtr.equalsIgnoreCase("italic") || currentAtr.equalsIgnoreCase("oblique"))
+                style.italic = true;
+            else if (currentAtr.equalsIgnoreCase("normal"))
+                style.italic = false;
+
+        //we check for bold
+        currentAtr = attr.get("tts:fontWeight");
+        if (currentAtr != null)
+            if (currentAtr.equalsIgnoreCase("bold"))
+                style.bold = true;
+            else if (currentAtr.equalsIgnoreCase("normal"))
+                style.bold = false;
+
+        //we check opacity (to set the alpha)
+        currentAtr = attr.get("tts:opacity");
+        if (currentAtr != null) {
+            try {
+                //a number between 1.0 and 0
+                float alpha = Float.parseFloat(currentAtr);
+                if (alpha > 1)
+                    alpha = 1;
+                else if (alpha < 0)
+                    alpha = 0;
+
+                String aa = Integer.toHexString((int) (alpha * 255));
+                if (aa.length() < 2)
+                    aa = "0" + aa;
+
+                style.color = style.color.substring(0, 6) + aa;
+                style.backgroundColor = style.backgroundColor.substring(0, 6) + aa;
+
+            } catch (NumberFormatException e) {
+                //ignore the alpha
+            }
+        }
+
+        //we check for text align
+        currentAtr = attr.get("tts:textAlign");
+        if (currentAtr != null)
+            if (currentAtr.equalsIgnoreCase("left") || currentAtr.equalsIgnoreCase("start"))
+                style.textAlign = "bottom-left";
+            else if (currentAtr.equalsIgnoreCase("right") || currentAtr.equalsIgnoreCase("end"))
+                style.textAlign = "bottom-right";
+
+        //we check for underline
+        currentAtr = attr.get("tts:textDecoration");
+        if (currentAtr != null)
+            if (currentAtr.equalsIgnoreCase("underline"))
+                style.underline = true;
+            else if (currentAtr.equalsIgnoreCase("noUnderline"))
+                style.underline = false;
+
+        return style;
+    }
+
+    /**
+     * Reads begin, end (or dur) and style attributes of a caption element.
+     *
+     * @return false if the caption has no end nor duration and must be discarded
+     */
+    private boolean parseCaptionAttributes(Caption caption, AttributeSource attr, TimedTextObject tto, int frameRate, int tickRate) {
+        boolean validCaption = true;
+        //we get the begin time
+        String currentAtr = attr.get("begin");
+        //if no begin is present, 0 is assumed
+        caption.start = new Time("", "");
+        caption.end = new Time("", "");
+        if (currentAtr != null)
+            caption.start.mseconds = parseTimeExpression(currentAtr, frameRate, tickRate);
+
+        //we get the end time, if present, duration is ignored, otherwise end is calculated from duration
+        currentAtr = attr.get("end");
+        if (currentAtr != null)
+            caption.end.mseconds = parseTimeExpression(currentAtr, frameRate, tickRate);
+        else {
+            currentAtr = attr.get("dur");
+            if (currentAtr != null)
+                caption.end.mseconds = caption.start.mseconds + parseTimeExpression(currentAtr, frameRate, tickRate);
+            else
+                //no end or duration, invalid format, caption is discarded
+                validCaption = false;
+        }
+
+        //we get the style
+        currentAtr = attr.get("style");
+        if (currentAtr != null) {
+            Style style = tto.styling.get(currentAtr);
+            if (style != null)
+                caption.style = style;
+            else
+                //unrecognized style
+                tto.warnings += "unrecoginzed style referenced: " + currentAtr + "\n\n";
+        }
+        return validCaption;
+    }
+
+    /**
+     * @return the rate defined by the first element with this name, 0 if there is none
+     */
+    private int getRate(Document doc, String name) {
+        Node n = doc.getElementsByTagName(name).item(0);
+        if (n != null) {
+            try {
+                return Integer.parseInt(n.getNodeValue());
+            } catch (NumberFormatException e) {
+                //should not happen, but if it does, use default value...
+            }
+        }
+        return 0;
+    }
+
+    private static int parseRate(String rate) {
+        if (rate != null) {
+            try {
+                return Integer.parseInt(rate.trim());
+            } catch (NumberFormatException e) {
+                //should not happen, but if it does, use default value...
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Appends text content of a caption, any run of white spaces becomes a single space and
+     * no space is kept at the beginning of a line.
+     */
+    private static void appendCollapsed(StringBuilder text, String content) {
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (Character.isWhitespace(c)) {
+                int last = text.length() - 1;
+                if (last >= 0 && text.charAt(last) != ' ' && text.charAt(last) != '>')
+                    text.append(' ');
+            } else
+                text.append(c);
+        }
+    }
+
+    /**
+     * Gives access to the attributes of an element, whichever parser read it.
+     */
+    private interface AttributeSource {
+        String get(String name);
+    }
+
+    private static class NodeAttributes implements AttributeSource {
+        private final NamedNodeMap attributes;
+
+        NodeAttributes(Node node) {
+            attributes = node.getAttributes();
+        }
+
+        @Override
+        public String get(String name) {
+            Node attribute = attributes.getNamedItem(name);
+            return attribute != null ? attribute.getNodeValue() : null;
+        }
+    }
+
+    private static class PullParserAttributes implements AttributeSource {
+        private final XmlPullParser parser;
+
+        PullParserAttributes(XmlPullParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public String get(String name) {
+            return parser.getAttributeValue(null, name);
+        }
+    }
+
+
     /**
      * Identifies the color expression and obtains the RGBA equivalent value.
      *
@@ -433,7 +635,7 @@ public class FormatTTML extends TimedTextFileFormat {
      * @param timeExpression
      * @return
      */
-    private int parseTimeExpression(String timeExpression, TimedTextObject tto, Document doc) {
+    private int parseTimeExpression(String timeExpression, int frameRate, int tickRate) {
         int mSeconds = 0;
         if (timeExpression.contains(":")) {
             //it is a clock time
@@ -450,23 +652,13 @@ public class FormatTTML extends TimedTextFileFormat {
                 //we have h:m:s:f.fraction
                 int h, m, s;
                 float f;
-                int frameRate = 25;
-                //we recover the frame rate
-                Node n = doc.getElementsByTagName("ttp:frameRate").item(0);
-                if (n != null) {
-                    //used as auxiliary string
-                    String aux = n.getNodeValue();
-                    try {
-                        frameRate = Integer.parseInt(aux);
-                    } catch (NumberFormatException e) {
-                        //should not happen, but if it does, use default value...
-                    }
-                }
+                //25 is used when no frame rate is defined
+                int rate = frameRate > 0 ? frameRate : 25;
                 h = Integer.parseInt(parts[0]);
                 m = Integer.parseInt(parts[1]);
                 s = Integer.parseInt(parts[2]);
                 f = Float.parseFloat(parts[3]);
-                mSeconds = h * 3600000 + m * 60000 + s * 1000 + (int) (f * 1000 / frameRate);
+                mSeconds = h * 3600000 + m * 60000 + s * 1000 + (int) (f * 1000 / rate);
             } else {
                 //unrecognized  clock time format
             }
@@ -491,27 +683,12 @@ public class FormatTTML extends TimedTextFileFormat {
                     mSeconds = (int) time;
 
                 else if (metric.equalsIgnoreCase("f")) {
-                    int frameRate;
-                    //we recover the frame rate
-                    Node n = doc.getElementsByTagName("ttp:frameRate").item(0);
-                    if (n != null) {
-                        //used as auxiliary string
-                        String s = n.getNodeValue();
-                        frameRate = Integer.parseInt(s);
+                    if (frameRate > 0)
                         mSeconds = (int) (time * 1000 / frameRate);
-                    }
 
                 } else if (metric.equalsIgnoreCase("t")) {
-                    int tickRate;
-                    //we recover the tick rate
-                    Node n = doc.getElementsByTagName("ttp:tickRate").item(0);
-                    if (n != null) {
-                        //used as auxiliary string
-                        String s = n.getNodeValue();
-                        tickRate = Integer.parseInt(s);
+                    if (tickRate > 0)
                         mSeconds = (int) (time * 1000 / tickRate);
-                    }
-
 
                 } else {
                     //invalid metric
@@ -17,7 +17,9 @@
 
 package org.videolan.vlc.subs;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -112,7 +114,107 @@ public class FormatVTT extends TimedTextFileFormat {
             tto.warnings += "unexpected end of file, maybe last caption is not complete.\n\n";
         }
 
-        tto.built = true;
+        tto.build();
+        return tto;
+    }
+
+    /**
+     * Streaming parser, the file is read line by line. Unlike the String[] version, cue
+     * identifiers are optional and "mm:ss.ms" times are accepted, as allowed by WebVTT.
+     */
+    @Override
+    public TimedTextObject parseFile(String fileName, Reader reader) throws IOException {
+        TimedTextObject tto = new TimedTextObject();
+        BufferedReader in = toBufferedReader(reader);
+        StringBuilder text = new StringBuilder();
+        StringBuilder warnings = new StringBuilder();
+
+        //the file name is saved
+        tto.fileName = fileName;
+
+        //the header lasts until the first blank line
+        String line = in.readLine();
+        int lineCounter = 1;
+        if (line == null || !line.replace("\uFEFF", "").trim().startsWith("WEBVTT"))
+            warnings.append("WEBVTT expected at line 1\n\n");
+        while (line != null && !line.trim().isEmpty()) {
+            line = in.readLine();
+            lineCounter++;
+        }
+
+        int nextPartialResult = FIRST_PARTIAL_RESULT;
+        while (line != null && (line = in.readLine()) != null) {
+            line = line.trim();
+            lineCounter++;
+            //if its a blank line, ignore it, otherwise...
+            if (line.isEmpty())
+                continue;
+
+            int arrow = line.indexOf("-->");
+            if (arrow == -1 && !line.startsWith("NOTE") && !line.startsWith("STYLE") && !line.startsWith("REGION")) {
+                //cue identifier, the timing line follows
+                line = in.readLine();
+                lineCounter++;
+                if (line == null)
+                    break;
+                line = line.trim();
+                arrow = line.indexOf("-->");
+            }
+
+            int start = -1, end = -1;
+            if (arrow != -1) {
+                start = Time.parseVTTTime(line, 0);
+                int from = arrow + 3;
+                while (from < line.length() && line.charAt(from) == ' ')
+                    from++;
+                end = Time.parseVTTTime(line, from);
+            }
+
+            if (start < 0 || end < 0) {
+                if (arrow != -1)
+                    warnings.append("incorrect time format at line ").append(lineCounter).append("\n\n");
+                //comments, styles, regions and invalid cues are skipped up to the next blank line
+                while ((line = in.readLine()) != null) {
+                    lineCounter++;
+                    if (line.trim().isEmpty())
+                        break;
+                }
+                continue;
+            }
+
+            //cue text lasts until the next blank line
+            text.setLength(0);
+            while ((line = in.readLine()) != null) {
+                lineCounter++;
+                line = line.trim();
+                if (line.isEmpty())
+                    break;
+                if (text.length() > 0)
+                    text.append("<br />");
+                text.append(line);
+            }
+
+            Caption caption = new Caption();
+            caption.start = new Time(start);
+            caption.end = new Time(end);
+            caption.content = text.toString();
+            int key = start;
+            //in case the key is already there, we increase it by a millisecond, since no duplicates are allowed
+            while (tto.captions.containsKey(key)) key++;
+            if (key != start)
+                warnings.append("caption with same start time found...\n\n");
+            //we add the caption.
+            tto.captions.put(key, caption);
+
+            if (captionsParsedListener != null && tto.captions.size() >= nextPartialResult) {
+                if (!captionsParsedListener.onCaptionsParsed(tto.snapshot()))
+                    break;
+                nextPartialResult *= 2;
+            }
+        }
+
+        tto.warnings += warnings;
+        tto.build();
         return tto;
     }
 
@@ -17,6 +17,8 @@
 
 package org.videolan.vlc.subs;
 
+import android.support.v4.util.LruCache;
+
 import org.mozilla.universalchardet.Constants;
 import org.mozilla.universalchardet.UniversalDetector;
 
@@ -31,13 +33,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Writer;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.HashMap;
 
 
@@ -45,6 +50,11 @@ public class SubUtils {
 
     private static HashMap<String, String> sOverrideMap;
 
+    //maximum number of bytes read to detect the charset of a file
+    public static final int DETECTION_BUDGET = 64 * 1024;
+    //detected charsets by file path, size and modification date
+    private static final LruCache<String, String> sDetectedCharsets = new LruCache<>(32);
+
     static {
         sOverrideMap = new HashMap<>();
         sOverrideMap.put("tr", "ISO-8859-9");
@@ -122,8 +132,87 @@ public class SubUtils {
      * @throws IOException
      */
     public static String inputstreamToCharsetString(InputStream inputStream, String languageCode, String manualCharset) throws IOException {
-        UniversalDetector charsetDetector = new UniversalDetector(null);
         ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        String detectedCharset = readAndDetectCharset(inputStream, byteArrayOutputStream, languageCode, manualCharset);
+
+        byte[] stringBytes = byteArrayOutputStream.toByteArray();
+        Charset charset = Charset.forName(detectedCharset);
+        CharsetDecoder decoder = charset.newDecoder();
+
+        try {
+            CharBuffer charBuffer = decoder.decode(ByteBuffer.wrap(stringBytes));
+            return charBuffer.toString();
+        } catch (CharacterCodingException e) {
+            return new String(stringBytes, detectedCharset);
+        }
+    }
+
+    /**
+     * Get the contents of a file as a {@link Reader} decoding the detected charset.
+     * Only the first {@link #DETECTION_BUDGET} bytes are used to detect the charset, and the
+     * result is remembered for this file. Content is then decoded straight from the file channel
+     * while it is read, so the file is never copied in memory.
+     *
+     * @param file subtitle file
+     * @param languageCode Language code for charset override
+     * @param manualCharset Charset chosen by the user, empty for automatic detection
+     * @return Reader over the decoded contents, closing it closes the file
+     * @throws IOException
+     */
+    public static Reader fileToCharsetReader(File file, String languageCode, String manualCharset) throws IOException {
+        return fileToCharsetReader(file, languageCode, manualCharset, DETECTION_BUDGET);
+    }
+
+    /**
+     * Same as {@link #fileToCharsetReader(File, String, String)} with a custom detection budget.
+     *
+     * @param detectionBudget maximum number of bytes given to the charset detector
+     */
+    public static Reader fileToCharsetReader(File file, String languageCode, String manualCharset, int detectionBudget) throws IOException {
+        FileInputStream fileInputStream = new FileInputStream(file);
+        try {
+            FileChannel channel = fileInputStream.getChannel();
+            UnicodeBOMInputStream bomInputStream = new UnicodeBOMInputStream(Channels.newInputStream(channel));
+            UnicodeBOMInputStream.BOM bom = bomInputStream.getBOM();
+
+            String key = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+            String detectedCharset = sDetectedCharsets.get(key);
+            if (detectedCharset == null) {
+                bomInputStream.skipBOM();
+                UniversalDetector charsetDetector = new UniversalDetector(null);
+                byte data[] = new byte[4096];
+                int count, total = 0;
+                while (total < detectionBudget && !charsetDetector.isDone()
+                        && (count = bomInputStream.read(data, 0, Math.min(data.length, detectionBudget - total))) != -1) {
+                    charsetDetector.handleData(data, 0, count);
+                    total += count;
+                }
+                charsetDetector.dataEnd();
+                detectedCharset = charsetDetector.getDetectedCharset();
+                if (detectedCharset == null)
+                    detectedCharset = "";
+                sDetectedCharsets.put(key, detectedCharset);
+            }
+            String charsetName = overrideCharset(detectedCharset, bom, languageCode, manualCharset);
+
+            CharsetDecoder decoder = Charset.forName(charsetName).newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            channel.position(bom.getBytes().length);
+            return new BufferedReader(Channels.newReader(channel, decoder, -1));
+        } catch (IOException | RuntimeException e) {
+            fileInputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the contents of an {@link InputStream} to output while detecting its charset.
+     *
+     * @return Charset String name
+     */
+    private static String readAndDetectCharset(InputStream inputStream, ByteArrayOutputStream output, String languageCode, String manualCharset) throws IOException {
+        UniversalDetector charsetDetector = new UniversalDetector(null);
 
         UnicodeBOMInputStream bomInputStream = new UnicodeBOMInputStream(inputStream);
         bomInputStream.skipBOM();
@@ -133,16 +222,26 @@ public class SubUtils {
             if (!charsetDetector.isDone()) {
                 charsetDetector.handleData(data, 0, count);
             }
-            byteArrayOutputStream.write(data, 0, count);
+            output.write(data, 0, count);
         }
         charsetDetector.dataEnd();
 
         String detectedCharset = charsetDetector.getDetectedCharset();
         charsetDetector.reset();
 
+        return overrideCharset(detectedCharset, bomInputStream.getBOM(), languageCode, manualCharset);
+    }
+
+    /**
+     * Apply the BOM fallback, language overrides and the manual charset to a detected charset.
+     *
+     * @param detectedCharset charset found by UniversalDetector, null or empty if none
+     * @return Charset String name
+     */
+    private static String overrideCharset(String detectedCharset, UnicodeBOMInputStream.BOM bom, String languageCode, String manualCharset) {
         if (detectedCharset == null || detectedCharset.isEmpty()) {
             // UniversalDetector can't detect the charset so try to get charset from BOM.
-            detectedCharset = getCharsetFromBOM(bomInputStream.getBOM());
+            detectedCharset = getCharsetFromBOM(bom);
         } else if ("MACCYRILLIC".equals(detectedCharset)) {
             detectedCharset = "Windows-1256";
         }
@@ -151,20 +250,10 @@ public class SubUtils {
             detectedCharset = sOverrideMap.get(languageCode);
         }
 
-        if(!manualCharset.isEmpty()){
+        if(manualCharset != null && !manualCharset.isEmpty()){
             detectedCharset = manualCharset;
         }
-
-        byte[] stringBytes = byteArrayOutputStream.toByteArray();
-        Charset charset = Charset.forName(detectedCharset);
-        CharsetDecoder decoder = charset.newDecoder();
-
-        try {
-            CharBuffer charBuffer = decoder.decode(ByteBuffer.wrap(stringBytes));
-            return charBuffer.toString();
-        } catch (CharacterCodingException e) {
-            return new String(stringBytes, detectedCharset);
-        }
+        return detectedCharset;
     }
 
     /**
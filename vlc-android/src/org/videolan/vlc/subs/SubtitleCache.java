@@ -0,0 +1,283 @@
+package org.videolan.vlc.subs;
+
+import org.videolan.vlc.util.MurmurHash;
+import org.videolan.vlc.util.Util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * On-disk cache of parsed subtitles, so that reopening a video doesn't detect the charset and
+ * parse its subtitle file again.
+ * <p>
+ * Entries are keyed by the path, size and modification date of the subtitle file plus the
+ * parameters used to decode it, hashed with {@link MurmurHash}. Each entry is a compact binary
+ * file holding caption times as int arrays and all the caption texts as a single UTF-8 blob,
+ * read back through a memory mapped buffer. The least recently used entries are deleted when
+ * the cache grows over its maximum size.
+ */
+public class SubtitleCache {
+
+    private static final int MAGIC = 0x4c535542; // "LSUB"
+    private static final int VERSION = 2;
+    private static final String EXTENSION = ".sub";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final File mDirectory;
+    private final long mMaxSize;
+
+    /**
+     * @param directory where entries are stored, created if needed
+     * @param maxSize   maximum size of all the entries, in bytes
+     */
+    public SubtitleCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @param file    subtitle file
+     * @param options parameters changing the result of the parsing, like the chosen encoding
+     * @return the key of this subtitle file in the cache
+     */
+    public static String getKey(File file, String options) {
+        return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified() + '|' + options;
+    }
+
+    /**
+     * @return the cached subtitles for this key, null if they are not in the cache
+     */
+    public synchronized TimedTextObject get(String key) {
+        File entry = getEntryFile(key);
+        if (!entry.exists())
+            return null;
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(entry, "r");
+            FileChannel channel = file.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            TimedTextObject tto = read(buffer, key);
+            if (tto != null)
+                entry.setLastModified(System.currentTimeMillis());
+            return tto;
+        } catch (IOException | RuntimeException e) {
+            //corrupted entry
+            entry.delete();
+            return null;
+        } finally {
+            Util.close(file);
+        }
+    }
+
+    /**
+     * Saves parsed subtitles, then trims the cache down to its maximum size.
+     */
+    public synchronized void put(String key, TimedTextObject tto) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs())
+            return;
+        File entry = getEntryFile(key);
+        File temp = new File(mDirectory, entry.getName() + TEMP_EXTENSION);
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            write(out, key, tto);
+            out.close();
+            out = null;
+            if (!temp.renameTo(entry))
+                temp.delete();
+        } catch (IOException e) {
+            e.printStackTrace();
+            temp.delete();
+        } finally {
+            Util.close(out);
+        }
+        trim();
+    }
+
+    private void trim() {
+        File[] files = mDirectory.listFiles();
+        if (files == null)
+            return;
+        ArrayList<File> entries = new ArrayList<>(files.length);
+        long size = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) {
+                entries.add(file);
+                size += file.length();
+            } else if (file.getName().endsWith(TEMP_EXTENSION)) {
+                //left over by an interrupted put, puts are synchronized
+                file.delete();
+            }
+        }
+        if (size <= mMaxSize)
+            return;
+        //oldest access first
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File lhs, File rhs) {
+                long l = lhs.lastModified(), r = rhs.lastModified();
+                return l < r ? -1 : (l == r ? 0 : 1);
+            }
+        });
+        for (File entry : entries) {
+            if (size <= mMaxSize)
+                break;
+            long length = entry.length();
+            if (entry.delete())
+                size -= length;
+        }
+    }
+
+    private File getEntryFile(String key) {
+        byte[] bytes = key.getBytes(UTF8);
+        int high = MurmurHash.hash32(bytes, bytes.length, 0x9747b28c);
+        int low = MurmurHash.hash32(bytes, bytes.length, 0x5bd1e995);
+        return new File(mDirectory, String.format("%08x%08x", high, low) + EXTENSION);
+    }
+
+    /*
+     * Layout: magic, version, key, the meta info and options of the TimedTextObject, styles,
+     * caption count n, then n keys, n starts, n ends, n style indexes, n + 1 text offsets and
+     * the UTF-8 text blob.
+     */
+
+    private static void write(DataOutputStream out, String key, TimedTextObject tto) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, key);
+        writeString(out, tto.title);
+        writeString(out, tto.description);
+        writeString(out, tto.copyright);
+        writeString(out, tto.author);
+        writeString(out, tto.fileName);
+        writeString(out, tto.language);
+        writeString(out, tto.warnings);
+        out.writeBoolean(tto.useASSInsteadOfSSA);
+        out.writeInt(tto.offset);
+
+        ArrayList<Style> styles = new ArrayList<>(tto.styling.values());
+        out.writeInt(styles.size());
+        for (Style style : styles) {
+            writeString(out, style.iD);
+            writeString(out, style.font);
+            writeString(out, style.fontSize);
+            writeString(out, style.color);
+            writeString(out, style.backgroundColor);
+            writeString(out, style.textAlign);
+            out.writeBoolean(style.italic);
+            out.writeBoolean(style.bold);
+            out.writeBoolean(style.underline);
+        }
+
+        final int count = tto.captions.size();
+        out.writeInt(count);
+        for (Integer captionKey : tto.captions.keySet())
+            out.writeInt(captionKey);
+        for (Caption caption : tto.captions.values())
+            out.writeInt(caption.start.getMilliseconds());
+        for (Caption caption : tto.captions.values())
+            out.writeInt(caption.end.getMilliseconds());
+        for (Caption caption : tto.captions.values())
+            out.writeInt(caption.style != null ? styles.indexOf(caption.style) : -1);
+
+        ByteArrayOutputStream blob = new ByteArrayOutputStream();
+        out.writeInt(0);
+        for (Caption caption : tto.captions.values()) {
+            byte[] text = caption.content.getBytes(UTF8);
+            blob.write(text, 0, text.length);
+            out.writeInt(blob.size());
+        }
+        out.writeInt(blob.size());
+        blob.writeTo(out);
+    }
+
+    private static TimedTextObject read(ByteBuffer buffer, String key) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || !key.equals(readString(buffer)))
+            return null;
+        TimedTextObject tto = new TimedTextObject();
+        tto.title = readString(buffer);
+        tto.description = readString(buffer);
+        tto.copyright = readString(buffer);
+        tto.author = readString(buffer);
+        tto.fileName = readString(buffer);
+        tto.language = readString(buffer);
+        tto.warnings = readString(buffer);
+        tto.useASSInsteadOfSSA = buffer.get() != 0;
+        tto.offset = buffer.getInt();
+
+        Style[] styles = new Style[buffer.getInt()];
+        for (int i = 0; i < styles.length; i++) {
+            Style style = new Style(readString(buffer));
+            style.font = readString(buffer);
+            style.fontSize = readString(buffer);
+            style.color = readString(buffer);
+            style.backgroundColor = readString(buffer);
+            style.textAlign = readString(buffer);
+            style.italic = buffer.get() != 0;
+            style.bold = buffer.get() != 0;
+            style.underline = buffer.get() != 0;
+            styles[i] = style;
+            tto.styling.put(style.iD, style);
+        }
+
+        final int count = buffer.getInt();
+        int[] keys = readInts(buffer, count);
+        int[] starts = readInts(buffer, count);
+        int[] ends = readInts(buffer, count);
+        int[] styleIndexes = readInts(buffer, count);
+        int[] offsets = readInts(buffer, count + 1);
+        byte[] blob = new byte[buffer.getInt()];
+        buffer.get(blob);
+
+        Map<Integer, Caption> captions = tto.captions;
+        for (int i = 0; i < count; i++) {
+            Caption caption = new Caption();
+            caption.start = new Time(starts[i]);
+            caption.end = new Time(ends[i]);
+            caption.style = styleIndexes[i] >= 0 ? styles[styleIndexes[i]] : null;
+            caption.content = new String(blob, offsets[i], offsets[i + 1] - offsets[i], UTF8);
+            captions.put(keys[i], caption);
+        }
+        tto.build();
+        return tto;
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+}
@@ -6,17 +6,29 @@ package org.videolan.vlc.subs;
 import android.os.AsyncTask;
 import android.support.annotation.NonNull;
 
+import org.videolan.vlc.VLCApplication;
+
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.ref.WeakReference;
 
 public class SubtitleParser {
 
     private SubtitleParser(){ }
 
+    //maximum size of the parsed subtitles cache
+    private static final long CACHE_SIZE = 16 * 1024 * 1024;
+    private static SubtitleCache sCache = null;
+
+    private static synchronized SubtitleCache getCache() {
+        if (sCache == null)
+            sCache = new SubtitleCache(new File(VLCApplication.getAppContext().getCacheDir(), "subtitles"), CACHE_SIZE);
+        return sCache;
+    }
+
     private static SubtitleParser mSubtitleParser = null;
 
     public static SubtitleParser getInstance(){
@@ -29,6 +41,12 @@ public class SubtitleParser {
 
     public interface ISubtitleParserListener {
         void onSubtitleParseCompleted(boolean isSuccessful, TimedTextObject subtitleFile,String subtitlePath);
+
+        /**
+         * Called while the file is still being parsed with the captions parsed so far, each call
+         * gives a larger subtitleFile. onSubtitleParseCompleted() is still called at the end.
+         */
+        void onSubtitleParsePartial(TimedTextObject subtitleFile, String subtitlePath);
     }
 
     public void parseSubtitle(@NonNull String subtitleFilePath ,String subtitleLanguage, String manualEncoding) {
@@ -47,6 +65,7 @@ public class SubtitleParser {
         public class Wrapper{
             public String subtitleFilePath;
             public  TimedTextObject text;
+            public boolean partial;
         }
 
         String subtitleLanguage;
@@ -84,6 +103,7 @@ public class SubtitleParser {
                             publishProgress(w);
                         } catch (IOException e1) {
                             e1.printStackTrace();
+                            publishFailure(filePath);
                             return null;
                         }
                     }
@@ -91,31 +111,69 @@ public class SubtitleParser {
                 }
                 catch (IOException e) {
                     e.printStackTrace();
+                    publishFailure(filePath);
                     return null;
                 }
             }
             return null;
         }
 
+        /* The listener drops the captions already published while parsing the file */
+        private void publishFailure(String filePath) {
+            Wrapper w = new Wrapper();
+            w.subtitleFilePath = filePath;
+            publishProgress(w);
+        }
+
         @Override
         protected void onProgressUpdate(Wrapper... values) {
             super.onProgressUpdate(values);
             for (Wrapper w : values ) {
                 if (listenerReference.get() == null) break;
-                listenerReference.get().onSubtitleParseCompleted(true, w.text,w.subtitleFilePath);
+                if (w.partial)
+                    listenerReference.get().onSubtitleParsePartial(w.text, w.subtitleFilePath);
+                else
+                    listenerReference.get().onSubtitleParseCompleted(w.text != null, w.text,w.subtitleFilePath);
             }
         }
 
-        private TimedTextObject parseAsTimedTextObject(File file) throws IOException {
-            FileInputStream fileInputStream = new FileInputStream(file);
-            FormatSRT formatSRT = new FormatSRT();
-            TimedTextObject result = formatSRT.parseFile(
-                    file.toString(),
-                    SubUtils.inputstreamToCharsetString(
-                            fileInputStream,
-                            subtitleLanguage,subtitleManualEncoding).split("\n"));
+        private TimedTextObject parseAsTimedTextObject(final File file) throws IOException {
+            SubtitleCache cache = getCache();
+            String cacheKey = SubtitleCache.getKey(file, subtitleLanguage + '|' + subtitleManualEncoding);
+            TimedTextObject result = cache.get(cacheKey);
+            if (result == null) {
+                result = parseFile(file);
+                if (result != null && !isCancelled() && result.getCaptionCount() > 0)
+                    cache.put(cacheKey, result);
+            }
             return result;
         }
+
+        private TimedTextObject parseFile(final File file) throws IOException {
+            Reader reader = SubUtils.fileToCharsetReader(file, subtitleLanguage, subtitleManualEncoding);
+            try {
+                TimedTextFileFormat format = TimedTextFileFormat.forContent(reader, file.getName());
+                format.setOnCaptionsParsedListener(new TimedTextFileFormat.OnCaptionsParsedListener() {
+                    @Override
+                    public boolean onCaptionsParsed(TimedTextObject partial) {
+                        if (isCancelled())
+                            return false;
+                        Wrapper w = new Wrapper();
+                        w.subtitleFilePath = file.toString();
+                        w.text = partial;
+                        w.partial = true;
+                        publishProgress(w);
+                        return true;
+                    }
+                });
+                return format.parseFile(file.toString(), reader);
+            } catch (FatalParsingException e) {
+                e.printStackTrace();
+                return null;
+            } finally {
+                reader.close();
+            }
+        }
     }
 
     public void setSubtitleParserListener(ISubtitleParserListener listener) {
@@ -69,9 +69,94 @@ public class Time {
         }
     }
 
+    /**
+     * Constructor to create a time object from an already parsed value.
+     *
+     * @param mseconds time in milliseconds
+     */
+    protected Time(int mseconds) {
+        this.mseconds = mseconds;
+    }
+
     // in an integer we can store 24 days worth of milliseconds, no need for a long
     protected int mseconds;
 
+    /**
+     * Parses a "hh:mm:ss,ms" time (as in .SRT files) without creating any intermediate String.
+     * Hours may have any number of digits, "." is accepted in place of "," and
+     * milliseconds may have one to three digits.
+     *
+     * @param value string containing the time
+     * @param from  index of the first character of the time in value
+     * @return the time in milliseconds, or -1 if value doesn't hold a valid time at this index
+     */
+    protected static int parseSRTTime(String value, int from) {
+        return parseClockTime(value, from, false);
+    }
+
+    /**
+     * Same as {@link #parseSRTTime(String, int)} for "hh:mm:ss.ms" times (as in .VTT files),
+     * where hours can be omitted ("mm:ss.ms").
+     */
+    protected static int parseVTTTime(String value, int from) {
+        return parseClockTime(value, from, true);
+    }
+
+    private static int parseClockTime(String value, int from, boolean optionalHours) {
+        final int length = value.length();
+        int i = from;
+        int first = 0, digits = 0;
+        while (i < length && isDigit(value.charAt(i))) {
+            first = first * 10 + value.charAt(i++) - '0';
+            digits++;
+        }
+        if (digits == 0 || i + 3 > length || value.charAt(i) != ':')
+            return -1;
+        final int second = twoDigits(value, i + 1);
+        if (second < 0)
+            return -1;
+        i += 3;
+        int h, m, s;
+        if (i + 3 <= length && value.charAt(i) == ':') {
+            h = first;
+            m = second;
+            s = twoDigits(value, i + 1);
+            if (s < 0)
+                return -1;
+            i += 3;
+        } else if (optionalHours) {
+            h = 0;
+            m = first;
+            s = second;
+        } else
+            return -1;
+        int ms = 0;
+        if (i < length && (value.charAt(i) == ',' || value.charAt(i) == '.')) {
+            i++;
+            int scale = 100;
+            digits = 0;
+            while (i < length && digits < 3 && isDigit(value.charAt(i))) {
+                ms += (value.charAt(i++) - '0') * scale;
+                scale /= 10;
+                digits++;
+            }
+            if (digits == 0)
+                return -1;
+        }
+        return ms + s * 1000 + m * 60000 + h * 3600000;
+    }
+
+    private static int twoDigits(String value, int index) {
+        final char c1 = value.charAt(index), c2 = value.charAt(index + 1);
+        if (!isDigit(c1) || !isDigit(c2))
+            return -1;
+        return (c1 - '0') * 10 + c2 - '0';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
 	
 	/* METHODS */
 
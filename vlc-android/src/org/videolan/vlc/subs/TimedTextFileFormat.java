@@ -17,7 +17,11 @@
 
 package org.videolan.vlc.subs;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Locale;
 
 /**
  * This class specifies the interface for any format supported by the converter, these formats must
@@ -47,6 +51,33 @@ import java.io.IOException;
  */
 public abstract class TimedTextFileFormat {
 
+    /**
+     * Listener notified by the streaming parsers while a file is being parsed, so that captions
+     * can be displayed before the end of the file is reached.
+     */
+    public interface OnCaptionsParsedListener {
+        /**
+         * Called from the parsing thread with a snapshot of the captions parsed so far.
+         * Snapshots are published each time the number of captions doubles.
+         *
+         * @param partial built TimedTextObject, independent from the one still being filled
+         * @return false to stop parsing, the captions parsed so far are then returned
+         */
+        boolean onCaptionsParsed(TimedTextObject partial);
+    }
+
+    //number of characters read by forContent() to find the format
+    private static final int SNIFF_LENGTH = 4096;
+
+    //number of captions of the first partial result
+    protected static final int FIRST_PARTIAL_RESULT = 64;
+
+    protected OnCaptionsParsedListener captionsParsedListener;
+
+    public void setOnCaptionsParsedListener(OnCaptionsParsedListener listener) {
+        captionsParsedListener = listener;
+    }
+
     /**
      * This methods receives the path to a file, parses it, and returns a TimedTextObject
      *
@@ -60,6 +91,68 @@ public abstract class TimedTextFileFormat {
         return parseFile(fileName, inputString.split("\n|\r\n"));
     }
 
+    /**
+     * Streaming version of {@link #parseFile(String, String[])}, formats able to parse line by line
+     * should override it so that the whole file never has to be held in memory as Strings.
+     * The default implementation reads all the lines first.
+     *
+     * @param fileName String that contains the path to the file
+     * @param reader   decoded content of the file, not closed by this method
+     * @return TimedTextObject representing the parsed file
+     * @throws IOException when having trouble reading from the reader
+     */
+    public TimedTextObject parseFile(String fileName, Reader reader) throws IOException, FatalParsingException {
+        BufferedReader bufferedReader = toBufferedReader(reader);
+        ArrayList<String> lines = new ArrayList<>();
+        String line;
+        while ((line = bufferedReader.readLine()) != null)
+            lines.add(line);
+        return parseFile(fileName, lines.toArray(new String[lines.size()]));
+    }
+
+    /**
+     * Finds the format of a subtitle file from its first characters, the file extension is only
+     * used when the content is not recognized.
+     *
+     * @param reader   decoded content of the file, it must support mark() and is reset to where it was
+     * @param fileName path or name of the file
+     * @return a parser for this format, FormatSRT by default
+     * @throws IOException when having trouble reading from the reader
+     */
+    public static TimedTextFileFormat forContent(Reader reader, String fileName) throws IOException {
+        char[] buffer = new char[SNIFF_LENGTH];
+        reader.mark(SNIFF_LENGTH);
+        int length = 0, count;
+        while (length < SNIFF_LENGTH && (count = reader.read(buffer, length, SNIFF_LENGTH - length)) != -1)
+            length += count;
+        reader.reset();
+
+        String head = new String(buffer, 0, length).replace("\uFEFF", "").trim();
+        String lowerHead = head.toLowerCase(Locale.US);
+        if (head.startsWith("WEBVTT"))
+            return new FormatVTT();
+        if (lowerHead.contains("[script info]") || lowerHead.contains("[v4 styles]")
+                || lowerHead.contains("[v4+ styles]") || lowerHead.contains("[v4 styles+]"))
+            return new FormatASS();
+        if (head.startsWith("<") && (lowerHead.contains("<tt ") || lowerHead.contains("<tt>") || lowerHead.contains(":tt ")))
+            return new FormatTTML();
+        if (head.contains("-->"))
+            return new FormatSRT();
+
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.US);
+        if (extension.equals("vtt"))
+            return new FormatVTT();
+        if (extension.equals("ass") || extension.equals("ssa"))
+            return new FormatASS();
+        if (extension.equals("ttml") || extension.equals("dfxp") || extension.equals("xml"))
+            return new FormatTTML();
+        return new FormatSRT();
+    }
+
+    protected BufferedReader toBufferedReader(Reader reader) {
+        return reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
     /**
      * This method transforms a given TimedTextObject into a formated subtitle file
      *
@@ -78,6 +78,10 @@ public class TimedTextObject {
     //to know if a parsing method has been applied
     public boolean built = false;
 
+    //captions in start order, frozen when the object is built
+    private Caption[] captionArray;
+    private CaptionTimeline timeline;
+
 
     /**
      * Protected constructor so it can't be created from outside
@@ -123,11 +127,75 @@ public class TimedTextObject {
         return new FormatVTT().toFile(this);
     }
 
+    /**
+     * @return number of captions, in O(1) once the object is built
+     */
+    public int getCaptionCount() {
+        return getCaptionArray().length;
+    }
+
+    /**
+     * Random access to the captions in start order, without copying the caption tree map.
+     *
+     * @param index position of the caption, from 0 to {@link #getCaptionCount()} - 1
+     * @return the caption at this position
+     */
+    public Caption getCaption(int index) {
+        return getCaptionArray()[index];
+    }
+
+    /**
+     * @return the time index over the captions, used to find the captions displayed at a given time
+     */
+    public CaptionTimeline getTimeline() {
+        if (timeline == null)
+            timeline = new CaptionTimeline(getCaptionArray());
+        return timeline;
+    }
+
+    private Caption[] getCaptionArray() {
+        if (captionArray == null)
+            captionArray = captions.values().toArray(new Caption[captions.size()]);
+        return captionArray;
+    }
+
 	/* 
      * PROTECTED METHODS
 	 * 
 	 */
 
+    /**
+     * Marks the object as built and freezes the caption order for random access.
+     * Must be called by the parsers once all the captions are added.
+     */
+    protected void build() {
+        captionArray = captions.values().toArray(new Caption[captions.size()]);
+        timeline = new CaptionTimeline(captionArray);
+        built = true;
+    }
+
+    /**
+     * Creates a built copy of the captions parsed so far, which can be handed to another thread
+     * while the parser keeps adding captions to this object.
+     *
+     * @return a new built TimedTextObject sharing the caption and style instances
+     */
+    protected TimedTextObject snapshot() {
+        TimedTextObject copy = new TimedTextObject();
+        copy.title = title;
+        copy.description = description;
+        copy.copyright = copyright;
+        copy.author = author;
+        copy.fileName = fileName;
+        copy.language = language;
+        copy.styling = new Hashtable<String, Style>(styling);
+        copy.captions = new TreeMap<Integer, Caption>(captions);
+        copy.useASSInsteadOfSSA = useASSInsteadOfSSA;
+        copy.offset = offset;
+        copy.build();
+        return copy;
+    }
+
     /**
      * This method simply checks the style list and eliminate any style not referenced by any caption
      * This might come useful when default styles get created and cover too much.
@@ -0,0 +1,132 @@
+package org.videolan.vlc.subs;
+
+/**
+ * Splits caption text into words in a single pass, without regular expressions.
+ * <p>
+ * Words are runs of letters, digits and combining marks. In ASCII, the same punctuation and
+ * white spaces as the former clickable subtitles regex separate words. Other characters are
+ * classified by their Unicode category, so Persian and Arabic punctuation stays out of words
+ * while vowel marks and zero width non-joiners stay in. Scripts written without spaces are
+ * split by character for Han ideographs and by run of the same kana for Japanese.
+ * <p>
+ * An instance reuses its offset arrays between calls and is not thread safe.
+ */
+public class WordTokenizer {
+
+    private static final String ASCII_SEPARATORS = "-!$%^&*()_+|~=`{}[]:\";'<>?,./ \t\n\u000b\f\r";
+    private static final boolean[] sAsciiSeparators = new boolean[128];
+
+    static {
+        for (int i = 0; i < ASCII_SEPARATORS.length(); i++)
+            sAsciiSeparators[ASCII_SEPARATORS.charAt(i)] = true;
+    }
+
+    private static final int SEPARATOR = 0;
+    private static final int LETTERS = 1;
+    private static final int MARK = 2;
+    private static final int IDEOGRAPH = 3;
+    private static final int HIRAGANA = 4;
+    private static final int KATAKANA = 5;
+
+    private int[] mStarts = new int[32];
+    private int[] mEnds = new int[32];
+    private int mCount = 0;
+
+    /**
+     * Finds the words of text, their offsets are then available with {@link #getStart(int)}
+     * and {@link #getEnd(int)} until the next call.
+     *
+     * @return the number of words
+     */
+    public int tokenize(CharSequence text) {
+        mCount = 0;
+        final int length = text.length();
+        int start = -1;
+        int wordClass = SEPARATOR;
+        int i = 0;
+        while (i < length) {
+            final int codePoint = Character.codePointAt(text, i);
+            final int charClass = classOf(codePoint);
+            if (charClass == SEPARATOR) {
+                if (start != -1) {
+                    add(start, i);
+                    start = -1;
+                }
+            } else if (start == -1) {
+                start = i;
+                wordClass = charClass;
+            } else if (charClass != MARK && (charClass != wordClass || charClass == IDEOGRAPH)) {
+                //marks belong to the character they follow, scripts don't mix in a word
+                add(start, i);
+                start = i;
+                wordClass = charClass;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start != -1)
+            add(start, length);
+        return mCount;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    public int getStart(int index) {
+        return mStarts[index];
+    }
+
+    public int getEnd(int index) {
+        return mEnds[index];
+    }
+
+    private void add(int start, int end) {
+        if (mCount == mStarts.length) {
+            int[] starts = new int[mCount * 2];
+            int[] ends = new int[mCount * 2];
+            System.arraycopy(mStarts, 0, starts, 0, mCount);
+            System.arraycopy(mEnds, 0, ends, 0, mCount);
+            mStarts = starts;
+            mEnds = ends;
+        }
+        mStarts[mCount] = start;
+        mEnds[mCount] = end;
+        mCount++;
+    }
+
+    private static int classOf(int codePoint) {
+        if (codePoint < 128)
+            return sAsciiSeparators[codePoint] ? SEPARATOR : LETTERS;
+        switch (Character.getType(codePoint)) {
+            case Character.UPPERCASE_LETTER:
+            case Character.LOWERCASE_LETTER:
+            case Character.TITLECASE_LETTER:
+            case Character.MODIFIER_LETTER:
+            case Character.OTHER_LETTER:
+            case Character.DECIMAL_DIGIT_NUMBER:
+            case Character.LETTER_NUMBER:
+            case Character.OTHER_NUMBER:
+                return scriptClassOf(codePoint);
+            case Character.NON_SPACING_MARK:
+            case Character.ENCLOSING_MARK:
+            case Character.COMBINING_SPACING_MARK:
+            case Character.FORMAT:
+                return MARK;
+            default:
+                return SEPARATOR;
+        }
+    }
+
+    private static int scriptClassOf(int codePoint) {
+        if (codePoint < 0x3040)
+            return LETTERS;
+        if (codePoint <= 0x309f)
+            return HIRAGANA;
+        if (codePoint <= 0x30ff || (codePoint >= 0x31f0 && codePoint <= 0x31ff) || (codePoint >= 0xff66 && codePoint <= 0xff9f))
+            return KATAKANA;
+        if ((codePoint >= 0x3400 && codePoint <= 0x4dbf) || (codePoint >= 0x4e00 && codePoint <= 0x9fff)
+                || (codePoint >= 0xf900 && codePoint <= 0xfaff) || (codePoint >= 0x20000 && codePoint <= 0x2fa1f))
+            return IDEOGRAPH;
+        return LETTERS;
+    }
+}
@@ -3,7 +3,10 @@ package org.videolan.vlc.util.Dictionary;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.support.v4.util.LruCache;
 import android.speech.tts.TextToSpeech;
+import android.text.TextUtils;
 import android.util.Log;
 
 import org.videolan.vlc.util.Dictionary.remote.DictionaryApi;
@@ -14,7 +17,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -26,9 +35,20 @@ public class Dictionary {
 
     private static Dictionary dictionaryInstance;
     private SQLiteDatabase db  = null;
+    //the definitions of all the candidate headwords of a word, and of the shortest headword
+    //starting with its stem, in one query. The fixed number of arguments lets SQLite cache it.
+    private static final int MAX_CANDIDATES = 12;
+    private static final String LOOKUP_QUERY = "select word, definition, 0 from words where word in ("
+            + TextUtils.join(",", Collections.nCopies(MAX_CANDIDATES, "?")) + ")"
+            + " union all select word, definition, 1 from words where word ="
+            + " (select word from words where word > ? and word < ? order by length(word), word limit 1)";
+    //recent lookups, a word is translated twice when the dialog is reopened on it
+    private final LruCache<String, TranslateResult> translationCache = new LruCache<>(64);
     private TextToSpeech tts;
 
     private static String lastDbName = null;
+    //the dictionaries whose index on words was checked since the start of the process
+    private static final Set<String> indexedDatabases = new HashSet<>();
     private static GlosbeService mGlosbeService;
     public GlosbeService getGlosbeService(){
         return mGlosbeService;
@@ -42,9 +62,8 @@ public class Dictionary {
         return "/data/data/"+ packageName + "/databases/dictionaries";
     }
     private Dictionary(Context context, String dbName){
-        if(db != null)
-            db.close();
         db = openDatabase(dbName, context);
+        lastDbName = dbName;
     }
     public static Dictionary getInstance(Context context, String fromLanguage, String toLanguage) throws IOException {
 
@@ -54,8 +73,11 @@ public class Dictionary {
         else if (fromLanguage.equals("en") && toLanguage.equals("fa"))
             dbName = "ENG_PER";
 
-        if (dictionaryInstance == null || !dbName.equals(getDbName()))
+        if (dictionaryInstance == null || dictionaryInstance.db == null || !dbName.equals(getDbName())) {
+            if (dictionaryInstance != null && dictionaryInstance.db != null)
+                dictionaryInstance.db.close();
             dictionaryInstance = new Dictionary(context, dbName);
+        }
         mGlosbeService = DictionaryApi.getGlosbeService(context);
         if(dictionaryInstance != null)
             dictionaryInstance.initTts(context, new Locale(fromLanguage));
@@ -103,6 +125,8 @@ public class Dictionary {
             }
 
             zis.close();
+            //create the index now rather than on the first lookup
+            ensureWordIndex(outFileName);
         }
         catch(IOException e)
         {
@@ -114,14 +138,52 @@ public class Dictionary {
     }
 
     private SQLiteDatabase openDatabase(String dbName, Context context){
+        String path = getDatabaseDirectory(context) + dbName + ".dict";
+        //dictionaries unpacked by older versions may lack the index on words
+        synchronized (indexedDatabases) {
+            if (!indexedDatabases.contains(path))
+                ensureWordIndex(path);
+        }
         try {
-            return SQLiteDatabase.openDatabase(getDatabaseDirectory(context) + dbName + ".dict", null, SQLiteDatabase.OPEN_READONLY);
+            return SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY);
         }catch (Exception e) {
             e.printStackTrace();
             return null;
         }
     }
 
+    /**
+     * Creates an index on words(word) unless lookups already use one, like the primary key.
+     * It serves both the exact lookups and the range scan for the headwords starting with a stem.
+     * A dictionary is only checked once per process.
+     */
+    private static void ensureWordIndex(String path){
+        SQLiteDatabase database = null;
+        Cursor plan = null;
+        try {
+            database = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READWRITE);
+            plan = database.rawQuery("explain query plan select definition from words where word=?", new String[] {""});
+            boolean indexed = false;
+            final int detail = plan.getColumnIndex("detail");
+            while(!indexed && detail != -1 && plan.moveToNext()) {
+                final String step = plan.getString(detail);
+                indexed = step != null && (step.contains("INDEX") || step.contains("PRIMARY KEY"));
+            }
+            if(!indexed)
+                database.execSQL("create index if not exists words_word_index on words(word)");
+            synchronized (indexedDatabases) {
+                indexedDatabases.add(path);
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            if (plan != null)
+                plan.close();
+            if (database != null)
+                database.close();
+        }
+    }
+
     public class TranslateResult{
         private String translation;
         private boolean translated;
@@ -140,7 +202,7 @@ public class Dictionary {
         }
 
     }
-    public TranslateResult getTranslation(String word){
+    public synchronized TranslateResult getTranslation(String word){
         //TODO:fix this later
         TranslateResult translateResult = new TranslateResult();
         if(db == null) {
@@ -148,25 +210,68 @@ public class Dictionary {
             translateResult.setTranslated(false);
             return translateResult;
         }
-        String result = "";
-        Cursor cursor = db.rawQuery("select definition from words where word=?", new String[] {word.toLowerCase()});
-        if(cursor!=null && cursor.getCount()!=0){
-            if(cursor.moveToFirst()){
-                do{
-                    result += cursor.getString(0);
-                    result += "\n";
-                }while(cursor.moveToNext());
+        final String key = word.toLowerCase();
+        TranslateResult cached = translationCache.get(key);
+        if(cached != null && cached.getTranslated())
+            return cached;
+
+        //inflected words like "cities" or "didn't" are found under their headwords
+        final List<String> candidates = Lemmatizer.getCandidates(key);
+        if (candidates.isEmpty())
+            candidates.add(key);
+        final String prefix = Lemmatizer.getPrefix(candidates);
+        final String[] args = new String[MAX_CANDIDATES + 2];
+        for (int i = 0; i < MAX_CANDIDATES; i++)
+            args[i] = candidates.get(i < candidates.size() ? i : 0);
+        args[MAX_CANDIDATES] = prefix != null ? prefix : "";
+        args[MAX_CANDIDATES + 1] = prefix != null ? prefix + Character.MAX_VALUE : "";
+
+        final Map<String, StringBuilder> definitions = new HashMap<>();
+        String prefixMatch = null;
+        Cursor cursor = null;
+        try {
+            cursor = db.rawQuery(LOOKUP_QUERY, args);
+            while (cursor.moveToNext()) {
+                final String headword = cursor.getString(0);
+                final String definition = cursor.getString(1);
+                final boolean byPrefix = cursor.getInt(2) != 0;
+                //the headword starting with the stem may be a candidate too
+                if (headword == null || definition == null || (byPrefix && candidates.contains(headword)))
+                    continue;
+                if (byPrefix)
+                    prefixMatch = headword;
+                final StringBuilder sb = definitions.get(headword);
+                if (sb == null)
+                    definitions.put(headword, new StringBuilder(definition));
+                else
+                    sb.append('\n').append(definition);
+            }
+        } catch (SQLiteException e) {
+            e.printStackTrace();
+        } finally {
+            if (cursor != null)
+                cursor.close();
+        }
+
+        String headword = prefixMatch;
+        for (String candidate : candidates) {
+            if (definitions.containsKey(candidate)) {
+                headword = candidate;
+                break;
             }
         }
-        if(result.isEmpty()){
+        final StringBuilder result = headword != null ? definitions.get(headword) : null;
+        if(result == null || result.length() == 0){
             translateResult.setTranslation(word);
             translateResult.setTranslated(false);
         }
         else {
-            translateResult.setTranslation(result);
+            if (!headword.equals(key))
+                result.insert(0, "<b>" + TextUtils.htmlEncode(headword) + "</b><br>");
+            translateResult.setTranslation(result + "\n");
             translateResult.setTranslated(true);
+            translationCache.put(key, translateResult);
         }
-        cursor.close();
         return translateResult;
     }
 
@@ -0,0 +1,238 @@
+package org.videolan.vlc.util.Dictionary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Guesses the headwords of an inflected English word, like "cities" or "didn't",
+ * so that the offline dictionaries find the words tapped in subtitles.
+ */
+public final class Lemmatizer {
+
+    //shortest stem left by a suffix rule
+    private static final int MIN_STEM_LENGTH = 2;
+    //shortest stem used to look for headwords starting with it
+    public static final int MIN_PREFIX_LENGTH = 4;
+
+    private static final Map<String, String> IRREGULARS = new HashMap<>();
+    private static final Map<String, String> CONTRACTIONS = new HashMap<>();
+
+    static {
+        addIrregular("be", "am", "is", "are", "was", "were", "been", "being");
+        addIrregular("have", "has", "had", "having");
+        addIrregular("do", "does", "did", "done");
+        addIrregular("go", "goes", "went", "gone");
+        addIrregular("begin", "began", "begun");
+        addIrregular("break", "broke", "broken");
+        addIrregular("bring", "brought");
+        addIrregular("build", "built");
+        addIrregular("buy", "bought");
+        addIrregular("catch", "caught");
+        addIrregular("choose", "chose", "chosen");
+        addIrregular("come", "came");
+        addIrregular("drink", "drank", "drunk");
+        addIrregular("drive", "drove", "driven");
+        addIrregular("eat", "ate", "eaten");
+        addIrregular("fall", "fell", "fallen");
+        addIrregular("feel", "felt");
+        addIrregular("fight", "fought");
+        addIrregular("find", "found");
+        addIrregular("forget", "forgot", "forgotten");
+        addIrregular("get", "got", "gotten");
+        addIrregular("give", "gave", "given");
+        addIrregular("hear", "heard");
+        addIrregular("hold", "held");
+        addIrregular("keep", "kept");
+        addIrregular("know", "knew", "known");
+        addIrregular("leave", "left");
+        addIrregular("lose", "lost");
+        addIrregular("make", "made");
+        addIrregular("mean", "meant");
+        addIrregular("meet", "met");
+        addIrregular("pay", "paid");
+        addIrregular("run", "ran");
+        addIrregular("say", "said");
+        addIrregular("see", "saw", "seen");
+        addIrregular("sell", "sold");
+        addIrregular("send", "sent");
+        addIrregular("sit", "sat");
+        addIrregular("sleep", "slept");
+        addIrregular("speak", "spoke", "spoken");
+        addIrregular("spend", "spent");
+        addIrregular("stand", "stood");
+        addIrregular("take", "took", "taken");
+        addIrregular("teach", "taught");
+        addIrregular("tell", "told");
+        addIrregular("think", "thought");
+        addIrregular("understand", "understood");
+        addIrregular("win", "won");
+        addIrregular("write", "wrote", "written");
+        addIrregular("child", "children");
+        addIrregular("man", "men");
+        addIrregular("woman", "women");
+        addIrregular("person", "people");
+        addIrregular("foot", "feet");
+        addIrregular("tooth", "teeth");
+        addIrregular("mouse", "mice");
+        addIrregular("good", "better", "best");
+        addIrregular("bad", "worse", "worst");
+
+        CONTRACTIONS.put("can't", "can");
+        CONTRACTIONS.put("won't", "will");
+        CONTRACTIONS.put("shan't", "shall");
+        CONTRACTIONS.put("ain't", "be");
+        CONTRACTIONS.put("let's", "let");
+    }
+
+    private static void addIrregular(String lemma, String... forms) {
+        for (String form : forms)
+            IRREGULARS.put(form, lemma);
+    }
+
+    private Lemmatizer() {}
+
+    /**
+     * Returns the lowercase word followed by its possible headwords, the most likely first.
+     * The guesses of the suffix rules may not be words at all, the dictionary sorts them out.
+     */
+    public static List<String> getCandidates(String word) {
+        final Set<String> candidates = new LinkedHashSet<>();
+        final String w = normalize(word);
+        if (w.isEmpty())
+            return new ArrayList<>(candidates);
+        candidates.add(w);
+
+        String base = w;
+        final String contraction = CONTRACTIONS.get(w);
+        if (contraction != null) {
+            base = contraction;
+        } else if (w.endsWith("n't") && w.length() > 3) {
+            base = w.substring(0, w.length() - 3);
+        } else if (w.endsWith("s'")) {
+            base = w.substring(0, w.length() - 1);
+        } else {
+            final int apostrophe = w.lastIndexOf('\'');
+            //'s 're 've 'll 'd 'm
+            if (apostrophe > 0 && w.length() - apostrophe <= 3)
+                base = w.substring(0, apostrophe);
+        }
+        candidates.add(base);
+
+        final String irregular = IRREGULARS.get(base);
+        if (irregular != null) {
+            candidates.add(irregular);
+        } else {
+            addSuffixRules(base, candidates);
+        }
+        return new ArrayList<>(candidates);
+    }
+
+    /**
+     * Returns the shortest stem guessed by the suffix rules, to look for the headwords starting
+     * with it when no candidate is in the dictionary, or null if the word is too short for it.
+     */
+    public static String getPrefix(List<String> candidates) {
+        String prefix = null;
+        for (String candidate : candidates) {
+            if (candidate.length() >= MIN_PREFIX_LENGTH && candidate.indexOf('\'') == -1
+                    && (prefix == null || candidate.length() < prefix.length()))
+                prefix = candidate;
+        }
+        return prefix;
+    }
+
+    private static String normalize(String word) {
+        String w = word.trim().toLowerCase(Locale.ENGLISH).replace('\u2019', '\'');
+        int start = 0, end = w.length();
+        while (start < end && !Character.isLetterOrDigit(w.charAt(start)))
+            start++;
+        //keep the apostrophe of a plural possessive
+        while (end > start && !Character.isLetterOrDigit(w.charAt(end - 1))
+                && !(w.charAt(end - 1) == '\'' && end - 2 > start && w.charAt(end - 2) == 's'))
+            end--;
+        return w.substring(start, end);
+    }
+
+    private static void addSuffixRules(String w, Set<String> candidates) {
+        if (replaceSuffix(w, "ies", "y", candidates) || replaceSuffix(w, "ied", "y", candidates)
+                || replaceSuffix(w, "iest", "y", candidates) || replaceSuffix(w, "ier", "y", candidates)
+                || replaceSuffix(w, "ily", "y", candidates))
+            return;
+        if (w.endsWith("ves")) {
+            replaceSuffix(w, "ves", "f", candidates);
+            replaceSuffix(w, "ves", "fe", candidates);
+        }
+        if (w.endsWith("ing")) {
+            addVerbStems(w, 3, candidates);
+        } else if (w.endsWith("ed")) {
+            addVerbStems(w, 2, candidates);
+        } else if (w.endsWith("est")) {
+            addVerbStems(w, 3, candidates);
+        } else if (w.endsWith("er")) {
+            addVerbStems(w, 2, candidates);
+        } else if (w.endsWith("es")) {
+            //boxes -> box, but hopes -> hope
+            final String stem = w.substring(0, w.length() - 2);
+            if (stem.endsWith("s") || stem.endsWith("x") || stem.endsWith("z")
+                    || stem.endsWith("ch") || stem.endsWith("sh")) {
+                replaceSuffix(w, "es", "", candidates);
+                replaceSuffix(w, "s", "", candidates);
+            } else {
+                replaceSuffix(w, "s", "", candidates);
+                replaceSuffix(w, "es", "", candidates);
+            }
+        } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us")) {
+            replaceSuffix(w, "s", "", candidates);
+        } else if (w.endsWith("ness")) {
+            replaceSuffix(w, "ness", "", candidates);
+        } else if (w.endsWith("ly")) {
+            replaceSuffix(w, "ly", "", candidates);
+            replaceSuffix(w, "ly", "le", candidates);
+        }
+    }
+
+    //running -> run, hoped -> hope, walked -> walk
+    private static void addVerbStems(String w, int suffixLength, Set<String> candidates) {
+        final String stem = w.substring(0, w.length() - suffixLength);
+        if (stem.length() < MIN_STEM_LENGTH)
+            return;
+        final int last = stem.length() - 1;
+        if (stem.length() > MIN_STEM_LENGTH && stem.charAt(last) == stem.charAt(last - 1)
+                && !isVowel(stem.charAt(last)) && "lsz".indexOf(stem.charAt(last)) == -1) {
+            candidates.add(stem.substring(0, last));
+            candidates.add(stem);
+        } else if (needsE(stem)) {
+            candidates.add(stem + "e");
+            candidates.add(stem);
+        } else {
+            candidates.add(stem);
+            candidates.add(stem + "e");
+        }
+    }
+
+    //hoped -> hope rather than hop, loved -> love, danced -> dance
+    private static boolean needsE(String stem) {
+        final int last = stem.length() - 1;
+        final char c = stem.charAt(last);
+        if ("vuc".indexOf(c) != -1)
+            return true;
+        return stem.length() >= 3 && !isVowel(c) && "wxy".indexOf(c) == -1
+                && isVowel(stem.charAt(last - 1)) && !isVowel(stem.charAt(last - 2));
+    }
+
+    private static boolean replaceSuffix(String w, String suffix, String replacement, Set<String> candidates) {
+        if (!w.endsWith(suffix) || w.length() - suffix.length() < MIN_STEM_LENGTH)
+            return false;
+        candidates.add(w.substring(0, w.length() - suffix.length()) + replacement);
+        return true;
+    }
+
+    private static boolean isVowel(char c) {
+        return "aeiouy".indexOf(c) != -1;
+    }
+}
@@ -0,0 +1,223 @@
+package org.videolan.vlc.util;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.github.hiteshsondhi88.libffmpeg.ExecuteBinaryResponseHandler;
+import com.github.hiteshsondhi88.libffmpeg.FFmpeg;
+import com.github.hiteshsondhi88.libffmpeg.exceptions.FFmpegCommandAlreadyRunningException;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Extracts the embedded subtitle tracks of a media to srt files with FFmpeg.
+ * <p>
+ * FFmpeg completes all the outputs of a run at once, so the first track is extracted alone to be
+ * usable quickly. The other tracks are then mapped to their own output in a single FFmpeg run, so
+ * the container is demuxed twice whatever the number of tracks. Outputs are written to temporary
+ * files and renamed once complete, so an interrupted extraction never leaves a truncated srt file
+ * behind. Bitmap subtitles can't be converted, see {@link #isTextCodec(String)}. FFmpeg aborts the
+ * whole run when one track fails, so the tracks which are missing after a failed run are retried
+ * one at a time.
+ * <p>
+ * Methods must be called on the main thread, listener methods are called on the main thread too.
+ */
+public class EmbeddedSubtitleExtractor {
+    private static final String TAG = "VLC/SubtitleExtractor";
+    private static final String TEMP_EXTENSION = ".tmp";
+    //a killed FFmpeg process may still be exiting when the next run starts
+    private static final int BUSY_RETRY_DELAY = 500;
+    private static final int BUSY_RETRIES = 10;
+    //codec descriptions of the bitmap subtitles, which FFmpeg can't convert to srt
+    private static final String[] BITMAP_CODECS = {"dvd", "dvb", "blu-ray", "pgs", "presentation graphics",
+            "vobsub", "xsub", "cvd", "ogt", "kate", "teletext", "scte", "arib"};
+
+    public interface OnTrackExtractedListener {
+        void onTrackExtracted(int trackId, String path);
+        void onTrackFailed(int trackId, String path);
+        void onExtractionFinished();
+    }
+
+    public static class Track {
+        public final int id;
+        public final String path;
+
+        public Track(int id, String path) {
+            this.id = id;
+            this.path = path;
+        }
+    }
+
+    private final Context mContext;
+    private final String mMediaPath;
+    private final OnTrackExtractedListener mListener;
+    //pending FFmpeg runs, the first track alone then the others
+    private final LinkedList<List<Track>> mRuns = new LinkedList<>();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private int mBusyRetries = 0;
+    private List<Track> mCurrentRun = null;
+    private boolean mCancelled = false;
+
+    /**
+     * @param mediaPath path of the media file
+     * @param tracks    tracks to extract, with the path of their srt file
+     */
+    public EmbeddedSubtitleExtractor(Context context, String mediaPath, List<Track> tracks, OnTrackExtractedListener listener) {
+        mContext = context.getApplicationContext();
+        mMediaPath = mediaPath;
+        mListener = listener;
+        if (tracks.size() > 1) {
+            mRuns.add(new ArrayList<>(tracks.subList(0, 1)));
+            mRuns.add(new ArrayList<>(tracks.subList(1, tracks.size())));
+        } else if (!tracks.isEmpty())
+            mRuns.add(new ArrayList<>(tracks));
+    }
+
+    /**
+     * @param codec codec description of a subtitle track, from {@link org.videolan.libvlc.Media.Track}
+     * @return false if the track is a bitmap one, which can't be extracted
+     */
+    public static boolean isTextCodec(String codec) {
+        if (codec == null)
+            return true;
+        final String description = codec.toLowerCase(Locale.ENGLISH);
+        for (String bitmap : BITMAP_CODECS)
+            if (description.contains(bitmap))
+                return false;
+        return true;
+    }
+
+    public void start() {
+        runNext();
+    }
+
+    /**
+     * @return true if the track with this output path is being extracted in a run of its own
+     */
+    public boolean isRunningAlone(String path) {
+        return mCurrentRun != null && mCurrentRun.size() == 1 && mCurrentRun.get(0).path.equals(path);
+    }
+
+    /**
+     * Stops the extraction, only {@link OnTrackExtractedListener#onExtractionFinished()} is
+     * called from now on.
+     */
+    public void cancel() {
+        if (mCancelled)
+            return;
+        mCancelled = true;
+        //a killed FFmpeg run never calls onFinish()
+        if (mCurrentRun != null && FFmpeg.getInstance(mContext).killRunningProcesses()) {
+            deleteTempFiles(mCurrentRun);
+            mCurrentRun = null;
+            mListener.onExtractionFinished();
+        }
+    }
+
+    private void runNext() {
+        final List<Track> tracks = mCancelled ? null : mRuns.poll();
+        mCurrentRun = tracks;
+        if (tracks == null) {
+            mListener.onExtractionFinished();
+            return;
+        }
+        try {
+            FFmpeg.getInstance(mContext).execute(buildCommand(tracks), new ExecuteBinaryResponseHandler() {
+                private boolean mSuccess = false;
+
+                @Override
+                public void onProgress(String message) {
+                    Log.d(TAG, "ffmpeg execute: " + "onProgress" + message);
+                }
+
+                @Override
+                public void onFailure(String message) {
+                    Log.d(TAG, "ffmpeg execute: " + "onFailure" + message);
+                }
+
+                @Override
+                public void onSuccess(String message) {
+                    mSuccess = true;
+                }
+
+                @Override
+                public void onFinish() {
+                    Log.d(TAG, "ffmpeg execute: " + "onFinish");
+                    if (mCurrentRun != tracks)
+                        return;
+                    if (mCancelled)
+                        deleteTempFiles(tracks);
+                    else
+                        onRunFinished(tracks, mSuccess);
+                    runNext();
+                }
+            });
+            mBusyRetries = 0;
+        } catch (FFmpegCommandAlreadyRunningException e) {
+            // Handle if FFmpeg is already running
+            Log.d(TAG, "ffmpeg execute: " + "alreadyRunning");
+            if (mBusyRetries++ < BUSY_RETRIES) {
+                mRuns.addFirst(tracks);
+                mCurrentRun = null;
+                mHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        runNext();
+                    }
+                }, BUSY_RETRY_DELAY);
+                return;
+            }
+            for (Track track : tracks)
+                mListener.onTrackFailed(track.id, track.path);
+            runNext();
+        }
+    }
+
+    private String[] buildCommand(List<Track> tracks) {
+        ArrayList<String> command = new ArrayList<>(3 + 5 * tracks.size());
+        command.add("-y");
+        command.add("-i");
+        command.add(mMediaPath);
+        for (Track track : tracks) {
+            command.add("-map");
+            command.add("0:" + track.id);
+            //the temporary extension doesn't tell FFmpeg the output format
+            command.add("-f");
+            command.add("srt");
+            command.add(track.path + TEMP_EXTENSION);
+        }
+        return command.toArray(new String[command.size()]);
+    }
+
+    private void onRunFinished(List<Track> tracks, boolean success) {
+        ArrayList<Track> missing = new ArrayList<>();
+        for (Track track : tracks) {
+            File temp = new File(track.path + TEMP_EXTENSION);
+            if (success && temp.length() > 0 && temp.renameTo(new File(track.path)))
+                mListener.onTrackExtracted(track.id, track.path);
+            else {
+                temp.delete();
+                missing.add(track);
+            }
+        }
+        if (missing.size() > 1) {
+            for (Track track : missing) {
+                ArrayList<Track> run = new ArrayList<>(1);
+                run.add(track);
+                mRuns.add(run);
+            }
+        } else if (!missing.isEmpty())
+            mListener.onTrackFailed(missing.get(0).id, missing.get(0).path);
+    }
+
+    private static void deleteTempFiles(List<Track> tracks) {
+        for (Track track : tracks)
+            new File(track.path + TEMP_EXTENSION).delete();
+    }
+}
@@ -0,0 +1,266 @@
+package org.videolan.vlc.util;
+
+import android.content.Context;
+
+import org.videolan.vlc.VLCApplication;
+import org.videolan.vlc.media.MediaDatabase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Application wide queue of embedded subtitle tracks to extract, so extractions outlive the
+ * player activity and a track requested again after the activity is recreated is not queued
+ * twice.
+ * <p>
+ * The tracks of a media are extracted together by an {@link EmbeddedSubtitleExtractor}, which
+ * extracts the first one alone then the others in a single pass. A prioritized track is moved
+ * ahead of the queue so that it is this first one. Prioritizing a track which is not running alone
+ * stops the extraction, the unfinished tracks are queued again behind the prioritized one.
+ * <p>
+ * Extracted tracks are saved as subtitles of their media, whether a player is open or not. The
+ * progress of the extraction of a media is reported to the callbacks and can be queried with
+ * {@link #getProgress(String)}.
+ * <p>
+ * Methods must be called on the main thread, callbacks are called on the main thread too.
+ */
+public class EmbeddedSubtitleScheduler implements EmbeddedSubtitleExtractor.OnTrackExtractedListener {
+
+    public interface Callback {
+        void onTrackExtracted(String mediaPath, int trackId, String path);
+
+        /**
+         * @param done  tracks of the media which are extracted or failed
+         * @param total tracks of the media scheduled since its extraction started
+         */
+        void onProgress(String mediaPath, int done, int total);
+    }
+
+    private static class Job {
+        final String mediaPath;
+        //name of the media in the subtitles table
+        final String mediaName;
+        final EmbeddedSubtitleExtractor.Track track;
+        boolean priority = false;
+
+        Job(String mediaPath, String mediaName, EmbeddedSubtitleExtractor.Track track) {
+            this.mediaPath = mediaPath;
+            this.mediaName = mediaName;
+            this.track = track;
+        }
+    }
+
+    private static EmbeddedSubtitleScheduler sInstance;
+
+    private final Context mContext;
+    private final LinkedList<Job> mPending = new LinkedList<>();
+    //pending and running jobs by output path
+    private final HashMap<String, Job> mJobs = new HashMap<>();
+    //done and total tracks by media path, while some tracks of the media are pending
+    private final HashMap<String, int[]> mProgress = new HashMap<>();
+    private final ArrayList<Callback> mCallbacks = new ArrayList<>();
+    private List<Job> mRunning = null;
+    private EmbeddedSubtitleExtractor mExtractor = null;
+
+    public static synchronized EmbeddedSubtitleScheduler getInstance(Context context) {
+        if (sInstance == null)
+            sInstance = new EmbeddedSubtitleScheduler(context.getApplicationContext());
+        return sInstance;
+    }
+
+    private EmbeddedSubtitleScheduler(Context context) {
+        mContext = context;
+    }
+
+    public void addCallback(Callback callback) {
+        if (!mCallbacks.contains(callback))
+            mCallbacks.add(callback);
+    }
+
+    public void removeCallback(Callback callback) {
+        mCallbacks.remove(callback);
+    }
+
+    /**
+     * Queues the tracks which are not extracted nor already queued.
+     *
+     * @param priorityPath output path of the track to extract first, null for none
+     */
+    public void schedule(String mediaPath, List<EmbeddedSubtitleExtractor.Track> tracks, String priorityPath) {
+        final String mediaName = FileUtils.generateMediaUniqueName(mediaPath, new File(mediaPath).lastModified());
+        int added = 0;
+        for (EmbeddedSubtitleExtractor.Track track : tracks) {
+            if (mJobs.containsKey(track.path) || new File(track.path).exists())
+                continue;
+            Job job = new Job(mediaPath, mediaName, track);
+            mJobs.put(track.path, job);
+            mPending.add(job);
+            added++;
+        }
+        if (added > 0)
+            updateProgress(mediaPath, 0, added);
+        if (priorityPath != null)
+            prioritize(priorityPath);
+        else
+            startNext();
+    }
+
+    /**
+     * @return true if the track with this output path is waiting or being extracted
+     */
+    public boolean isPending(String path) {
+        return mJobs.containsKey(path);
+    }
+
+    /**
+     * @return the tracks of the media which are extracted or failed and the tracks scheduled since
+     * its extraction started, null if no track of the media is pending
+     */
+    public int[] getProgress(String mediaPath) {
+        final int[] progress = mProgress.get(mediaPath);
+        return progress == null ? null : new int[]{progress[0], progress[1]};
+    }
+
+    /**
+     * Moves a queued track to the front of the queue.
+     *
+     * @return false if this track is not queued
+     */
+    public boolean prioritize(String path) {
+        Job job = mJobs.get(path);
+        if (job == null)
+            return false;
+        job.priority = true;
+        if (mRunning != null && mRunning.contains(job)) {
+            //restarted with this track alone first, unless it already is
+            if (!mExtractor.isRunningAlone(path))
+                mExtractor.cancel();
+            return true;
+        }
+        mPending.remove(job);
+        mPending.addFirst(job);
+        startNext();
+        return true;
+    }
+
+    /**
+     * Removes the queued tracks of a media and stops its running extraction.
+     */
+    public void cancel(String mediaPath) {
+        boolean running = false;
+        for (Iterator<Job> it = mJobs.values().iterator(); it.hasNext(); ) {
+            Job job = it.next();
+            if (job.mediaPath.equals(mediaPath)) {
+                it.remove();
+                mPending.remove(job);
+                running |= mRunning != null && mRunning.remove(job);
+            }
+        }
+        mProgress.remove(mediaPath);
+        if (running)
+            mExtractor.cancel();
+    }
+
+    /**
+     * Removes a queued track, the other tracks of its running extraction are queued again.
+     */
+    public void cancelTrack(String path) {
+        Job job = mJobs.remove(path);
+        if (job == null)
+            return;
+        mPending.remove(job);
+        if (mRunning != null && mRunning.remove(job))
+            mExtractor.cancel();
+        updateProgress(job.mediaPath, 0, -1);
+    }
+
+    private void startNext() {
+        if (mExtractor != null || mPending.isEmpty())
+            return;
+        mRunning = new ArrayList<>();
+        Job first = mPending.removeFirst();
+        mRunning.add(first);
+        //all the other tracks of the media in the same extraction, after the first one
+        for (Iterator<Job> it = mPending.iterator(); it.hasNext(); ) {
+            Job job = it.next();
+            if (job.mediaPath.equals(first.mediaPath)) {
+                it.remove();
+                mRunning.add(job);
+            }
+        }
+        ArrayList<EmbeddedSubtitleExtractor.Track> tracks = new ArrayList<>(mRunning.size());
+        for (Job job : mRunning)
+            tracks.add(job.track);
+        mExtractor = new EmbeddedSubtitleExtractor(mContext, first.mediaPath, tracks, this);
+        mExtractor.start();
+    }
+
+    @Override
+    public void onTrackExtracted(int trackId, String path) {
+        final Job job = finish(path);
+        if (job == null)
+            return;
+        VLCApplication.runBackground(new Runnable() {
+            @Override
+            public void run() {
+                MediaDatabase.getInstance().saveSubtitle(job.track.path, job.mediaName, 0L);
+            }
+        });
+        for (Callback callback : new ArrayList<>(mCallbacks))
+            callback.onTrackExtracted(job.mediaPath, trackId, path);
+        updateProgress(job.mediaPath, 1, 0);
+    }
+
+    @Override
+    public void onTrackFailed(int trackId, String path) {
+        final Job job = finish(path);
+        if (job != null)
+            updateProgress(job.mediaPath, 1, 0);
+    }
+
+    @Override
+    public void onExtractionFinished() {
+        //tracks left by a stopped pass go back to the queue, prioritized ones first
+        if (mRunning != null) {
+            for (int i = mRunning.size() - 1; i >= 0; i--)
+                mPending.addFirst(mRunning.get(i));
+            for (int i = mRunning.size() - 1; i >= 0; i--) {
+                Job job = mRunning.get(i);
+                if (job.priority) {
+                    mPending.remove(job);
+                    mPending.addFirst(job);
+                }
+            }
+        }
+        mRunning = null;
+        mExtractor = null;
+        startNext();
+    }
+
+    private void updateProgress(String mediaPath, int done, int total) {
+        int[] progress = mProgress.get(mediaPath);
+        if (progress == null) {
+            progress = new int[2];
+            mProgress.put(mediaPath, progress);
+        }
+        progress[0] += done;
+        progress[1] += total;
+        if (progress[0] >= progress[1])
+            mProgress.remove(mediaPath);
+        for (Callback callback : new ArrayList<>(mCallbacks))
+            callback.onProgress(mediaPath, progress[0], progress[1]);
+    }
+
+    private Job finish(String path) {
+        Job job = mJobs.remove(path);
+        if (job == null)
+            return null;
+        if (mRunning != null)
+            mRunning.remove(job);
+        return job;
+    }
+}
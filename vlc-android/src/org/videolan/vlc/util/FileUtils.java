@@ -40,6 +40,7 @@ import android.util.Log;
 import org.videolan.libvlc.util.AndroidUtil;
 import org.videolan.medialibrary.media.MediaWrapper;
 import org.videolan.vlc.VLCApplication;
+import org.videolan.vlc.media.MediaDatabase;
 import org.videolan.vlc.media.MediaUtils;
 
 import java.io.BufferedInputStream;
@@ -330,6 +331,22 @@ public class FileUtils {
         }
     }
 
+    /**
+     * Same as {@link #computeHash(File)}, but the hash is saved in {@link MediaDatabase} and
+     * only computed again when the size or the modification date of the file change.
+     */
+    public static String getMovieHash(File file) {
+        final String path = file.getAbsolutePath();
+        final long size = file.length();
+        final long lastModified = file.lastModified();
+        String hash = MediaDatabase.getInstance().getMovieHash(path, size, lastModified);
+        if (hash == null) {
+            hash = computeHash(file);
+            MediaDatabase.getInstance().saveMovieHash(path, size, lastModified, hash);
+        }
+        return hash;
+    }
+
     private static long computeHashForChunk(ByteBuffer buffer) {
         LongBuffer longBuffer = buffer.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
         long hash = 0;
@@ -0,0 +1,394 @@
+package org.videolan.vlc.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import de.timroes.axmlrpc.XMLRPCClient;
+import de.timroes.axmlrpc.XMLRPCException;
+import de.timroes.axmlrpc.XMLRPCStructVisitor;
+
+/**
+ * Searches and downloads subtitles from OpenSubtitles for {@link SubtitlesDownloader}, in three
+ * stages: movie hashes are computed in parallel, queries are sent in batches, then the matching
+ * subtitles are fetched and decompressed by a pool of downloads sharing keep-alive connections.
+ * The files with no subtitle found by hash are searched again by file name.
+ * <p>
+ * It doesn't depend on Android, so it can run against a local XML-RPC server.
+ */
+public class OpenSubtitlesClient {
+
+    public static final String API_URL = "http://api.opensubtitles.org/xml-rpc";
+    //queries sent in each SearchSubtitles call, the server returns at most 500 results per call
+    static final int SEARCH_BATCH_SIZE = 50;
+    static final int DOWNLOAD_THREADS = 4;
+    private static final int HASH_THREADS = 2;
+    private static final int DOWNLOAD_BUFFER_SIZE = 8192;
+    //XML-RPC timeouts in seconds, retries of calls which didn't reach the server
+    private static final int RPC_CONNECT_TIMEOUT = 15;
+    private static final int RPC_READ_TIMEOUT = 60;
+    private static final int RPC_RETRIES = 2;
+    private static final int RPC_RETRY_BACKOFF = 1000;
+    private static final String USER_AGENT = "VLSub 0.9";
+
+    public interface Callback {
+        /**
+         * Called from a hash thread.
+         *
+         * @return the OpenSubtitles hash of the file, null if it can't be hashed
+         */
+        String getMovieHash(String path);
+
+        /**
+         * Called once the results of the search by hash are received.
+         */
+        void onHashSearchEnded();
+
+        /**
+         * Called from a download thread once a subtitle file is written.
+         */
+        void onSubtitleDownloaded(String path, String language, File subtitle);
+    }
+
+    private final URL mApiUrl;
+    private final File mDirectory;
+    private final Callback mCallback;
+    private XMLRPCClient mClient;
+    private volatile String mToken = null;
+    private volatile boolean mStopped = false;
+    //downloads of the running search, cancelled by stop()
+    private final List<Future<?>> mDownloads = Collections.synchronizedList(new ArrayList<Future<?>>());
+
+    /**
+     * @param apiUrl    url of the XML-RPC API, {@link #API_URL} or a test server
+     * @param directory directory of the downloaded subtitles
+     */
+    public OpenSubtitlesClient(URL apiUrl, File directory, Callback callback) {
+        mApiUrl = apiUrl;
+        mDirectory = directory;
+        mCallback = callback;
+    }
+
+    /**
+     * Stops the running search, the pending downloads are cancelled and the running ones deleted.
+     * Can be called from any thread.
+     */
+    public void stop() {
+        mStopped = true;
+        synchronized (mDownloads) {
+            for (Future<?> download : mDownloads)
+                download.cancel(false);
+        }
+    }
+
+    public boolean isStopped() {
+        return mStopped;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void logIn() throws XMLRPCException {
+        mClient = new XMLRPCClient(mApiUrl, XMLRPCClient.FLAGS_STREAMING_PARSER);
+        mClient.setConnectTimeout(RPC_CONNECT_TIMEOUT);
+        mClient.setReadTimeout(RPC_READ_TIMEOUT);
+        mClient.setRetries(RPC_RETRIES, RPC_RETRY_BACKOFF);
+        final Map<String, Object> map = (Map<String, Object>) mClient.call("LogIn", "", "", "fre", USER_AGENT);
+        mToken = (String) map.get("token");
+    }
+
+    public void logOut() throws XMLRPCException {
+        final String token = mToken;
+        if (token == null)
+            return;
+        mToken = null;
+        mClient.call("LogOut", token);
+    }
+
+    /**
+     * Searches the subtitles of each file in each language and downloads them.
+     *
+     * @param paths     paths of the media files
+     * @param languages OpenSubtitles ids of the languages
+     * @return the languages of the written subtitles, by file name
+     * @throws XMLRPCException if a search failed, the started downloads are completed first
+     */
+    public HashMap<String, ArrayList<String>> download(List<String> paths, List<String> languages) throws XMLRPCException {
+        //languages of the subtitles found for each file, and of the ones written by the downloads
+        final HashMap<String, ArrayList<String>> queued = new HashMap<>();
+        final HashMap<String, ArrayList<String>> success = new HashMap<>();
+        final ExecutorService downloadExecutor = Executors.newFixedThreadPool(DOWNLOAD_THREADS);
+        try {
+            //first pass, results give the hash of their movie
+            final String[] hashes = computeHashes(paths);
+            final HashMap<String, String> hashPaths = new HashMap<>();
+            final ArrayList<HashMap<String, String>> hashQueries = new ArrayList<>();
+            for (int i = 0; i < paths.size() && !mStopped; i++) {
+                if (hashes[i] == null)
+                    continue;
+                hashPaths.put(hashes[i], paths.get(i));
+                final String size = String.valueOf(new File(paths.get(i)).length());
+                for (String language : languages) {
+                    HashMap<String, String> query = new HashMap<>();
+                    query.put("sublanguageid", language);
+                    query.put("moviehash", hashes[i]);
+                    query.put("moviebytesize", size);
+                    hashQueries.add(query);
+                }
+            }
+            if (!hashQueries.isEmpty()) {
+                final List<Map<String, Object>> results = searchSubtitles(hashQueries);
+                mCallback.onHashSearchEnded();
+                for (Map<String, Object> result : results)
+                    queueDownload(downloadExecutor, result, hashPaths.get((String) result.get("MovieHash")), queued, success);
+            }
+
+            //second pass by file name, results give the number of their query
+            final ArrayList<HashMap<String, String>> tagQueries = new ArrayList<>();
+            final ArrayList<String> queryPaths = new ArrayList<>();
+            for (String path : paths) {
+                if (mStopped)
+                    break;
+                final String fileName = getFileName(path);
+                if (queued.containsKey(fileName) || fileName.isEmpty())
+                    continue;
+                for (String language : languages) {
+                    HashMap<String, String> query = new HashMap<>();
+                    query.put("sublanguageid", language);
+                    query.put("tag", fileName);
+                    tagQueries.add(query);
+                    queryPaths.add(path);
+                }
+            }
+            if (!mStopped && !tagQueries.isEmpty()) {
+                for (Map<String, Object> result : searchSubtitles(tagQueries)) {
+                    final int query = parseQueryNumber(result.get("QueryNumber"));
+                    //we keep only result for exact matching name
+                    final String path = query >= 0 && query < queryPaths.size() ? queryPaths.get(query) : null;
+                    queueDownload(downloadExecutor, result, path, queued, success);
+                }
+            }
+        } finally {
+            //no download is queued anymore, stop() can still cancel the pending ones meanwhile.
+            //a cancelled future returns before its task ends, so wait for the pool itself
+            downloadExecutor.shutdown();
+            try {
+                downloadExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            mDownloads.clear();
+        }
+        return success;
+    }
+
+    private void queueDownload(ExecutorService downloadExecutor, Map<String, Object> result, String path,
+                               HashMap<String, ArrayList<String>> queued, HashMap<String, ArrayList<String>> success) {
+        if (mStopped || path == null)
+            return;
+        final String language = (String) result.get("SubLanguageID");
+        //the first subtitle of each language
+        if (!addLanguage(queued, getFileName(path), language))
+            return;
+        mDownloads.add(downloadExecutor.submit(new DownloadTask((String) result.get("SubDownloadLink"), path,
+                (String) result.get("SubFormat"), language, success)));
+    }
+
+    /**
+     * Sends the queries by batches of {@link #SEARCH_BATCH_SIZE}, the QueryNumber of the
+     * results is the index of their query in queries.
+     * Batches are sent concurrently on the executor of the XML-RPC client and their results are
+     * collected while the responses are parsed, so a batch response never stays in memory as a
+     * whole.
+     *
+     * @return the results of all the batches, the ones received before if stopped
+     */
+    private List<Map<String, Object>> searchSubtitles(ArrayList<HashMap<String, String>> queries) throws XMLRPCException {
+        List<Future<Object>> calls = new ArrayList<>();
+        List<List<Map<String, Object>>> batchResults = new ArrayList<>();
+        for (int offset = 0; offset < queries.size(); offset += SEARCH_BATCH_SIZE) {
+            List<HashMap<String, String>> batch = queries.subList(offset, Math.min(offset + SEARCH_BATCH_SIZE, queries.size()));
+            final int batchOffset = offset;
+            final List<Map<String, Object>> results = new ArrayList<>();
+            batchResults.add(results);
+            calls.add(mClient.submit(new XMLRPCStructVisitor() {
+                @Override
+                public boolean onStruct(int index, Map<String, Object> result) {
+                    Object queryNumber = result.get("QueryNumber");
+                    if (batchOffset > 0 && queryNumber != null)
+                        result.put("QueryNumber", String.valueOf(batchOffset + parseQueryNumber(queryNumber)));
+                    results.add(result);
+                    return false;
+                }
+            }, "SearchSubtitles", mToken, new ArrayList<>(batch)));
+        }
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            if (mStopped) {
+                cancelCalls(calls);
+                break;
+            }
+            try {
+                calls.get(i).get();
+            } catch (ExecutionException e) {
+                cancelCalls(calls);
+                throw e.getCause() instanceof XMLRPCException ? (XMLRPCException) e.getCause() : new XMLRPCException(e);
+            } catch (InterruptedException | CancellationException e) {
+                cancelCalls(calls);
+                throw new XMLRPCException(e);
+            }
+            results.addAll(batchResults.get(i));
+        }
+        return results;
+    }
+
+    private static void cancelCalls(List<Future<Object>> calls) {
+        for (Future<Object> call : calls)
+            call.cancel(true);
+    }
+
+    static int parseQueryNumber(Object queryNumber) {
+        if (queryNumber instanceof Integer)
+            return (Integer) queryNumber;
+        try {
+            return Integer.parseInt((String) queryNumber);
+        } catch (NumberFormatException | NullPointerException | ClassCastException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return false if this language was already added for this file
+     */
+    static boolean addLanguage(HashMap<String, ArrayList<String>> languages, String fileName, String language) {
+        ArrayList<String> fileLanguages = languages.get(fileName);
+        if (fileLanguages == null) {
+            fileLanguages = new ArrayList<>();
+            languages.put(fileName, fileLanguages);
+        } else if (fileLanguages.contains(language))
+            return false;
+        fileLanguages.add(language);
+        return true;
+    }
+
+    static String getFileName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    private static void waitForTasks(List<? extends Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (InterruptedException | ExecutionException | CancellationException ignored) {}
+        }
+    }
+
+    /**
+     * Hashes the files on {@link #HASH_THREADS} threads.
+     *
+     * @return the hash of each file, null for the ones which can't be hashed
+     */
+    private String[] computeHashes(final List<String> paths) {
+        final String[] hashes = new String[paths.size()];
+        ExecutorService hashExecutor = Executors.newFixedThreadPool(HASH_THREADS);
+        ArrayList<Future<?>> tasks = new ArrayList<>(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final int position = i;
+            tasks.add(hashExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mStopped)
+                        hashes[position] = mCallback.getMovieHash(paths.get(position));
+                }
+            }));
+        }
+        waitForTasks(tasks);
+        hashExecutor.shutdown();
+        return hashes;
+    }
+
+    private class DownloadTask implements Runnable {
+        private final String subUrl, path, subFormat, language;
+        private final HashMap<String, ArrayList<String>> success;
+
+        /**
+         * @param success receives the language once the subtitle is written
+         */
+        DownloadTask(String subUrl, String path, String subFormat, String language,
+                     HashMap<String, ArrayList<String>> success) {
+            this.subUrl = subUrl;
+            this.path = path;
+            this.subFormat = subFormat;
+            this.language = language;
+            this.success = success;
+        }
+
+        @Override
+        public void run() {
+            final File subtitle = downloadSubtitle();
+            if (subtitle == null)
+                return;
+            synchronized (success) {
+                addLanguage(success, getFileName(path), language);
+            }
+            mCallback.onSubtitleDownloaded(path, language, subtitle);
+        }
+
+        /**
+         * @return the subtitle file, null if it isn't written
+         */
+        private File downloadSubtitle() {
+            if (mStopped || mToken == null || subUrl == null)
+                return null;
+            final String fileName = getFileName(path);
+            final String name = fileName.lastIndexOf('.') > 0 ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+            final File subtitle = new File(mDirectory, name + '.' + language + '.' + subFormat);
+            OutputStream f = null;
+            InputStream in = null;
+            GZIPInputStream gzIS = null;
+            boolean complete = false;
+            try {
+                HttpURLConnection urlConnection = (HttpURLConnection) new URL(subUrl).openConnection();
+                f = new BufferedOutputStream(new FileOutputStream(subtitle), DOWNLOAD_BUFFER_SIZE);
+                in = urlConnection.getInputStream();
+                gzIS = new GZIPInputStream(in, DOWNLOAD_BUFFER_SIZE);
+                int length;
+                byte[] buffer = new byte[DOWNLOAD_BUFFER_SIZE];
+                while ((length = gzIS.read(buffer)) != -1) {
+                    if (mStopped)
+                        break;
+                    f.write(buffer, 0, length);
+                }
+                //reading the response until its end lets the connection be reused by the next download
+                while (!mStopped && in.read(buffer) != -1);
+                if (!mStopped) {
+                    f.close();
+                    complete = true;
+                }
+            } catch (IOException ignored) {
+            } finally {
+                Util.close(f);
+                Util.close(gzIS);
+                Util.close(in);
+                if (!complete)
+                    subtitle.delete();
+            }
+            return complete ? subtitle : null;
+        }
+    }
+}
@@ -29,7 +29,6 @@ import android.app.Activity;
 import android.app.ProgressDialog;
 import android.content.DialogInterface;
 import android.content.SharedPreferences;
-import android.net.Uri;
 import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
@@ -37,7 +36,6 @@ import android.os.Message;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.preference.PreferenceManager;
-import android.text.TextUtils;
 import android.util.Log;
 import android.view.View;
 import android.view.WindowManager;
@@ -53,23 +51,16 @@ import org.videolan.vlc.gui.video.VideoPlayerActivity;
 import org.videolan.vlc.media.MediaDatabase;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map.Entry;
 import java.util.MissingResourceException;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
-
-import de.timroes.axmlrpc.XMLRPCClient;
-import de.timroes.axmlrpc.XMLRPCException;
 
 public class SubtitlesDownloader {
 
@@ -79,13 +70,9 @@ public class SubtitlesDownloader {
     private static final int DIALOG_UPDATE_MSG = 4;
     private final String TAG = "VLC/SubtitlesDownloader";
 
-    private final String OpenSubtitlesAPIUrl = "http://api.opensubtitles.org/xml-rpc";
-    private final String HTTP_USER_AGENT = "VLSub";
-    private final String USER_AGENT = "VLSub 0.9";
+    private final String mApiUrl;
 
-    private HashMap<String, Object> map = null;
-    private XMLRPCClient mClient;
-    private String mToken = null;
+    private volatile OpenSubtitlesClient mClient;
     private Activity mContext;
     private ProgressDialog mDialog;
     private volatile boolean stop = false;
@@ -97,6 +84,17 @@ public class SubtitlesDownloader {
         void onRequestEnded(boolean success);
     }
 
+    public SubtitlesDownloader() {
+        this(OpenSubtitlesClient.API_URL);
+    }
+
+    /**
+     * @param apiUrl url of the OpenSubtitles XML-RPC API
+     */
+    SubtitlesDownloader(String apiUrl) {
+        mApiUrl = apiUrl;
+    }
+
     public void setActivity(Activity activity) {
         mContext = activity;
     }
@@ -134,177 +132,76 @@ public class SubtitlesDownloader {
         logOut();
     }
 
-    @SuppressWarnings("unchecked")
     private boolean logIn() {
         mHandler.sendEmptyMessage(DIALOG_SHOW);
         try {
-            mClient = new XMLRPCClient(new URL(OpenSubtitlesAPIUrl));
-            map = ((HashMap<String, Object>) mClient.call("LogIn","","","fre",USER_AGENT));
-            mToken = (String) map.get("token");
-        } catch (XMLRPCException e) {
-            if (BuildConfig.DEBUG) Log.e(TAG, "logIn", e);
-            showSnackBar(R.string.service_unavailable);
-            mHandler.sendEmptyMessage(DIALOG_HIDE);
-            stop = true;
-            return false;
+            mClient = new OpenSubtitlesClient(new URL(mApiUrl), AndroidDevices.SUBTITLES_DIRECTORY, mClientCallback);
+            mClient.logIn();
         } catch (Throwable e){ //for various service outages
             if (BuildConfig.DEBUG) Log.e(TAG, "logIn", e);
-            e.printStackTrace();
             showSnackBar(R.string.service_unavailable);
             mHandler.sendEmptyMessage(DIALOG_HIDE);
             stop = true;
             return false;
         }
-        map = null;
+        if (stop)
+            mClient.stop();
         return true;
     }
 
-    @SuppressWarnings("unchecked")
     private void logOut() {
-        if (mToken == null)
+        if (mClient == null)
             return;
         try {
-            map = ((HashMap<String, Object>)  mClient.call("LogOut", mToken));
+            mClient.logOut();
         } catch (Throwable e){ //for various service outages
             Log.w("subtitles", "XMLRPCException", e);
         }
-        mToken = null;
-        map = null;
     }
 
-    @SuppressWarnings("unchecked")
+    private void stopDownloads() {
+        stop = true;
+        final OpenSubtitlesClient client = mClient;
+        if (client != null)
+            client.stop();
+    }
+
+    /**
+     * Downloads the subtitles of mediaList with {@link OpenSubtitlesClient}, saves them as
+     * subtitles of their media and sums up the languages found for each of them.
+     */
     private void getSubtitles(final List<MediaWrapper> mediaList, List<String> languages) {
         mHandler.obtainMessage(DIALOG_UPDATE_MSG,R.string.downloading_subtitles, 0).sendToTarget();
+        final ArrayList<String> languageIDs = new ArrayList<>(languages.size());
         for (String language : languages)
-            language = getCompliantLanguageID(language);
-        final boolean single = mediaList.size() == 1;
-        final ArrayList<MediaWrapper> notFoundFiles = new ArrayList<>();
-        final HashMap<String, String> index = new HashMap<>();
-        final HashMap<String, ArrayList<String>> success = new HashMap<>();
-        final HashMap<String, ArrayList<String>> fails = new HashMap<>();
-        ArrayList<HashMap<String, String>> videoSearchList = prepareRequestList(mediaList, languages, index, true);
-        Object[] subtitleMaps;
-        if (!videoSearchList.isEmpty()) {
-            try {
-                map = (HashMap<String, Object>) mClient.call("SearchSubtitles", mToken, videoSearchList);
-            } catch (Throwable e) { //for various service outages
-                stop = true;
-                showSnackBar(R.string.service_unavailable);
-                return;
-            }
-            if(!stop && map.get("data") instanceof Object[]) {
-                subtitleMaps = ((Object[]) map.get("data"));
-                if (!single)
-                    mHandler.obtainMessage(DIALOG_UPDATE_PROGRESS, mediaList.size(), 0).sendToTarget();
-                if (subtitleMaps.length > 0){
-                    String srtFormat, movieHash, fileUrl, fileName, subLanguageID, subDownloadLink;
-                    for (Object map : subtitleMaps){
-                        if (stop)
-                            break;
-                        srtFormat = ((HashMap<String, String>) map).get("SubFormat");
-                        movieHash = ((HashMap<String, String>) map).get("MovieHash");
-                        subLanguageID = ((HashMap<String, String>) map).get("SubLanguageID");
-                        subDownloadLink = ((HashMap<String, String>) map).get("SubDownloadLink");
-                        fileUrl = index.get(movieHash);
-                        if (fileUrl == null)
-                            return;
-
-                        fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
-                        if (success.containsKey(fileName) && success.get(fileName).contains(subLanguageID)){
-                            continue;
-                        } else {
-                            if (success.containsKey(fileName))
-                                success.get(fileName).add(subLanguageID);
-                            else {
-                                ArrayList<String> newLanguage = new ArrayList<>();
-                                newLanguage.add(subLanguageID);
-                                success.put(fileName, newLanguage);
-                            }
-                        }
-                        downloadSubtitles(subDownloadLink, fileUrl, fileName, srtFormat, subLanguageID);
-                        if (!single)
-                            mHandler.obtainMessage(DIALOG_UPDATE_PROGRESS, mediaList.size(), success.size()).sendToTarget();
-                    }
-                }
-            }
-            if (videoSearchList != null)
-                videoSearchList.clear();
-            index.clear();
+            languageIDs.add(getCompliantLanguageID(language));
+        final ArrayList<String> paths = new ArrayList<>(mediaList.size());
+        for (MediaWrapper media : mediaList)
+            paths.add(media.getUri().getPath());
+        mSingle = mediaList.size() == 1;
+        mTotal = mediaList.size();
+        mDownloadedFiles.clear();
+        final HashMap<String, ArrayList<String>> success;
+        try {
+            success = mClient.download(paths, languageIDs);
+        } catch (Throwable e) { //for various service outages
+            if (BuildConfig.DEBUG) Log.e(TAG, "download fail", e);
+            stopDownloads();
+            showSnackBar(R.string.service_unavailable);
+            logOut();
+            return;
         }
-
-        //Second pass
+        //fill fails list
+        final HashMap<String, ArrayList<String>> fails = new HashMap<>();
         for (MediaWrapper media : mediaList){
             String fileName = media.getUri().getLastPathSegment();
-            if (!success.containsKey(fileName))
-                notFoundFiles.add(media);
-        }
-        if (!stop && !notFoundFiles.isEmpty() &&
-                !(videoSearchList = prepareRequestList(notFoundFiles, languages, index, false)).isEmpty()) {
-            try {
-                map = (HashMap<String, Object>) mClient.call("SearchSubtitles", mToken,
-                        videoSearchList);
-            } catch (Throwable e) { //for various service outages
-                stop = true;
-                showSnackBar(R.string.service_unavailable);
-                return;
+            ArrayList<String> langs = new ArrayList<>();
+            for (String langID : languageIDs) {
+                if (!success.containsKey(fileName) || !success.get(fileName).contains(langID))
+                    langs.add(langID);
             }
-            if (map.get("data") instanceof Object[]) {
-                subtitleMaps = ((Object[]) map.get("data"));
-                if (subtitleMaps.length > 0) {
-                    String srtFormat, fileUrl, fileName, subLanguageID, subDownloadLink;
-                    HashMap<String, Object> resultMap;
-                    Object[] paths = index.values().toArray();
-                    for (int i = 0; i < subtitleMaps.length; ++i) {
-                        if (stop)
-                            break;
-                        resultMap = (HashMap<String, Object>) subtitleMaps[i];
-                        srtFormat = (String) resultMap.get("SubFormat");
-                        String queryNumber = (String) resultMap.get("QueryNumber");
-                        subLanguageID = (String) resultMap.get("SubLanguageID");
-                        subDownloadLink = (String) resultMap.get("SubDownloadLink");
-                        fileUrl = (String) paths[Integer.getInteger(queryNumber, 0).intValue()/languages.size()];
-                        if (fileUrl == null) //we keep only result for exact matching name
-                            continue;
-                        fileName = fileUrl.substring(fileUrl.lastIndexOf('/') + 1);
-                        if (success.containsKey(fileName) && success.get(fileName).contains(subLanguageID)){
-                            continue;
-                        } else {
-                            if (success.containsKey(fileName))
-                                success.get(fileName).add(subLanguageID);
-                            else {
-                                ArrayList<String> newLanguage = new ArrayList<>();
-                                newLanguage.add(subLanguageID);
-                                success.put(fileName, newLanguage);
-                            }
-                        }
-                        downloadSubtitles(subDownloadLink, fileUrl, fileName, srtFormat, subLanguageID);
-                        if (!single)
-                            mHandler.obtainMessage(DIALOG_UPDATE_PROGRESS, mediaList.size(), success.size()).sendToTarget();
-                    }
-                }
-            }
-        }
-        //fill fails list
-        for (MediaWrapper media : mediaList){
-            String fileName;
-            fileName = media.getUri().getLastPathSegment();
-            if (!success.containsKey(fileName)){
-                ArrayList<String> langs = new ArrayList<>();
-                for (String language : languages) {
-                    langs.add(getCompliantLanguageID(language));
-                }
+            if (!langs.isEmpty())
                 fails.put(fileName, langs);
-            } else {
-                ArrayList<String> langs = new ArrayList<>();
-                for (String language : languages) {
-                    String langID = getCompliantLanguageID(language);
-                    if (!success.get(fileName).contains(langID)){
-                        langs.add(langID);
-                    }
-                }
-                if (!langs.isEmpty())
-                    fails.put(fileName, langs);
-            }
         }
         if (mCallback != null)
             mHandler.post(new Runnable() {
@@ -314,7 +211,7 @@ public class SubtitlesDownloader {
                 }
             });
         if (!stop) {
-            if (single){
+            if (mSingle){
                 stop = true;
                 showSnackBar(buildSumup(success, fails, true));
             } else {
@@ -324,89 +221,32 @@ public class SubtitlesDownloader {
         logOut();
     }
 
-    private void downloadSubtitles(String subUrl, String path, String fileName, String subFormat, String language){
-        if (mToken == null || path == null)
-            return;
+    //files with at least one subtitle downloaded, for the progress
+    private final Set<String> mDownloadedFiles = Collections.synchronizedSet(new HashSet<String>());
+    private volatile boolean mSingle;
+    private volatile int mTotal;
 
-        StringBuilder sb = new StringBuilder();
-        String name = fileName.lastIndexOf('.') > 0 ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
-        sb.append(AndroidDevices.SUBTITLES_DIRECTORY.getPath()).append('/').append(name).append('.').append(language).append('.').append(subFormat);
-        String srtUrl = sb.toString();
-        FileOutputStream f = null;
-        InputStream in = null;
-        GZIPInputStream gzIS = null;
-        URL url;
-        HttpURLConnection urlConnection;
-        try {
-            url  = new URL(subUrl);
-            urlConnection = (HttpURLConnection) url.openConnection();
-            // We get the first matching subtitle
-            f = new FileOutputStream(new File(srtUrl));
-            //Base64 then gunzip uncompression
-            gzIS = new GZIPInputStream(urlConnection.getInputStream());
-            int length;
-            byte[] buffer = new byte[1024];
-            while ((length = gzIS.read(buffer)) != -1) {
-                f.write(buffer, 0, length);
-            }
-            String mediaUniqueName = FileUtils.generateMediaUniqueName(Uri.parse(path).getPath()/*To prevent converting '[' , ']' , ... to %xxxx*/, new File(path).lastModified());
-            MediaDatabase.getInstance().saveSubtitle(srtUrl, mediaUniqueName,0);
-        } catch (IOException e) {
-            if (BuildConfig.DEBUG) Log.e(TAG, "download fail", e);
-        } catch (Throwable e) { //for various service outages
-            if (BuildConfig.DEBUG) Log.e(TAG, "download fail", e);
-        }finally{
-            Util.close(f);
-            Util.close(in);
-            Util.close(gzIS);
+    private final OpenSubtitlesClient.Callback mClientCallback = new OpenSubtitlesClient.Callback() {
+        @Override
+        public String getMovieHash(String path) {
+            //TODO network files
+            return FileUtils.canWrite(path) ? FileUtils.getMovieHash(new File(path)) : null;
         }
-        return;
-    }
 
-    private ArrayList<HashMap<String, String>> prepareRequestList(List<MediaWrapper> mediaList, List<String> languages, HashMap<String, String> index, boolean firstPass) {
-        ArrayList<HashMap<String, String>> videoSearchList = new ArrayList<>();
-        for (MediaWrapper media : mediaList) {
-            if (stop)
-                break;
-            String hash = null, tag = null;
-            long fileLength = 0;
-            Uri mediaUri = media.getUri();
-            if (firstPass) {
-                if (FileUtils.canWrite(mediaUri)) {
-                    File videoFile = new File(mediaUri.getPath());
-                    hash = FileUtils.computeHash(videoFile);
-                    fileLength = videoFile.length();
-                } //TODO network files
-                if (hash == null)
-                    continue;
-            } else { //Second pass, search by TAG (filename)
-                tag = mediaUri.getLastPathSegment();
-            }
-            HashMap<String, String> video;
-            for (String item : languages){
-                if (stop)
-                    break;
-                String languageID = getCompliantLanguageID(item);
-
-                video = new HashMap<>();
-                video.put("sublanguageid", languageID);
-                if (firstPass){
-                    index.put(hash, mediaUri.getPath());
-                    video.put("moviehash", hash);
-                    video.put("moviebytesize", String.valueOf(fileLength));
-                } else if (!TextUtils.isEmpty(tag)) {
-                    video.put("tag", tag);
-                    int dotPos = tag.lastIndexOf('.');
-                    if (dotPos > -1)
-                        index.put(tag.substring(0, dotPos), mediaUri.getPath());
-                    else
-                        index.put(tag, mediaUri.getPath());
-                }
-                videoSearchList.add(video);
-            }
+        @Override
+        public void onHashSearchEnded() {
+            if (!mSingle)
+                mHandler.obtainMessage(DIALOG_UPDATE_PROGRESS, mTotal, 0).sendToTarget();
         }
-        return videoSearchList;
-    }
+
+        @Override
+        public void onSubtitleDownloaded(String path, String language, File subtitle) {
+            String mediaUniqueName = FileUtils.generateMediaUniqueName(path, new File(path).lastModified());
+            MediaDatabase.getInstance().saveSubtitle(subtitle.getAbsolutePath(), mediaUniqueName, 0);
+            if (!mSingle && mDownloadedFiles.add(OpenSubtitlesClient.getFileName(path)))
+                mHandler.obtainMessage(DIALOG_UPDATE_PROGRESS, mTotal, mDownloadedFiles.size()).sendToTarget();
+        }
+    };
 
     private void showSumup(final String displayText) {
         if (mContext == null)
@@ -550,7 +390,7 @@ public class SubtitlesDownloader {
                     mDialog.setOnCancelListener(new DialogInterface.OnCancelListener() {
                         @Override
                         public void onCancel(DialogInterface dialog) {
-                            stop = true;
+                            stopDownloads();
                         }
                     });
                     break;
@@ -0,0 +1,7 @@
+package org.videolan.vlc;
+
+/**
+ * JUnit category of the benchmarks. They are left out of the unit tests, run them alone with
+ * {@code ./gradlew test -Pbenchmark}.
+ */
+public interface Benchmark {}
@@ -0,0 +1,105 @@
+package org.videolan.vlc.media;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PlayQueueStoreTest {
+
+    private static final int QUEUE_SIZE = 10000;
+
+    private File mFile;
+
+    @Before
+    public void createFile() throws IOException {
+        mFile = File.createTempFile("queue", null);
+        mFile.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        mFile.delete();
+    }
+
+    private static List<String> mrls(int count) {
+        final List<String> mrls = new ArrayList<>(count);
+        for (int i = 0; i < count; ++i)
+            mrls.add("file:///sdcard/Music/Artist " + i + "/Track " + i + " été.mp3");
+        return mrls;
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        PlayQueueStore store = new PlayQueueStore(mFile);
+        assertFalse(store.exists());
+        assertTrue(store.read().isEmpty());
+
+        store.rewrite(Arrays.asList("a", "b", "c"));
+        store.add(3, Arrays.asList("d", "e"));
+        store.add(0, "z");
+        store.remove(2);
+        //move z before e, like MediaWrapperList.move
+        store.move(0, 4);
+        store.close();
+
+        store = new PlayQueueStore(mFile);
+        assertEquals(Arrays.asList("a", "c", "d", "z", "e"), store.read());
+        store.remove(4);
+        assertEquals(Arrays.asList("a", "c", "d", "z"), new PlayQueueStore(mFile).read());
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        final PlayQueueStore store = new PlayQueueStore(mFile);
+        store.rewrite(Arrays.asList("a", "b"));
+        store.add(2, "a long mrl cut by a crash");
+        store.close();
+        final long length = mFile.length();
+        final RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+        file.setLength(length - 5);
+        file.close();
+
+        assertEquals(Arrays.asList("a", "b"), store.read());
+        //the next records follow the valid ones
+        store.add(2, "c");
+        store.close();
+        assertEquals(Arrays.asList("a", "b", "c"), new PlayQueueStore(mFile).read());
+    }
+
+    @Test
+    public void testChangesAreSmall() throws IOException {
+        final PlayQueueStore store = new PlayQueueStore(mFile);
+        store.rewrite(mrls(QUEUE_SIZE));
+        final long length = mFile.length();
+        store.move(10, 5000);
+        store.remove(42);
+        store.close();
+        assertEquals(length + 9 + 5, mFile.length());
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        final PlayQueueStore store = new PlayQueueStore(mFile);
+        final List<String> mrls = mrls(10);
+        store.rewrite(mrls);
+        int moves = 0;
+        while (!store.needsCompaction()) {
+            store.move(0, 10);
+            mrls.add(mrls.remove(0));
+            ++moves;
+        }
+        assertTrue(moves > 64);
+        store.rewrite(mrls);
+        assertFalse(store.needsCompaction());
+        assertEquals(mrls, new PlayQueueStore(mFile).read());
+    }
+}
@@ -0,0 +1,50 @@
+package org.videolan.vlc.media;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.videolan.vlc.Benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+
+import static org.junit.Assert.*;
+
+@Category(Benchmark.class)
+public class ShuffleOrderBenchmark {
+
+    private static final int QUEUE_SIZE = 100000;
+    //former PlaybackService implementation, quadratic so only on a part of the queue
+    private static final int REJECTION_PLAYS = 10000;
+
+    @Test
+    public void orderIsFasterThanRejection() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(11));
+        // warm up
+        order.reset(QUEUE_SIZE, 0);
+        ShuffleOrderTest.playAll(order, 0);
+
+        long start = System.nanoTime();
+        order.reset(QUEUE_SIZE, 0);
+        final List<Integer> played = ShuffleOrderTest.playAll(order, 0);
+        final long orderTime = (System.nanoTime() - start) / 1000;
+        ShuffleOrderTest.assertPermutation(played, QUEUE_SIZE);
+
+        start = System.nanoTime();
+        final Stack<Integer> previous = new Stack<>();
+        final Random random = new Random(11);
+        int current = 0;
+        for (int i = 0; i < REJECTION_PLAYS; ++i) {
+            int next;
+            do
+                next = random.nextInt(QUEUE_SIZE);
+            while (next == current || previous.contains(next));
+            previous.push(current);
+            current = next;
+        }
+        final long rejectionTime = (System.nanoTime() - start) / 1000;
+
+        assertTrue("Shuffle " + QUEUE_SIZE + " media: order " + orderTime + " us for all of them, rejection "
+                + rejectionTime + " us for the first " + REJECTION_PLAYS, orderTime < rejectionTime);
+    }
+}
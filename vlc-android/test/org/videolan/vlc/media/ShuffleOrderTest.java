@@ -0,0 +1,135 @@
+package org.videolan.vlc.media;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ShuffleOrderTest {
+
+    //plays the whole order from the current media, as PlaybackService.next() does
+    static List<Integer> playAll(ShuffleOrder order, int current) {
+        final List<Integer> played = new ArrayList<>();
+        played.add(current);
+        int next;
+        while ((next = order.getNext(false)) != -1) {
+            order.setCurrent(next);
+            played.add(next);
+        }
+        return played;
+    }
+
+    static void assertPermutation(List<Integer> played, int size) {
+        assertEquals(size, played.size());
+        assertEquals(size, new HashSet<>(played).size());
+        for (int index : played)
+            assertTrue(index >= 0 && index < size);
+    }
+
+    @Test
+    public void testPlaysEveryMediaOnce() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(42));
+        order.reset(50, 7);
+        final List<Integer> played = playAll(order, 7);
+        assertPermutation(played, 50);
+        assertEquals(7, (int) played.get(0));
+        assertEquals(-1, order.getNext(false));
+    }
+
+    @Test
+    public void testPrevious() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(1));
+        order.reset(10, 0);
+        assertEquals(-1, order.getPrevious());
+        final int first = order.getNext(false);
+        order.setCurrent(first);
+        final int second = order.getNext(false);
+        order.setCurrent(second);
+        assertEquals(first, order.getPrevious());
+
+        //going back keeps the order
+        order.setCurrent(first);
+        assertEquals(0, order.getPrevious());
+        assertEquals(second, order.getNext(false));
+    }
+
+    @Test
+    public void testRepeatAll() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(3));
+        order.reset(5, 2);
+        final List<Integer> played = playAll(order, 2);
+        final int last = played.get(played.size() - 1);
+        final int next = order.getNext(true);
+        assertNotEquals(last, next);
+        assertEquals(-1, order.getPrevious());
+        order.setCurrent(next);
+        assertEquals(last, order.getPrevious());
+        final List<Integer> second = playAll(order, next);
+        assertEquals(4, second.size());
+        assertFalse(second.contains(last));
+    }
+
+    @Test
+    public void testJumpToMedia() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(5));
+        order.reset(20, 0);
+        order.setCurrent(13);
+        assertEquals(0, order.getPrevious());
+        final List<Integer> played = playAll(order, 13);
+        played.add(0, 0);
+        assertPermutation(played, 20);
+    }
+
+    @Test
+    public void testListChanges() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(7));
+        //list: a b c d e f, playing c then the next one
+        order.reset(6, 2);
+        final int next = order.getNext(false);
+        order.setCurrent(next);
+
+        //inserting before shifts the indexes
+        order.onItemAdded(0);
+        assertEquals(3, order.getPrevious());
+        //removing the previous media
+        order.onItemRemoved(3);
+        assertEquals(-1, order.getPrevious());
+
+        order.reset(6, 2);
+        order.setCurrent(order.getNext(false));
+        final int current = order.getPrevious();
+        //moving the previous media to the end: c is now at index 5
+        order.onItemMoved(current, 6);
+        assertEquals(5, order.getPrevious());
+
+        order.reset(3, 0);
+        order.append(5);
+        assertPermutation(playAll(order, 0), 5);
+    }
+
+    @Test
+    public void testRemovedMediaAreNotPlayed() {
+        final ShuffleOrder order = new ShuffleOrder(new Random(9));
+        order.reset(100, 50);
+        for (int i = 0; i < 10; ++i)
+            order.setCurrent(order.getNext(false));
+        for (int i = 0; i < 10; ++i)
+            order.onItemRemoved(99 - 2 * i);
+        order.onItemAdded(0);
+        final List<Integer> played = new ArrayList<>();
+        int next;
+        while ((next = order.getNext(false)) != -1) {
+            order.setCurrent(next);
+            played.add(next);
+        }
+        //89 left after the 11 first played ones, plus the added one
+        assertEquals(80, played.size());
+        assertEquals(80, new HashSet<>(played).size());
+        for (int index : played)
+            assertTrue(index >= 0 && index < 91);
+    }
+}
@@ -0,0 +1,55 @@
+package org.videolan.vlc.subs;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.videolan.vlc.Benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+@Category(Benchmark.class)
+public class FormatSRTBenchmark {
+
+    private static final int CAPTIONS = 10000;
+    private static final int RUNS = 10;
+
+    private static String sFile;
+
+    @BeforeClass
+    public static void generateFile() {
+        sFile = FormatSRTTest.generateFile(CAPTIONS);
+    }
+
+    @Test
+    public void streamingAllocatesLess() throws Exception {
+        // warm up both paths
+        FormatSRTTest.parseLines(sFile);
+        FormatSRTTest.parseStream(sFile);
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++)
+            FormatSRTTest.parseLines(sFile);
+        final long linesTime = (System.nanoTime() - start) / RUNS / 1000000;
+        final long linesBytes = (allocatedBytes() - allocated) / RUNS;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++)
+            FormatSRTTest.parseStream(sFile);
+        final long streamTime = (System.nanoTime() - start) / RUNS / 1000000;
+        final long streamBytes = (allocatedBytes() - allocated) / RUNS;
+
+        final String result = CAPTIONS + " captions: split lines " + linesTime + " ms, "
+                + linesBytes / 1024 + " KB, streaming " + streamTime + " ms, " + streamBytes / 1024 + " KB";
+        // The parse times are too close to be compared reliably, the split lines are not
+        assertTrue(result, streamBytes * 2 < linesBytes);
+    }
+
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,68 @@
+package org.videolan.vlc.subs;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class FormatSRTTest {
+
+    private static final int CAPTIONS = 10000;
+
+    private static String sFile;
+
+    @BeforeClass
+    public static void generateFile() {
+        sFile = generateFile(CAPTIONS);
+    }
+
+    static String generateFile(int captions) {
+        StringBuilder sb = new StringBuilder();
+        Time time = new Time(0);
+        for (int i = 1; i <= captions; i++) {
+            sb.append(i).append("\r\n");
+            time.mseconds = i * 3000;
+            sb.append(time.getTime("hh:mm:ss,ms")).append(" --> ");
+            time.mseconds = i * 3000 + 2500;
+            sb.append(time.getTime("hh:mm:ss,ms")).append("\r\n");
+            sb.append("<i>Caption number ").append(i).append("</i>\r\n");
+            sb.append("second line of caption ").append(i).append("\r\n\r\n");
+        }
+        sb.append("\r\n");
+        return sb.toString();
+    }
+
+    @Test
+    public void testParseTime() {
+        assertEquals(3723004, Time.parseSRTTime("01:02:03,004", 0));
+        assertEquals(3723400, Time.parseSRTTime("1:02:03.4", 0));
+        assertEquals(5000, Time.parseSRTTime("--> 00:00:05,000", 4));
+        assertEquals(-1, Time.parseSRTTime("00:0a:05,000", 0));
+        assertEquals(-1, Time.parseSRTTime("garbage", 0));
+    }
+
+    @Test
+    public void testSameResult() throws Exception {
+        TimedTextObject lines = parseLines(sFile);
+        TimedTextObject stream = parseStream(sFile);
+        assertEquals(CAPTIONS, stream.getCaptionCount());
+        assertEquals(lines.getCaptionCount(), stream.getCaptionCount());
+        for (int i = 0; i < CAPTIONS; i++) {
+            Caption expected = lines.getCaption(i);
+            Caption actual = stream.getCaption(i);
+            assertEquals(expected.start.getMilliseconds(), actual.start.getMilliseconds());
+            assertEquals(expected.end.getMilliseconds(), actual.end.getMilliseconds());
+            assertEquals(expected.content, actual.content);
+        }
+    }
+
+    static TimedTextObject parseLines(String file) throws Exception {
+        return new FormatSRT().parseFile("test.srt", file.split("\n"));
+    }
+
+    static TimedTextObject parseStream(String file) throws Exception {
+        return new FormatSRT().parseFile("test.srt", new StringReader(file));
+    }
+}
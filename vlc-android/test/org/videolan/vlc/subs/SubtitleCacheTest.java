@@ -0,0 +1,186 @@
+package org.videolan.vlc.subs;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class SubtitleCacheTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File directory = mFolder.newFolder("cache");
+        TimedTextObject tto = createSubtitles();
+        new SubtitleCache(directory, MAX_SIZE).put("key", tto);
+
+        TimedTextObject cached = new SubtitleCache(directory, MAX_SIZE).get("key");
+        assertNotNull(cached);
+        assertEquals(tto.title, cached.title);
+        assertEquals(tto.description, cached.description);
+        assertEquals(tto.copyright, cached.copyright);
+        assertEquals(tto.author, cached.author);
+        assertEquals(tto.fileName, cached.fileName);
+        assertEquals(tto.language, cached.language);
+        assertEquals(tto.warnings, cached.warnings);
+        assertEquals(tto.useASSInsteadOfSSA, cached.useASSInsteadOfSSA);
+        assertEquals(tto.offset, cached.offset);
+        assertTrue(cached.built);
+
+        assertEquals(tto.styling.keySet(), cached.styling.keySet());
+        Style style = cached.styling.get("Default");
+        assertEquals("Arial", style.font);
+        assertEquals("20", style.fontSize);
+        assertEquals("ffffffff", style.color);
+        assertNull(style.backgroundColor);
+        assertEquals("bottom-center", style.textAlign);
+        assertTrue(style.italic);
+        assertFalse(style.bold);
+        assertTrue(style.underline);
+
+        assertEquals(tto.getCaptionCount(), cached.getCaptionCount());
+        assertEquals(tto.captions.keySet(), cached.captions.keySet());
+        for (int i = 0; i < tto.getCaptionCount(); i++) {
+            Caption expected = tto.getCaption(i);
+            Caption actual = cached.getCaption(i);
+            assertEquals(expected.start.getMilliseconds(), actual.start.getMilliseconds());
+            assertEquals(expected.end.getMilliseconds(), actual.end.getMilliseconds());
+            assertEquals(expected.content, actual.content);
+            assertEquals(expected.style == null ? null : expected.style.iD,
+                    actual.style == null ? null : actual.style.iD);
+        }
+        assertSame(style, cached.getCaption(0).style);
+    }
+
+    @Test
+    public void testMissingEntry() throws IOException {
+        SubtitleCache cache = new SubtitleCache(mFolder.newFolder("cache"), MAX_SIZE);
+        assertNull(cache.get("key"));
+        cache.put("key", createSubtitles());
+        assertNull(cache.get("other key"));
+    }
+
+    @Test
+    public void testKeyChangesWithFile() throws IOException {
+        File file = mFolder.newFile("movie.srt");
+        write(file, "1\n00:00:01,000 --> 00:00:02,000\nHello\n\n");
+        final String key = SubtitleCache.getKey(file, "eng|null");
+        assertEquals(key, SubtitleCache.getKey(file, "eng|null"));
+        assertNotEquals(key, SubtitleCache.getKey(file, "eng|UTF-8"));
+
+        SubtitleCache cache = new SubtitleCache(mFolder.newFolder("cache"), MAX_SIZE);
+        cache.put(key, createSubtitles());
+        assertNotNull(cache.get(key));
+
+        write(file, "1\n00:00:01,000 --> 00:00:02,000\nHello world\n\n");
+        assertNull(cache.get(SubtitleCache.getKey(file, "eng|null")));
+
+        // Same size, other modification date
+        final String sizeKey = SubtitleCache.getKey(file, "eng|null");
+        assertTrue(file.setLastModified(file.lastModified() - 60000));
+        assertNotEquals(sizeKey, SubtitleCache.getKey(file, "eng|null"));
+    }
+
+    @Test
+    public void testTrimLeastRecentlyUsed() throws IOException {
+        final long entrySize = getEntrySize();
+        File directory = mFolder.newFolder("cache");
+        SubtitleCache cache = new SubtitleCache(directory, entrySize * 5 / 2);
+        final long now = System.currentTimeMillis();
+
+        cache.put("key1", createSubtitles());
+        File first = directory.listFiles()[0];
+        cache.put("key2", createSubtitles());
+        assertEquals(2, directory.listFiles().length);
+        for (File entry : directory.listFiles())
+            assertTrue(entry.setLastModified(entry.equals(first) ? now - 20000 : now - 10000));
+
+        // The first entry becomes the most recently used one
+        assertNotNull(cache.get("key1"));
+        cache.put("key3", createSubtitles());
+        assertEquals(2, directory.listFiles().length);
+        assertNotNull(cache.get("key1"));
+        assertNull(cache.get("key2"));
+        assertNotNull(cache.get("key3"));
+    }
+
+    @Test
+    public void testTrimIgnoresTempFiles() throws IOException {
+        final long entrySize = getEntrySize();
+        File directory = mFolder.newFolder("cache");
+        SubtitleCache cache = new SubtitleCache(directory, entrySize * 5 / 2);
+        cache.put("key1", createSubtitles());
+        File first = directory.listFiles()[0];
+        assertTrue(first.setLastModified(System.currentTimeMillis() - 10000));
+
+        // Left over by an interrupted put
+        File temp = new File(directory, "0123456789abcdef.sub.tmp");
+        write(temp, new String(new char[(int) entrySize * 3]).replace('\0', 'x'));
+
+        cache.put("key2", createSubtitles());
+        assertFalse(temp.exists());
+        assertNotNull(cache.get("key1"));
+        assertNotNull(cache.get("key2"));
+    }
+
+    private long getEntrySize() throws IOException {
+        File directory = mFolder.newFolder();
+        new SubtitleCache(directory, MAX_SIZE).put("key0", createSubtitles());
+        return directory.listFiles()[0].length();
+    }
+
+    private static TimedTextObject createSubtitles() {
+        TimedTextObject tto = new TimedTextObject();
+        tto.title = "Title";
+        tto.description = "Description";
+        tto.copyright = "Copyright";
+        tto.author = "Author";
+        tto.fileName = "movie.ass";
+        tto.language = "fa";
+        tto.warnings += "line 3 ignored\n";
+        tto.useASSInsteadOfSSA = false;
+        tto.offset = -1500;
+
+        Style style = new Style("Default");
+        style.font = "Arial";
+        style.fontSize = "20";
+        style.color = "ffffffff";
+        style.textAlign = "bottom-center";
+        style.italic = true;
+        style.underline = true;
+        tto.styling.put(style.iD, style);
+
+        tto.captions.put(1000, caption(1000, 2500, "Hello<br />world", style));
+        tto.captions.put(3000, caption(3000, 4000, "سلام، دنیا", null));
+        tto.captions.put(3001, caption(3000, 5000, "", style));
+        tto.build();
+        return tto;
+    }
+
+    private static Caption caption(int start, int end, String content, Style style) {
+        Caption caption = new Caption();
+        caption.start = new Time(start);
+        caption.end = new Time(end);
+        caption.content = content;
+        caption.style = style;
+        return caption;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+}
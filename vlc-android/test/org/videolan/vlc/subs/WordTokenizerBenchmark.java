@@ -0,0 +1,60 @@
+package org.videolan.vlc.subs;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.videolan.vlc.Benchmark;
+
+import static org.junit.Assert.*;
+
+@Category(Benchmark.class)
+public class WordTokenizerBenchmark {
+
+    private static final int CAPTIONS = 10000;
+    private static final int RUNS = 10;
+
+    private static String[] sCaptions;
+
+    @BeforeClass
+    public static void generateCaptions() {
+        sCaptions = WordTokenizerTest.generateCaptions(CAPTIONS);
+    }
+
+    @Test
+    public void tokenizerIsFasterThanRegex() {
+        WordTokenizer tokenizer = new WordTokenizer();
+        // warm up both paths
+        runRegex();
+        runTokenizer(tokenizer);
+
+        long start = System.nanoTime();
+        int regexWords = 0;
+        for (int i = 0; i < RUNS; i++)
+            regexWords = runRegex();
+        final long regexTime = (System.nanoTime() - start) / RUNS / 1000;
+
+        start = System.nanoTime();
+        int tokenizerWords = 0;
+        for (int i = 0; i < RUNS; i++)
+            tokenizerWords = runTokenizer(tokenizer);
+        final long tokenizerTime = (System.nanoTime() - start) / RUNS / 1000;
+
+        assertEquals(regexWords, tokenizerWords);
+        assertTrue(CAPTIONS + " captions: regex " + regexTime + " us, tokenizer " + tokenizerTime + " us",
+                tokenizerTime * 5 < regexTime);
+    }
+
+    private static int runRegex() {
+        int count = 0;
+        for (String caption : sCaptions)
+            count += WordTokenizerTest.regexWords(caption).size();
+        return count;
+    }
+
+    private static int runTokenizer(WordTokenizer tokenizer) {
+        int count = 0;
+        for (String caption : sCaptions)
+            count += tokenizer.tokenize(caption);
+        return count;
+    }
+}
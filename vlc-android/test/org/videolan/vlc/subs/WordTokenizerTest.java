@@ -0,0 +1,86 @@
+package org.videolan.vlc.subs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class WordTokenizerTest {
+
+    //former VideoPlayerActivity.makeClickable implementation
+    private static final String SEPARATOR = "[-!$%^&*()_+|~=`{}\\[\\]:\\\";'<>?,.\\/\\s+]";
+    private static final String SPLIT = "(?=" + SEPARATOR + ")|(?<=" + SEPARATOR + ")";
+
+    static String[] generateCaptions(int count) {
+        String[] captions = new String[count];
+        for (int i = 0; i < count; i++)
+            captions[i] = "- Well, I don't know... " + i + " of them (maybe) said: \"let's go home\"!";
+        return captions;
+    }
+
+    @Test
+    public void testSameWordsAsRegex() {
+        WordTokenizer tokenizer = new WordTokenizer();
+        for (String caption : generateCaptions(100))
+            assertEquals(regexWords(caption), words(tokenizer, caption));
+        assertEquals(regexWords("a#b@c d\\e"), words(tokenizer, "a#b@c d\\e"));
+    }
+
+    @Test
+    public void testOffsets() {
+        WordTokenizer tokenizer = new WordTokenizer();
+        assertEquals(3, tokenizer.tokenize("  ab, cd-ef"));
+        assertEquals(2, tokenizer.getStart(0));
+        assertEquals(4, tokenizer.getEnd(0));
+        assertEquals(9, tokenizer.getStart(2));
+        assertEquals(11, tokenizer.getEnd(2));
+        assertEquals(0, tokenizer.tokenize(" ?! "));
+        assertEquals(0, tokenizer.tokenize(""));
+    }
+
+    @Test
+    public void testPersian() {
+        WordTokenizer tokenizer = new WordTokenizer();
+        //Arabic comma and question mark separate words, the zero width non-joiner doesn't
+        assertEquals(list("سلام", "می‌روی"), words(tokenizer, "سلام، می‌روی؟"));
+        //vowel marks stay in the word
+        assertEquals(list("كَتَبَ"), words(tokenizer, "كَتَبَ"));
+    }
+
+    @Test
+    public void testCjk() {
+        WordTokenizer tokenizer = new WordTokenizer();
+        assertEquals(list("我", "爱", "你"), words(tokenizer, "我爱你。"));
+        assertEquals(list("コーヒー", "を", "飲", "む"), words(tokenizer, "コーヒーを飲む"));
+        //supplementary ideographs are not split in halves
+        assertEquals(list("𠀋", "a"), words(tokenizer, "𠀋 a"));
+    }
+
+    static List<String> regexWords(String text) {
+        List<String> words = new ArrayList<>();
+        Pattern r = Pattern.compile(SEPARATOR);
+        for (String word : text.split(SPLIT)) {
+            if (!word.isEmpty() && !r.matcher(word).find())
+                words.add(word);
+        }
+        return words;
+    }
+
+    private static List<String> words(WordTokenizer tokenizer, String text) {
+        List<String> words = new ArrayList<>();
+        final int count = tokenizer.tokenize(text);
+        for (int i = 0; i < count; i++)
+            words.add(text.substring(tokenizer.getStart(i), tokenizer.getEnd(i)));
+        return words;
+    }
+
+    private static List<String> list(String... words) {
+        List<String> list = new ArrayList<>();
+        for (String word : words)
+            list.add(word);
+        return list;
+    }
+}
@@ -0,0 +1,63 @@
+package org.videolan.vlc.util.Dictionary;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LemmatizerTest {
+
+    //the first candidate of the list which is a headword
+    private static String lookup(String word, String... headwords) {
+        final List<String> candidates = Lemmatizer.getCandidates(word);
+        for (String candidate : candidates) {
+            for (String headword : headwords) {
+                if (candidate.equals(headword))
+                    return headword;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testExactWordFirst() {
+        assertEquals("water", Lemmatizer.getCandidates("Water,").get(0));
+        assertEquals("dogs'", Lemmatizer.getCandidates("\"dogs'").get(0));
+        assertTrue(Lemmatizer.getCandidates("...").isEmpty());
+    }
+
+    @Test
+    public void testInflections() {
+        assertEquals("city", lookup("cities", "city", "cit"));
+        assertEquals("run", lookup("running", "run", "runner"));
+        assertEquals("walk", lookup("walked", "walk", "walke"));
+        assertEquals("hope", lookup("hoped", "hop", "hope"));
+        assertEquals("hope", lookup("hopes", "hop", "hope"));
+        assertEquals("hop", lookup("hopped", "hop", "hope"));
+        assertEquals("box", lookup("boxes", "box", "boxe"));
+        assertEquals("happy", lookup("happier", "happy"));
+        assertEquals("big", lookup("biggest", "big"));
+        assertEquals("knife", lookup("knives", "knife"));
+        assertEquals("glass", lookup("glass", "glass", "glas"));
+        assertEquals("kind", lookup("kindness", "kind"));
+        assertEquals("quick", lookup("quickly", "quick"));
+    }
+
+    @Test
+    public void testIrregularsAndContractions() {
+        assertEquals("do", lookup("didn't", "do"));
+        assertEquals("will", lookup("won't", "will"));
+        assertEquals("be", lookup("wasn\u2019t", "be"));
+        assertEquals("child", lookup("children", "child"));
+        assertEquals("john", lookup("John's", "john"));
+        assertEquals("dog", lookup("dogs'", "dog"));
+        assertEquals("go", lookup("went", "go"));
+    }
+
+    @Test
+    public void testPrefix() {
+        assertEquals("unbelievab", Lemmatizer.getPrefix(Lemmatizer.getCandidates("unbelievably")));
+        assertNull(Lemmatizer.getPrefix(Lemmatizer.getCandidates("ran")));
+    }
+}
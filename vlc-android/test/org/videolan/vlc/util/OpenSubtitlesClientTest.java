@@ -0,0 +1,295 @@
+package org.videolan.vlc.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.junit.Assert.*;
+
+public class OpenSubtitlesClientTest {
+
+    private static final List<String> LANGUAGES = Arrays.asList("eng", "per");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private HttpServer mServer;
+    private String mBaseUrl;
+    private File mDirectory;
+
+    //the stub server knows these movie hashes and file names
+    private final Map<String, String> mKnownHashes = Collections.synchronizedMap(new HashMap<String, String>());
+    private final Set<String> mKnownTags = Collections.synchronizedSet(new HashSet<String>());
+    //number of queries of each SearchSubtitles call, by kind of query
+    private final List<Integer> mHashBatches = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<Integer> mTagBatches = Collections.synchronizedList(new ArrayList<Integer>());
+    private final List<String> mDownloads = Collections.synchronizedList(new ArrayList<String>());
+    //downloads wait for this latch before answering
+    private volatile CountDownLatch mDownloadGate = new CountDownLatch(0);
+    private final CountDownLatch mDownloadStarted = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws IOException {
+        mDirectory = mFolder.newFolder("subs");
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/xml-rpc", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String response;
+                try {
+                    response = respond(readAll(exchange.getRequestBody()));
+                } catch (Exception e) {
+                    exchange.sendResponseHeaders(500, -1);
+                    exchange.close();
+                    return;
+                }
+                final byte[] body = response.getBytes("UTF-8");
+                exchange.getResponseHeaders().set("Content-Type", "text/xml");
+                exchange.sendResponseHeaders(200, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        mServer.createContext("/download/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String subtitle = exchange.getRequestURI().getPath().substring("/download/".length());
+                mDownloads.add(subtitle);
+                mDownloadStarted.countDown();
+                try {
+                    mDownloadGate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {}
+                ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+                GZIPOutputStream gzip = new GZIPOutputStream(gzipped);
+                gzip.write(("1\n00:00:01,000 --> 00:00:02,000\n" + subtitle + "\n\n").getBytes("UTF-8"));
+                gzip.close();
+                exchange.sendResponseHeaders(200, gzipped.size());
+                OutputStream out = exchange.getResponseBody();
+                gzipped.writeTo(out);
+                out.close();
+            }
+        });
+        mServer.setExecutor(Executors.newCachedThreadPool());
+        mServer.start();
+        mBaseUrl = "http://127.0.0.1:" + mServer.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        mDownloadGate.countDown();
+        mServer.stop(0);
+    }
+
+    @Test
+    public void testBatchesAndSecondPass() throws Exception {
+        //60 media: found by hash for the even ones, by name for one odd one out of two
+        final List<String> paths = createMedia(60);
+        for (int i = 0; i < paths.size(); i++) {
+            if (i % 2 == 0)
+                mKnownHashes.put(hash(paths.get(i)), OpenSubtitlesClient.getFileName(paths.get(i)));
+            else if (i % 4 == 1)
+                mKnownTags.add(OpenSubtitlesClient.getFileName(paths.get(i)));
+        }
+        final List<String> downloaded = Collections.synchronizedList(new ArrayList<String>());
+        final OpenSubtitlesClient client = createClient(downloaded);
+        client.logIn();
+        final HashMap<String, ArrayList<String>> success = client.download(paths, LANGUAGES);
+        client.logOut();
+
+        //120 hash queries, then 2 languages for the 30 media not found, batches are sent concurrently
+        Collections.sort(mHashBatches, Collections.reverseOrder());
+        Collections.sort(mTagBatches, Collections.reverseOrder());
+        assertEquals(Arrays.asList(50, 50, 20), mHashBatches);
+        assertEquals(Arrays.asList(50, 10), mTagBatches);
+
+        //the server returns two subtitles by query, only the first one is downloaded
+        assertEquals(45 * LANGUAGES.size(), mDownloads.size());
+        assertEquals(new HashSet<>(mDownloads).size(), mDownloads.size());
+        assertEquals(45 * LANGUAGES.size(), downloaded.size());
+        assertEquals(45, success.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final String fileName = OpenSubtitlesClient.getFileName(paths.get(i));
+            if (i % 4 == 3) {
+                assertFalse(success.containsKey(fileName));
+                continue;
+            }
+            assertEquals(new HashSet<>(LANGUAGES), new HashSet<>(success.get(fileName)));
+            //the subtitle of each query is the one of its own media
+            for (String language : LANGUAGES) {
+                final File subtitle = new File(mDirectory, "movie" + i + '.' + language + ".srt");
+                assertTrue(readAll(new FileInputStream(subtitle)).contains(fileName + '/' + language + "/0"));
+            }
+        }
+    }
+
+    @Test
+    public void testStopCancelsPendingDownloads() throws Exception {
+        final List<String> paths = createMedia(20);
+        for (String path : paths)
+            mKnownHashes.put(hash(path), OpenSubtitlesClient.getFileName(path));
+        mDownloadGate = new CountDownLatch(1);
+        final List<String> downloaded = Collections.synchronizedList(new ArrayList<String>());
+        final OpenSubtitlesClient client = createClient(downloaded);
+        client.logIn();
+
+        final HashMap<String, ArrayList<String>>[] success = new HashMap[1];
+        Thread search = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    success[0] = client.download(paths, LANGUAGES);
+                } catch (Exception ignored) {}
+            }
+        };
+        search.start();
+        assertTrue(mDownloadStarted.await(10, TimeUnit.SECONDS));
+        client.stop();
+        mDownloadGate.countDown();
+        search.join(10000);
+        assertFalse(search.isAlive());
+
+        //only the running downloads reached the server, and none of them was kept
+        assertTrue(mDownloads.size() <= OpenSubtitlesClient.DOWNLOAD_THREADS);
+        assertTrue(downloaded.isEmpty());
+        assertTrue(success[0].isEmpty());
+        assertEquals(0, mDirectory.list().length);
+    }
+
+    private OpenSubtitlesClient createClient(final List<String> downloaded) throws IOException {
+        return new OpenSubtitlesClient(new URL(mBaseUrl + "/xml-rpc"), mDirectory, new OpenSubtitlesClient.Callback() {
+            @Override
+            public String getMovieHash(String path) {
+                return hash(path);
+            }
+
+            @Override
+            public void onHashSearchEnded() {}
+
+            @Override
+            public void onSubtitleDownloaded(String path, String language, File subtitle) {
+                downloaded.add(subtitle.getName());
+            }
+        });
+    }
+
+    private List<String> createMedia(int count) throws IOException {
+        final File directory = mFolder.newFolder("media");
+        final List<String> paths = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            paths.add(new File(directory, "movie" + i + ".mkv").getAbsolutePath());
+        return paths;
+    }
+
+    private static String hash(String path) {
+        return Integer.toHexString(path.hashCode());
+    }
+
+    /**
+     * Answers the XML-RPC calls, each query of SearchSubtitles gets two results of its language.
+     */
+    private String respond(String request) throws Exception {
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new ByteArrayInputStream(request.getBytes("UTF-8")));
+        final String method = document.getElementsByTagName("methodName").item(0).getTextContent().trim();
+        if (!method.equals("SearchSubtitles"))
+            return response("<struct>" + member("token", "token") + member("status", "200 OK") + "</struct>");
+
+        final StringBuilder results = new StringBuilder();
+        final NodeList queries = document.getElementsByTagName("struct");
+        boolean byHash = false;
+        for (int i = 0; i < queries.getLength(); i++) {
+            final Map<String, String> query = members((Element) queries.item(i));
+            final String hash = query.get("moviehash");
+            final String tag = query.get("tag");
+            final String language = query.get("sublanguageid");
+            byHash = hash != null;
+            final String name;
+            if (hash != null && mKnownHashes.containsKey(hash))
+                name = mKnownHashes.get(hash);
+            else if (tag != null && mKnownTags.contains(tag))
+                name = tag;
+            else
+                continue;
+            for (int result = 0; result < 2; result++) {
+                results.append("<value><struct>")
+                        .append(member("SubFormat", "srt"))
+                        .append(member("SubLanguageID", language))
+                        .append(member("QueryNumber", String.valueOf(i)))
+                        .append(member("SubDownloadLink", mBaseUrl + "/download/" + name + '/' + language + '/' + result));
+                if (hash != null)
+                    results.append(member("MovieHash", hash));
+                results.append("</struct></value>");
+            }
+        }
+        (byHash ? mHashBatches : mTagBatches).add(queries.getLength());
+        return response("<struct>" + member("status", "200 OK")
+                + "<member><name>data</name><value><array><data>" + results + "</data></array></value></member></struct>");
+    }
+
+    private static Map<String, String> members(Element struct) {
+        final Map<String, String> members = new HashMap<>();
+        final NodeList nodes = struct.getElementsByTagName("member");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            final Element member = (Element) nodes.item(i);
+            members.put(member.getElementsByTagName("name").item(0).getTextContent().trim(),
+                    member.getElementsByTagName("value").item(0).getTextContent().trim());
+        }
+        return members;
+    }
+
+    private static String member(String name, String value) {
+        return "<member><name>" + name + "</name><value><string>" + value + "</string></value></member>";
+    }
+
+    private static String response(String value) {
+        return "<?xml version=\"1.0\"?><methodResponse><params><param><value>" + value
+                + "</value></param></params></methodResponse>";
+    }
+
+    private static String readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                bytes.write(buffer, 0, read);
+            return bytes.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}